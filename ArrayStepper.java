@@ -0,0 +1,310 @@
+import java.util.Random;
+
+/**
+ * Steps a field held in primitive arrays rather than as cell objects. Each
+ * location keeps the kind of cell it holds, which picks the rules it follows
+ * as the cell's class does, along with its species, whether it is alive,
+ * what it has decided for the next generation and its infection rate.
+ * Living neighbours of each species are counted as the Field counts them,
+ * adjusted only around the locations that change.
+ *
+ * The rules are those of Mycoplasma, Helicobacter, Isseria and Cell, applied
+ * in the same order and drawing from the random stream in the same order,
+ * so that CrossCheck can hold this engine to the object-based simulation.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.16
+ */
+
+public class ArrayStepper implements Stepper {
+    // The kind of cell at a location, standing in for its class.
+    private static final byte NONE = 0, MYCOPLASMA = 1, HELICOBACTER = 2, ISSERIA = 3;
+
+    private static final int HELI = Species.HELICOBACTER.ordinal();
+    private static final int MYCO = Species.MYCOPLASMA.ordinal();
+    private static final int ISSE = Species.ISSERIA.ordinal();
+    private static final int INFECTED = Species.INFECTED.ordinal();
+
+    private final Topology topology;
+    private final int size;
+
+    // Each location's neighbours, maxNeighbours entries per location with
+    // unused entries set to -1.
+    private final int[] neighbourTable;
+    private final int maxNeighbours;
+
+    private final byte[] kinds;
+    private final byte[] species, nextSpecies;
+    private final boolean[] alive, nextAlive;
+    private final double[] infectRates;
+    private final byte[] states;
+
+    // Living neighbours of each species, as [species ordinal * size + index].
+    private final byte[] counts;
+
+    private final StateHasher hasher = new StateHasher();
+
+    private Random rand;
+    private double engulfProbability, isseriaTwoNeighbourSurvival, isseriaFourNeighbourSurvival;
+    private int generation;
+
+    /**
+     * Create an engine for fields with the given topology.
+     *
+     * @param topology Which locations neighbour each other.
+     */
+    public ArrayStepper(Topology topology) {
+        this.topology = topology;
+        size = topology.getDepth() * topology.getWidth();
+        maxNeighbours = topology.getMaxNeighbours();
+
+        neighbourTable = new int[size * maxNeighbours];
+        int[] neighbours = new int[maxNeighbours];
+        for (int index = 0; index < size; index++) {
+            int count = topology.neighbours(index, neighbours);
+            for (int i = 0; i < maxNeighbours; i++) {
+                neighbourTable[index * maxNeighbours + i] = i < count ? neighbours[i] : -1;
+            }
+        }
+
+        kinds = new byte[size];
+        species = new byte[size];
+        nextSpecies = new byte[size];
+        alive = new boolean[size];
+        nextAlive = new boolean[size];
+        infectRates = new double[size];
+        states = new byte[size];
+        counts = new byte[Species.values().length * size];
+    }
+
+    @Override
+    public void load(Field field, int generation, Random rand) {
+        if (field.getTopology().getDepth() != topology.getDepth()
+                || field.getTopology().getWidth() != topology.getWidth()) {
+            throw new IllegalArgumentException("The field is not the size this engine was made for.");
+        }
+        this.generation = generation;
+        this.rand = rand;
+        SimulationParameters parameters = field.getParameters();
+        engulfProbability = parameters.getEngulfProbability();
+        isseriaTwoNeighbourSurvival = parameters.getIsseriaTwoNeighbourSurvival();
+        isseriaFourNeighbourSurvival = parameters.getIsseriaFourNeighbourSurvival();
+
+        for (int index = 0; index < size; index++) {
+            Cell cell = field.getObjectAt(index);
+            if (cell == null) {
+                kinds[index] = NONE;
+                species[index] = nextSpecies[index] = (byte) Species.EMPTYCELL.ordinal();
+                alive[index] = nextAlive[index] = false;
+            } else {
+                kinds[index] = cell instanceof Helicobacter ? HELICOBACTER
+                        : cell instanceof Isseria ? ISSERIA : MYCOPLASMA;
+                species[index] = (byte) cell.getSpecies().ordinal();
+                nextSpecies[index] = (byte) cell.getNextSpecies().ordinal();
+                alive[index] = cell.isAlive();
+                nextAlive[index] = cell.getNextAlive();
+                infectRates[index] = cell.getInfectRate();
+            }
+            states[index] = (byte) state(index);
+        }
+        hasher.rehash(states);
+
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] = 0;
+        }
+        for (int index = 0; index < size; index++) {
+            if (alive[index]) {
+                adjustCounts(index, species[index], 1);
+            }
+        }
+    }
+
+    @Override
+    public void step() {
+        generation++;
+
+        // every cell decides its next state, in index order as the simulation's
+        // cells do, so random numbers are drawn in the same order
+        for (int index = 0; index < size; index++) {
+            switch (kinds[index]) {
+                case MYCOPLASMA:
+                    actMycoplasma(index);
+                    break;
+                case HELICOBACTER:
+                    actHelicobacter(index);
+                    break;
+                case ISSERIA:
+                    actIsseria(index);
+                    break;
+                default:
+                    continue;
+            }
+            // infected cells are the only red ones
+            if (species[index] != INFECTED) {
+                if (kinds[index] == MYCOPLASMA) {
+                    breedMycoplasma(index);
+                }
+                getInfectedIfPossible(index);
+            }
+            getEngulfedIfPossible(index);
+        }
+
+        // commit
+        for (int index = 0; index < size; index++) {
+            if (kinds[index] == NONE) {
+                continue;
+            }
+            boolean wasAlive = alive[index];
+            int oldSpecies = species[index];
+            alive[index] = nextAlive[index];
+            species[index] = nextSpecies[index];
+
+            int newState = state(index);
+            if (newState != states[index]) {
+                hasher.update(index, states[index], newState);
+                states[index] = (byte) newState;
+                if (wasAlive) {
+                    adjustCounts(index, oldSpecies, -1);
+                }
+                if (alive[index]) {
+                    adjustCounts(index, species[index], 1);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public long getStateHash() {
+        return hasher.getHash();
+    }
+
+    @Override
+    public int getState(int index) {
+        return states[index];
+    }
+
+    @Override
+    public boolean getNextAlive(int index) {
+        return nextAlive[index];
+    }
+
+    /**
+     * As Mycoplasma.act.
+     */
+    private void actMycoplasma(int index) {
+        int same = count(species[index], index);
+        if (alive[index]) {
+            if (same > 1 && same < 4) {
+                nextAlive[index] = true;
+            } else if (species[index] == INFECTED && rand.nextDouble() < Math.max(10 / generation, 0.09)) {
+                nextAlive[index] = true;
+            } else {
+                nextAlive[index] = false;
+            }
+        } else if (same == 3) {
+            nextAlive[index] = true;
+        }
+    }
+
+    /**
+     * As Helicobacter.act.
+     */
+    private void actHelicobacter(int index) {
+        int same = count(species[index], index);
+        if (alive[index]) {
+            if (same == 1 || same > 3) {
+                nextAlive[index] = false;
+            } else if (same == 3) {
+                nextAlive[index] = true;
+            }
+        } else if (same == 3) {
+            nextAlive[index] = true;
+        }
+    }
+
+    /**
+     * As Isseria.act.
+     */
+    private void actIsseria(int index) {
+        int same = count(species[index], index);
+        if (same == 2) {
+            if (rand.nextDouble() < isseriaTwoNeighbourSurvival) {
+                nextAlive[index] = true;
+            }
+        } else if (same == 4) {
+            if (rand.nextDouble() < isseriaFourNeighbourSurvival) {
+                nextAlive[index] = true;
+            }
+        } else {
+            nextAlive[index] = false;
+        }
+    }
+
+    /**
+     * As Mycoplasma.breedIfPossible.
+     */
+    private void breedMycoplasma(int index) {
+        if (!alive[index] && count(MYCO, index) >= 1 && count(ISSE, index) >= 1) {
+            nextSpecies[index] = (byte) (rand.nextDouble() < 0.9 ? INFECTED : ISSE);
+            nextAlive[index] = true;
+        }
+    }
+
+    /**
+     * As Cell.getInfectedIfPossible, for a cell that is not infected.
+     */
+    private void getInfectedIfPossible(int index) {
+        int infected = count(INFECTED, index);
+        if (species[index] == HELI) {
+            infectRates[index] *= 0.995;
+        }
+        if (infected >= 1 && rand.nextDouble() < infectRates[index]) {
+            nextAlive[index] = true;
+            nextSpecies[index] = (byte) INFECTED;
+        }
+        if (!alive[index] && species[index] != HELI && infected > 3 && rand.nextDouble() < 0.11) {
+            nextAlive[index] = true;
+            nextSpecies[index] = (byte) INFECTED;
+        }
+    }
+
+    /**
+     * As Cell.getEngulfedIfPossible.
+     */
+    private void getEngulfedIfPossible(int index) {
+        if (species[index] != HELI) {
+            int helicobacter = count(HELI, index);
+            if (helicobacter >= 1 && helicobacter <= 3 && rand.nextDouble() < engulfProbability) {
+                nextAlive[index] = true;
+                nextSpecies[index] = (byte) HELI;
+            }
+        }
+    }
+
+    private int count(int speciesOrdinal, int index) {
+        return counts[speciesOrdinal * size + index];
+    }
+
+    private int state(int index) {
+        return (species[index] << 1) | (alive[index] ? 1 : 0);
+    }
+
+    /**
+     * Add delta to the count of a species around every neighbour of a
+     * location.
+     */
+    private void adjustCounts(int index, int speciesOrdinal, int delta) {
+        int base = speciesOrdinal * size;
+        for (int i = index * maxNeighbours; i < (index + 1) * maxNeighbours; i++) {
+            int neighbour = neighbourTable[i];
+            if (neighbour >= 0) {
+                counts[base + neighbour] += delta;
+            }
+        }
+    }
+}
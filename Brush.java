@@ -0,0 +1,185 @@
+/**
+ * A shape that is painted onto the field while drawing. A brush paints
+ * living cells of the selected species all along a stroke, while a stamp is
+ * a fixed pattern of living and dead cells placed once where the mouse is
+ * pressed. Both are centred on the location under the mouse.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.08
+ */
+
+public class Brush {
+    // The brushes and stamps offered in the view, in menu order.
+    public static final Brush[] BRUSHES = {
+            square("Point", 1),
+            square("Square 3x3", 3),
+            square("Square 5x5", 5),
+            disc("Disc", 4),
+            stamp("Glider",
+                    ".#.",
+                    "..#",
+                    "###"),
+            stamp("Blinker",
+                    "###"),
+            stamp("Block",
+                    "##",
+                    "##"),
+            stamp("R-pentomino",
+                    ".##",
+                    "##.",
+                    ".#."),
+    };
+
+    private final String name;
+
+    // Whether this is placed once per click rather than painted along strokes.
+    private final boolean isStamp;
+
+    // Offsets from the centre of each location the brush covers, and whether
+    // it makes that location alive or dead.
+    private final int[] rowOffsets, colOffsets;
+    private final boolean[] alive;
+
+    /**
+     * Create a brush from the locations it covers.
+     *
+     * @param name       The name shown in the view.
+     * @param isStamp    Whether it is placed once per click.
+     * @param rowOffsets Row offset from the centre of each location.
+     * @param colOffsets Column offset from the centre of each location.
+     * @param alive      Whether each location is made alive or dead.
+     */
+    public Brush(String name, boolean isStamp, int[] rowOffsets, int[] colOffsets, boolean[] alive) {
+        this.name = name;
+        this.isStamp = isStamp;
+        this.rowOffsets = rowOffsets;
+        this.colOffsets = colOffsets;
+        this.alive = alive;
+    }
+
+    /**
+     * A square brush of living cells.
+     *
+     * @param name The name shown in the view.
+     * @param size The length of a side of the square, in cells.
+     * @return The brush.
+     */
+    public static Brush square(String name, int size) {
+        String[] rows = new String[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = "#".repeat(size);
+        }
+        return fromRows(name, false, rows);
+    }
+
+    /**
+     * A round brush of living cells.
+     *
+     * @param name   The name shown in the view.
+     * @param radius The radius of the disc, in cells.
+     * @return The brush.
+     */
+    public static Brush disc(String name, int radius) {
+        String[] rows = new String[2 * radius + 1];
+        for (int r = -radius; r <= radius; r++) {
+            StringBuilder row = new StringBuilder();
+            for (int c = -radius; c <= radius; c++) {
+                // '-' marks a location the brush leaves alone
+                row.append(r * r + c * c <= radius * radius ? '#' : '-');
+            }
+            rows[r + radius] = row.toString();
+        }
+        return fromRows(name, false, rows);
+    }
+
+    /**
+     * A stamp made from rows of text, where '#' is a living cell and '.' a
+     * dead one.
+     *
+     * @param name The name shown in the view.
+     * @param rows The rows of the pattern, from top to bottom.
+     * @return The stamp.
+     */
+    public static Brush stamp(String name, String... rows) {
+        return fromRows(name, true, rows);
+    }
+
+    /**
+     * Build a brush from rows of text: '#' for a living cell, '.' for a dead
+     * one and anything else for a location that is left as it is.
+     */
+    private static Brush fromRows(String name, boolean isStamp, String[] rows) {
+        int count = 0;
+        for (String row : rows) {
+            for (char c : row.toCharArray()) {
+                if (c == '#' || c == '.') {
+                    count++;
+                }
+            }
+        }
+
+        int[] rowOffsets = new int[count];
+        int[] colOffsets = new int[count];
+        boolean[] alive = new boolean[count];
+        int i = 0;
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < rows[r].length(); c++) {
+                char ch = rows[r].charAt(c);
+                if (ch == '#' || ch == '.') {
+                    rowOffsets[i] = r - rows.length / 2;
+                    colOffsets[i] = c - rows[r].length() / 2;
+                    alive[i] = ch == '#';
+                    i++;
+                }
+            }
+        }
+        return new Brush(name, isStamp, rowOffsets, colOffsets, alive);
+    }
+
+    /**
+     * @return Whether this is placed once per click rather than painted along
+     *         strokes.
+     */
+    public boolean isStamp() {
+        return isStamp;
+    }
+
+    /**
+     * @return The number of locations the brush covers.
+     */
+    public int getSize() {
+        return alive.length;
+    }
+
+    /**
+     * @param i Which of the covered locations.
+     * @return Its row offset from the centre of the brush.
+     */
+    public int getRowOffset(int i) {
+        return rowOffsets[i];
+    }
+
+    /**
+     * @param i Which of the covered locations.
+     * @return Its column offset from the centre of the brush.
+     */
+    public int getColOffset(int i) {
+        return colOffsets[i];
+    }
+
+    /**
+     * @param i Which of the covered locations.
+     * @return Whether the brush makes that location alive.
+     */
+    public boolean isAlive(int i) {
+        return alive[i];
+    }
+
+    /**
+     * @return The name of the brush, as shown in the view.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
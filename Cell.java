@@ -3,7 +3,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.HashMap;
+import java.util.EnumMap;
 
 /**
  * A class representing the shared characteristics of all forms of life
@@ -23,8 +23,8 @@ public abstract class Cell {
     // The cell's field.
     private Field field;
 
-    // The cell's position in the field.x
-    private Location location;
+    // The index of the cell's position in the field (row * width + col).
+    private int index;
 
     // The cell's color
     private Color color = Color.white;
@@ -32,17 +32,22 @@ public abstract class Cell {
     private Color nextColor = color;
 
     // probability that a cell will get infected
-    private double infectRate = 0.10;
+    private double infectRate;
 
     // default colour of cells
     private Color heliColour = new Color(200, 255, 255);
-    private Color mycoColour = Color.ORANGE;
-    private Color isseColour = Color.MAGENTA;
-    private Color infectedColour = Color.RED;
     private Color defaultHeliColor = new Color(200, 255, 255);
 
-    // mapping species enum to colours for constant time lookup of colours
-    private HashMap<Species, Color> speciesColor = new HashMap<>();
+    // mapping species enum to colours for constant time lookup of colours,
+    // shared by all cells
+    private static final EnumMap<Species, Color> speciesColor = new EnumMap<>(Species.class);
+
+    static {
+        speciesColor.put(Species.HELICOBACTER, new Color(200, 255, 255));
+        speciesColor.put(Species.MYCOPLASMA, Color.ORANGE);
+        speciesColor.put(Species.ISSERIA, Color.MAGENTA);
+        speciesColor.put(Species.INFECTED, Color.RED);
+    }
 
     // enum representing the type of cell
     private Species species, nextSpecies;
@@ -54,8 +59,19 @@ public abstract class Cell {
      * @param location The location within the field.
      */
     public Cell(Field field, Location location, Color col, Species species) {
+        this(field, field.index(location.getRow(), location.getCol()), col, species);
+    }
+
+    /**
+     * Create a new cell at the location with the given index in field.
+     *
+     * @param field The field currently occupied.
+     * @param index The index of the location within the field.
+     */
+    public Cell(Field field, int index, Color col, Species species) {
         this.field = field;
-        setLocation(location);
+
+        infectRate = field.getParameters().getInfectRate();
 
         // set initial colour
         color = col;
@@ -69,12 +85,8 @@ public abstract class Cell {
         this.species = species;
         nextSpecies = species;
 
-        // place species' respective colour in a hashmap for constant time retrieval
-        // instead of conditions
-        speciesColor.put(Species.HELICOBACTER, heliColour);
-        speciesColor.put(Species.MYCOPLASMA, mycoColour);
-        speciesColor.put(Species.ISSERIA, isseColour);
-        speciesColor.put(Species.INFECTED, infectedColour);
+        // placed last, so that the field counts the cell with its initial state
+        setIndex(index);
     }
 
     /**
@@ -96,7 +108,7 @@ public abstract class Cell {
      * Indicate that the cell is no longer alive.
      */
     protected void setDead() {
-        alive = false;
+        setCurrentState(species, false);
     }
 
     /**
@@ -110,9 +122,8 @@ public abstract class Cell {
      * Changes the state of the cell
      */
     public void updateState() {
-        alive = nextAlive;
         color = nextColor;
-        species = nextSpecies;
+        setCurrentState(nextSpecies, nextAlive);
     }
 
     /**
@@ -155,14 +166,39 @@ public abstract class Cell {
      * @return The cell's location.
      */
     protected Location getLocation() {
-        return location;
+        return field.toLocation(index);
+    }
+
+    /**
+     * Return the index of the cell's location.
+     * 
+     * @return The index of the cell's location (row * width + col).
+     */
+    public int getIndex() {
+        return index;
     }
 
     /**
      * Set whether the cell is dead or alive.
      */
     public void setState(boolean value) {
-        alive = value;
+        setCurrentState(species, value);
+    }
+
+    /**
+     * Change the species and state of the cell in the current generation,
+     * letting the field update its neighbour counts if that matters to them.
+     */
+    private void setCurrentState(Species newSpecies, boolean newAlive) {
+        Species oldSpecies = species;
+        boolean wasAlive = alive;
+        species = newSpecies;
+        alive = newAlive;
+
+        // only living cells are counted
+        if (wasAlive != newAlive || (newAlive && oldSpecies != newSpecies)) {
+            field.cellChanged(this, oldSpecies, wasAlive);
+        }
     }
 
     /**
@@ -193,13 +229,38 @@ public abstract class Cell {
      * @param species
      */
     protected void setSpecies(Species species) {
-        this.species = species;
+        setCurrentState(species, alive);
         nextSpecies = species;
 
         setColor(getSpeciesColor(species));
         setNextColor(getSpeciesColor(species));
     }
 
+    /**
+     * @return the species the cell is set to be in the next generation.
+     */
+    protected Species getNextSpecies() {
+        return nextSpecies;
+    }
+
+    /**
+     * @return the probability that the cell gets infected by an infected
+     *         neighbour.
+     */
+    protected double getInfectRate() {
+        return infectRate;
+    }
+
+    /**
+     * Set the probability that the cell gets infected, e.g. when restoring
+     * a cell from a checkpoint.
+     * 
+     * @param infectRate the probability.
+     */
+    protected void setInfectRate(double infectRate) {
+        this.infectRate = infectRate;
+    }
+
     /**
      * 
      * @return the species of the cell in the current generation.
@@ -214,8 +275,17 @@ public abstract class Cell {
      * @param location The cell's location.
      */
     protected void setLocation(Location location) {
-        this.location = location;
-        field.place(this, location);
+        setIndex(field.index(location.getRow(), location.getCol()));
+    }
+
+    /**
+     * Place the cell at the location with the given index in the field.
+     * 
+     * @param index The index of the cell's location.
+     */
+    protected void setIndex(int index) {
+        this.index = index;
+        field.place(this, index);
     }
 
     /**
@@ -240,25 +310,36 @@ public abstract class Cell {
         return sameNeighbours.collect(Collectors.toList());
     }
 
+    /**
+     * Counts the living neighbours of the cell of the species passed in.
+     * 
+     * @param species The species of the neighbours to be counted
+     * @return The number of living neighbours of that species
+     */
+    protected int countLivingNeighboursBySpecies(Species species) {
+        return field.countLivingNeighbours(index, species);
+    }
+
     /**
      * Engulfs the cell if the cell is surrounded by Helicobacter and is within the
      * probability.
      */
     protected void getEngulfedIfPossible() {
-        Random rand = Randomizer.getRandom();
+        Random rand = field.getRandom();
 
         // if the cell is not a Helicobacter
         if (getSpecies() != Species.HELICOBACTER) {
             // get number of helicobacter neighbours
-            int heliNum = getLivingNeighboursBySpecies(Species.HELICOBACTER).size();
+            int heliNum = countLivingNeighboursBySpecies(Species.HELICOBACTER);
 
-            double engulfProbability = 0.135;
+            double engulfProbability = field.getParameters().getEngulfProbability();
 
             // there is a probability that the cell is turned in to a Helicobacter if it is
             // surrounded by 1 to 3 (inclusive) Helicobacter cells
             if ((heliNum >= 1 && heliNum <= 3) && rand.nextDouble() < engulfProbability) {
                 setNextState(true);
                 setNextSpecies(Species.HELICOBACTER);
+                countFiring(RuleCounters.Event.ENGULF);
             }
         }
     }
@@ -268,10 +349,10 @@ public abstract class Cell {
      * probability.
      */
     protected void getInfectedIfPossible() {
-        Random rand = new Random();
+        Random rand = field.getRandom();
 
-        // get all the infected neighbours
-        List<Cell> infectedNeighbours = getLivingNeighboursBySpecies(Species.INFECTED);
+        // count the infected neighbours
+        int infectedNum = countLivingNeighboursBySpecies(Species.INFECTED);
 
         // every generation, Helicobacter infection rate decreased by 0.5%
         if (getSpecies() == Species.HELICOBACTER) {
@@ -281,30 +362,63 @@ public abstract class Cell {
         // if the cell is not infected
         if (getSpecies() != Species.INFECTED) {
             // if the cell is surrounded by more than one infected neighbour
-            if (infectedNeighbours.size() >= 1) {
+            if (infectedNum >= 1) {
                 // there is a chance that the cell is infected
                 if (rand.nextDouble() < infectRate) {
                     setNextState(true);
                     setNextSpecies(Species.INFECTED);
+                    countFiring(RuleCounters.Event.INFECTION);
                 }
             }
         }
 
         // Allow infected cells to devour dead cells which aren't Helicobacters
         if (!(isAlive()) && getSpecies() != Species.HELICOBACTER) {
-            // get the number of infected neighbours
-            int infectedNum = getLivingNeighboursBySpecies(Species.INFECTED).size();
-
             // if there are more than 3 infected neighbours,
             // there is a probability for that cell to become infected
             if (infectedNum > 3 && rand.nextDouble() < 0.11) {
                 setNextState(true);
                 setNextSpecies(Species.INFECTED);
+                countFiring(RuleCounters.Event.INFECTION);
             }
         }
 
     }
 
+    /**
+     * Count a rule firing for this cell, if the field's rule firings are being
+     * counted. This counts the decision; a rule applied later in the same
+     * generation may still overrule it.
+     * 
+     * @param event The decision made.
+     */
+    protected void countFiring(RuleCounters.Event event) {
+        RuleCounters counters = field.getRuleCounters();
+        if (counters != null) {
+            counters.count(event);
+        }
+    }
+
+    /**
+     * Overrule the decision made for the next generation where the substances
+     * over the field make it impossible: no cell is born or lives on where
+     * there is too little nutrient, and none but infected cells where there is
+     * too much toxin.
+     */
+    protected void respondToLayers() {
+        if (!nextAlive) {
+            return;
+        }
+        ChemicalLayer nutrient = field.getLayer(ChemicalLayer.NUTRIENT);
+        if (nutrient != null && nutrient.get(index) < nutrient.getThreshold()) {
+            setNextState(false);
+        }
+        ChemicalLayer toxin = field.getLayer(ChemicalLayer.TOXIN);
+        if (toxin != null && nextSpecies != Species.INFECTED && toxin.get(index) > toxin.getThreshold()) {
+            setNextState(false);
+        }
+    }
+
     /**
      * Changes the cell becomes a different cell when two different, neighbouring
      * cells collide.
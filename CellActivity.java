@@ -0,0 +1,177 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Per-location counters of how active the field has been: how long each
+ * cell has been alive, how often it has flipped between alive and dead and
+ * how often it has been infected. The counters are plain int arrays indexed
+ * like the field.
+ *
+ * Only locations that changed need updating: ages are kept as the
+ * generation each cell last came alive, so a cell that stays alive costs
+ * nothing. The simulator passes in the list of changes it already makes
+ * for its viewers.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.15
+ */
+
+public class CellActivity {
+    // Identifies a file written by write(), ahead of its header.
+    public static final int FILE_MAGIC = 0x48454154; // "HEAT"
+
+    /**
+     * The counters that can be read or shown as a heatmap.
+     */
+    public enum Metric {
+        AGE("Age"), FLIPS("Flips"), INFECTIONS("Infections");
+
+        private final String name;
+
+        Metric(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final int depth, width;
+
+    // The generation the counters are up to date with.
+    private int generation;
+
+    // The state code of each location as last seen.
+    private final byte[] states;
+
+    // The generation each living cell last came alive in.
+    private final int[] birthGenerations;
+
+    // Times each location flipped between alive and dead, or was infected.
+    private final int[] flips;
+    private final int[] infections;
+
+    /**
+     * Create counters for a field of the given size.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public CellActivity(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        states = new byte[depth * width];
+        birthGenerations = new int[depth * width];
+        flips = new int[depth * width];
+        infections = new int[depth * width];
+    }
+
+    /**
+     * Start counting afresh from the field as it is now, e.g. after a reset.
+     * Cells alive now count as born in this generation.
+     *
+     * @param generation The generation the field is at.
+     * @param field      The field, of the size the counters were created for.
+     */
+    public void reset(int generation, Field field) {
+        this.generation = generation;
+        for (int index = 0; index < states.length; index++) {
+            states[index] = (byte) CellState.of(field.getObjectAt(index));
+            birthGenerations[index] = generation;
+            flips[index] = 0;
+            infections[index] = 0;
+        }
+    }
+
+    /**
+     * Count the changes of a generation.
+     *
+     * @param generation The generation the changes lead to.
+     * @param indices    The indices of the locations that changed.
+     * @param newStates  The state code of each location after the change.
+     * @param count      How many of the entries are in use.
+     */
+    public void record(int generation, int[] indices, byte[] newStates, int count) {
+        this.generation = generation;
+        for (int i = 0; i < count; i++) {
+            int index = indices[i];
+            int oldState = states[index];
+            int newState = newStates[i];
+            states[index] = (byte) newState;
+
+            boolean wasAlive = CellState.isAlive(oldState);
+            boolean alive = CellState.isAlive(newState);
+            if (alive != wasAlive) {
+                flips[index]++;
+                if (alive) {
+                    birthGenerations[index] = generation;
+                }
+            }
+            if (alive && CellState.species(newState) == Species.INFECTED
+                    && (!wasAlive || CellState.species(oldState) != Species.INFECTED)) {
+                infections[index]++;
+            }
+        }
+    }
+
+    /**
+     * @param metric The counter to read.
+     * @param index  The index of a location.
+     * @return The counter at that location; the age of a dead cell is 0.
+     */
+    public int get(Metric metric, int index) {
+        switch (metric) {
+            case AGE:
+                return CellState.isAlive(states[index]) ? generation - birthGenerations[index] + 1 : 0;
+            case FLIPS:
+                return flips[index];
+            default:
+                return infections[index];
+        }
+    }
+
+    /**
+     * @param metric The counter to read.
+     * @return The largest value of the counter over the field.
+     */
+    public int getMax(Metric metric) {
+        int max = 0;
+        for (int index = 0; index < states.length; index++) {
+            max = Math.max(max, get(metric, index));
+        }
+        return max;
+    }
+
+    /**
+     * Write one counter as a binary matrix: the magic number, then the depth,
+     * width, generation and metric ordinal, then the counter of every
+     * location in row-major order, all as big-endian 32-bit ints.
+     *
+     * @param metric The counter to write.
+     * @param file   The file to write to.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Metric metric, String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(depth);
+            out.writeInt(width);
+            out.writeInt(generation);
+            out.writeInt(metric.ordinal());
+            for (int index = 0; index < states.length; index++) {
+                out.writeInt(get(metric, index));
+            }
+        }
+    }
+
+    /**
+     * @return The generation the counters are up to date with.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+}
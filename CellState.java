@@ -0,0 +1,64 @@
+/**
+ * Packs the observable state of a cell - its species and whether it is
+ * alive - into a single small integer, so that the state of a whole field
+ * can be compared, hashed and stored compactly. The alive flag is held in
+ * the lowest bit and the species ordinal in the bits above it.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.02
+ */
+
+public class CellState {
+    // The number of distinct state codes.
+    public static final int STATE_COUNT = Species.values().length * 2;
+
+    // Species ordinals in code order, to avoid copying values() on lookup.
+    private static final Species[] SPECIES = Species.values();
+
+    /**
+     * Utility class; not to be instantiated.
+     */
+    private CellState() {
+    }
+
+    /**
+     * Encode a species and alive flag.
+     *
+     * @param species The species of the cell.
+     * @param alive   Whether the cell is alive.
+     * @return The state code.
+     */
+    public static int encode(Species species, boolean alive) {
+        return (species.ordinal() << 1) | (alive ? 1 : 0);
+    }
+
+    /**
+     * Encode the current state of a cell. A missing cell is treated as an
+     * empty, dead location.
+     *
+     * @param cell The cell, or null.
+     * @return The state code.
+     */
+    public static int of(Cell cell) {
+        if (cell == null) {
+            return encode(Species.EMPTYCELL, false);
+        }
+        return encode(cell.getSpecies(), cell.isAlive());
+    }
+
+    /**
+     * @param code A state code.
+     * @return The species held in the code.
+     */
+    public static Species species(int code) {
+        return SPECIES[code >> 1];
+    }
+
+    /**
+     * @param code A state code.
+     * @return Whether the code represents a living cell.
+     */
+    public static boolean isAlive(int code) {
+        return (code & 1) != 0;
+    }
+}
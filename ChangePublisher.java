@@ -0,0 +1,403 @@
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes what changed in each generation of a simulation as a ChangeSet,
+ * so that views, statistics and other tools can follow the field from its
+ * changes rather than rescanning every location.
+ *
+ * Each subscriber has its own bounded buffer and delivery thread, and
+ * receives change sets only as fast as it requests them. What happens when
+ * a subscriber's buffer is full is chosen when it subscribes: the
+ * simulation can wait for it (BLOCK), the new change set can be thrown
+ * away (DROP), or it can be merged into the last one buffered (COALESCE),
+ * which loses no changes, only the generations in between.
+ *
+ * A subscriber that joins part way through a run first receives the whole
+ * field as published so far, as changes from the empty field the publisher
+ * starts from, so that it has something to apply the later changes to.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.09
+ */
+
+public class ChangePublisher implements Flow.Publisher<ChangeSet>, AutoCloseable {
+    /**
+     * What to do with a change set when a subscriber's buffer is full.
+     */
+    public enum OverflowPolicy {
+        // wait until the subscriber makes room, slowing the simulation
+        BLOCK,
+        // discard the new change set, so the subscriber misses its changes
+        DROP,
+        // merge the new change set into the last one buffered
+        COALESCE
+    }
+
+    // Buffer size and policy of subscribers that do not choose their own.
+    private static final int DEFAULT_CAPACITY = 32;
+    private static final OverflowPolicy DEFAULT_POLICY = OverflowPolicy.COALESCE;
+
+    // The state code of every location as of the last published change set,
+    // and the generation it was published for. Guarded by this publisher's
+    // lock, so that a new subscriber's first change set fits the next one.
+    private final byte[] states;
+    private int generation;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    // Change sets thrown away by DROP subscribers.
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Create a publisher for a field of the given size, starting out empty.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public ChangePublisher(int depth, int width) {
+        states = new byte[depth * width];
+    }
+
+    /**
+     * Run a headless simulation and follow its population from the published
+     * change sets alone.
+     * Usage: ChangePublisher [generations] [depth] [width] [seed]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 110;
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 140;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1122;
+
+        int[] population = new int[Species.values().length];
+        Object done = new Object();
+        boolean[] finished = { false };
+
+        Simulator simulator = new Simulator(depth, width, new SimulationParameters(), seed);
+        try (ChangePublisher publisher = new ChangePublisher(depth, width)) {
+            publisher.subscribe(new Flow.Subscriber<ChangeSet>() {
+                private Flow.Subscription subscription;
+
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                public void onNext(ChangeSet changes) {
+                    for (int i = 0; i < changes.size(); i++) {
+                        if (CellState.isAlive(changes.getOldState(i))) {
+                            population[CellState.species(changes.getOldState(i)).ordinal()]--;
+                        }
+                        if (CellState.isAlive(changes.getNewState(i))) {
+                            population[CellState.species(changes.getNewState(i)).ordinal()]++;
+                        }
+                    }
+                    subscription.request(1);
+                }
+
+                public void onError(Throwable throwable) {
+                    throwable.printStackTrace();
+                }
+
+                public void onComplete() {
+                    synchronized (done) {
+                        finished[0] = true;
+                        done.notifyAll();
+                    }
+                }
+            });
+
+            simulator.setChangePublisher(publisher);
+            simulator.reset(true);
+            simulator.simulateHeadless(generations, null);
+        }
+
+        synchronized (done) {
+            while (!finished[0]) {
+                done.wait();
+            }
+        }
+        GenerationRecord record = simulator.getLatestRecord();
+        for (Species species : Species.values()) {
+            System.out.println(species + ": " + population[species.ordinal()] + " from changes, "
+                    + (record == null ? 0 : record.getPopulation(species)) + " simulated");
+        }
+    }
+
+    /**
+     * Subscribe with the default buffer size and the COALESCE policy.
+     *
+     * @param subscriber The subscriber to deliver change sets to.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeSet> subscriber) {
+        subscribe(subscriber, DEFAULT_CAPACITY, DEFAULT_POLICY);
+    }
+
+    /**
+     * Subscribe with a buffer of the given size and policy for when it is
+     * full. The subscriber is told of its subscription on its own delivery
+     * thread. It first receives the field as published so far, as a reset
+     * from the empty field, and then every change set published after it.
+     *
+     * @param subscriber The subscriber to deliver change sets to.
+     * @param capacity   How many change sets may wait for the subscriber.
+     * @param policy     What to do with a change set when the buffer is full.
+     */
+    public synchronized void subscribe(Flow.Subscriber<? super ChangeSet> subscriber, int capacity,
+            OverflowPolicy policy) {
+        Subscription subscription = new Subscription(subscriber, Math.max(capacity, 1), policy);
+        subscription.offer(snapshot());
+        if (closed) {
+            subscription.complete();
+        } else {
+            subscriptions.add(subscription);
+        }
+        subscription.start();
+    }
+
+    /**
+     * Publish the changes made by one generation. The changed indices must be
+     * in increasing order.
+     *
+     * @param generation The generation that was just simulated.
+     * @param indices    The indices (row * width + col) of changed locations.
+     * @param newStates  The new state code of each changed location.
+     * @param count      The number of changes in the arrays.
+     */
+    public synchronized void publish(int generation, int[] indices, byte[] newStates, int count) {
+        int[] changedIndices = new int[count];
+        byte[] oldStates = new byte[count];
+        byte[] changedStates = new byte[count];
+        for (int i = 0; i < count; i++) {
+            changedIndices[i] = indices[i];
+            oldStates[i] = states[indices[i]];
+            changedStates[i] = newStates[i];
+            states[indices[i]] = newStates[i];
+        }
+        this.generation = generation;
+        offer(new ChangeSet(generation, false, changedIndices, oldStates, changedStates));
+    }
+
+    /**
+     * Publish the whole field after it has been reset, as the changes from
+     * the state last published.
+     *
+     * @param generation The generation the field has been reset to.
+     * @param field      The field.
+     */
+    public synchronized void publishAll(int generation, Field field) {
+        int count = 0;
+        for (int index = 0; index < states.length; index++) {
+            if (states[index] != CellState.of(field.getObjectAt(index))) {
+                count++;
+            }
+        }
+
+        int[] changedIndices = new int[count];
+        byte[] oldStates = new byte[count];
+        byte[] newStates = new byte[count];
+        int i = 0;
+        for (int index = 0; index < states.length; index++) {
+            byte state = (byte) CellState.of(field.getObjectAt(index));
+            if (states[index] != state) {
+                changedIndices[i] = index;
+                oldStates[i] = states[index];
+                newStates[i] = state;
+                states[index] = state;
+                i++;
+            }
+        }
+        this.generation = generation;
+        offer(new ChangeSet(generation, true, changedIndices, oldStates, newStates));
+    }
+
+    /**
+     * The field as published so far, as a reset from the empty field the
+     * publisher starts from.
+     */
+    private ChangeSet snapshot() {
+        int count = 0;
+        for (byte state : states) {
+            if (state != 0) {
+                count++;
+            }
+        }
+
+        int[] changedIndices = new int[count];
+        byte[] newStates = new byte[count];
+        int i = 0;
+        for (int index = 0; index < states.length; index++) {
+            if (states[index] != 0) {
+                changedIndices[i] = index;
+                newStates[i] = states[index];
+                i++;
+            }
+        }
+        return new ChangeSet(generation, true, changedIndices, new byte[count], newStates);
+    }
+
+    /**
+     * @return How many change sets have been thrown away because a DROP
+     *         subscriber's buffer was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stop publishing. Every subscriber is still delivered what it has
+     * buffered, then told that the stream is complete.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * Hand a change set to every subscriber.
+     */
+    private void offer(ChangeSet changes) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(changes);
+        }
+    }
+
+    /**
+     * One subscriber with its own buffer of change sets, outstanding demand
+     * and delivery thread.
+     */
+    private class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ChangeSet> subscriber;
+        private final int capacity;
+        private final OverflowPolicy policy;
+
+        // Guarded by this subscription's lock.
+        private final ArrayDeque<ChangeSet> buffer = new ArrayDeque<>();
+        private long demand;
+        private boolean cancelled, completing;
+
+        private Subscription(Flow.Subscriber<? super ChangeSet> subscriber, int capacity, OverflowPolicy policy) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        /**
+         * Start the thread that delivers to this subscriber.
+         */
+        private void start() {
+            Thread delivery = new Thread(this::deliveryLoop, "change-subscriber");
+            delivery.setDaemon(true);
+            delivery.start();
+        }
+
+        /**
+         * Buffer a change set, applying the overflow policy if the buffer is
+         * full.
+         */
+        private synchronized void offer(ChangeSet changes) {
+            while (buffer.size() >= capacity && !cancelled) {
+                switch (policy) {
+                    case DROP:
+                        dropped.incrementAndGet();
+                        return;
+                    case COALESCE:
+                        buffer.addLast(buffer.pollLast().followedBy(changes));
+                        notifyAll();
+                        return;
+                    default:
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                }
+            }
+            if (!cancelled) {
+                buffer.addLast(changes);
+                notifyAll();
+            }
+        }
+
+        /**
+         * Finish the stream once the buffer has been delivered.
+         */
+        private synchronized void complete() {
+            completing = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("The number requested must be positive."));
+                return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            buffer.clear();
+            subscriptions.remove(this);
+            notifyAll();
+        }
+
+        /**
+         * Deliver buffered change sets as the subscriber asks for them.
+         */
+        private void deliveryLoop() {
+            subscriber.onSubscribe(this);
+            while (true) {
+                ChangeSet next;
+                synchronized (this) {
+                    while (!cancelled && (buffer.isEmpty() || demand == 0) && !(completing && buffer.isEmpty())) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (cancelled) {
+                        return;
+                    }
+                    if (buffer.isEmpty()) {
+                        break; // completing, with nothing left to deliver
+                    }
+                    next = buffer.pollFirst();
+                    demand--;
+                    // a blocked publisher may now go on
+                    notifyAll();
+                }
+
+                try {
+                    subscriber.onNext(next);
+                } catch (RuntimeException e) {
+                    // a subscriber that throws is told so, and treated as
+                    // having cancelled
+                    try {
+                        subscriber.onError(e);
+                    } finally {
+                        cancel();
+                    }
+                    return;
+                }
+            }
+            subscriber.onComplete();
+        }
+    }
+}
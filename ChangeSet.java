@@ -0,0 +1,133 @@
+import java.util.Arrays;
+
+/**
+ * The locations whose state changed between two points of a simulation,
+ * usually one generation, with the state of each before and after. Indices
+ * are in increasing order and states are CellState codes. A change set is
+ * never modified once published, so it can be handed to other threads.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.09
+ */
+
+public class ChangeSet {
+    private final int generation;
+
+    // Whether the field was reset, so the generation count started again.
+    private final boolean reset;
+
+    private final int[] indices;
+    private final byte[] oldStates, newStates;
+
+    /**
+     * Create a change set from arrays it takes ownership of.
+     *
+     * @param generation The generation the field is at after the changes.
+     * @param reset      Whether the changes come from resetting the field.
+     * @param indices    The changed indices (row * width + col), in
+     *                   increasing order.
+     * @param oldStates  The state code of each location before the change.
+     * @param newStates  The state code of each location after the change.
+     */
+    public ChangeSet(int generation, boolean reset, int[] indices, byte[] oldStates, byte[] newStates) {
+        this.generation = generation;
+        this.reset = reset;
+        this.indices = indices;
+        this.oldStates = oldStates;
+        this.newStates = newStates;
+    }
+
+    /**
+     * Combine this change set with the one that followed it into a single
+     * change set going from the state before this one to the state after the
+     * later one. Locations that changed back are left out.
+     *
+     * @param later The change set published after this one.
+     * @return The combined change set.
+     */
+    public ChangeSet followedBy(ChangeSet later) {
+        int capacity = indices.length + later.indices.length;
+        int[] mergedIndices = new int[capacity];
+        byte[] mergedOld = new byte[capacity];
+        byte[] mergedNew = new byte[capacity];
+        int count = 0;
+
+        int i = 0, j = 0;
+        while (i < indices.length || j < later.indices.length) {
+            int index;
+            byte oldState, newState;
+            if (j == later.indices.length || (i < indices.length && indices[i] < later.indices[j])) {
+                index = indices[i];
+                oldState = oldStates[i];
+                newState = newStates[i];
+                i++;
+            } else if (i == indices.length || later.indices[j] < indices[i]) {
+                index = later.indices[j];
+                oldState = later.oldStates[j];
+                newState = later.newStates[j];
+                j++;
+            } else {
+                // changed in both: from before the first to after the second
+                index = indices[i];
+                oldState = oldStates[i];
+                newState = later.newStates[j];
+                i++;
+                j++;
+            }
+            if (oldState != newState) {
+                mergedIndices[count] = index;
+                mergedOld[count] = oldState;
+                mergedNew[count] = newState;
+                count++;
+            }
+        }
+
+        return new ChangeSet(later.generation, reset || later.reset, Arrays.copyOf(mergedIndices, count),
+                Arrays.copyOf(mergedOld, count), Arrays.copyOf(mergedNew, count));
+    }
+
+    /**
+     * @return The generation the field is at after the changes.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return Whether the changes come from resetting the field.
+     */
+    public boolean isReset() {
+        return reset;
+    }
+
+    /**
+     * @return The number of changed locations.
+     */
+    public int size() {
+        return indices.length;
+    }
+
+    /**
+     * @param i Which change, from 0 to size() - 1.
+     * @return The index (row * width + col) of the changed location.
+     */
+    public int getIndex(int i) {
+        return indices[i];
+    }
+
+    /**
+     * @param i Which change, from 0 to size() - 1.
+     * @return The state code of the location before the change.
+     */
+    public int getOldState(int i) {
+        return oldStates[i];
+    }
+
+    /**
+     * @param i Which change, from 0 to size() - 1.
+     * @return The state code of the location after the change.
+     */
+    public int getNewState(int i) {
+        return newStates[i];
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Saves a headless simulation to a file and restores it, so that it carries
+ * on exactly as if it had never been stopped. Besides the size, topology
+ * and parameters, the file holds the state of the random stream and, for
+ * every cell, its class, its current and next state and its infection rate.
+ * What the simulation kept about earlier generations, such as the cycle
+ * detector, starts afresh.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.18
+ */
+
+public class Checkpoint {
+    // Magic number at the start of every checkpoint ("CCKP").
+    public static final int MAGIC = 0x43434B50;
+    public static final int VERSION = 1;
+
+    private static final Species[] SPECIES = Species.values();
+
+    /**
+     * Utility class; not to be instantiated.
+     */
+    private Checkpoint() {
+    }
+
+    /**
+     * Write a simulation to a file, replacing anything already there.
+     *
+     * @param simulator The simulation to save.
+     * @param file      The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Simulator simulator, Path file) throws IOException {
+        Field field = simulator.getField();
+        Topology topology = field.getTopology();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(field.getDepth());
+            out.writeInt(field.getWidth());
+            out.writeByte(topology.getNeighbourhood().ordinal());
+            out.writeBoolean(topology.isWrapped());
+            for (String name : SimulationParameters.NAMES) {
+                out.writeDouble(field.getParameters().get(name));
+            }
+            out.writeInt(simulator.getGeneration());
+
+            byte[] random = serialise(field.getRandom());
+            out.writeInt(random.length);
+            out.write(random);
+
+            for (int index = 0; index < field.getDepth() * field.getWidth(); index++) {
+                Cell cell = field.getObjectAt(index);
+                out.writeByte(kindOf(cell).ordinal());
+                out.writeByte(cell.getSpecies().ordinal());
+                out.writeBoolean(cell.isAlive());
+                out.writeByte(cell.getNextSpecies().ordinal());
+                out.writeBoolean(cell.getNextAlive());
+                out.writeDouble(cell.getInfectRate());
+            }
+        }
+    }
+
+    /**
+     * Restore a simulation written by write.
+     *
+     * @param file The file to read.
+     * @return A headless simulation in the state it was saved in.
+     * @throws IOException If the file cannot be read or is not a checkpoint.
+     */
+    public static Simulator read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a checkpoint: " + file);
+            }
+            int depth = in.readInt();
+            int width = in.readInt();
+            Topology topology = new Topology(depth, width, Topology.Neighbourhood.values()[in.readByte()],
+                    in.readBoolean());
+            SimulationParameters parameters = new SimulationParameters();
+            for (String name : SimulationParameters.NAMES) {
+                parameters.set(name, in.readDouble());
+            }
+            int generation = in.readInt();
+
+            byte[] random = new byte[in.readInt()];
+            in.readFully(random);
+            Simulator simulator = new Simulator(depth, width, parameters, deserialise(random), topology);
+
+            Field field = simulator.getField();
+            Cell[] cells = new Cell[depth * width];
+            for (int index = 0; index < cells.length; index++) {
+                Cell cell = Population.create(field, index, SPECIES[in.readByte()]);
+                cell.setSpecies(SPECIES[in.readByte()]);
+                cell.setState(in.readBoolean());
+                cell.setNextSpecies(SPECIES[in.readByte()]);
+                cell.setNextState(in.readBoolean());
+                cell.setInfectRate(in.readDouble());
+                cells[index] = cell;
+            }
+            simulator.restore(generation, cells);
+            return simulator;
+        }
+    }
+
+    /**
+     * The species a cell of the same class as the given one spawns as.
+     */
+    private static Species kindOf(Cell cell) {
+        if (cell instanceof Helicobacter) {
+            return Species.HELICOBACTER;
+        } else if (cell instanceof Isseria) {
+            return Species.ISSERIA;
+        }
+        return Species.MYCOPLASMA;
+    }
+
+    private static byte[] serialise(Random random) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(random);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Random deserialise(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            // nothing but the random stream itself may be read back
+            in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("java.util.Random;!*"));
+            return (Random) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("The random stream of the checkpoint cannot be restored.", e);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A concentration of some substance over the field, such as a nutrient the
+ * cells feed on or a toxin that infected cells give off. Each generation the
+ * substance spreads to neighbouring locations, part of it decays, and each
+ * location gains or loses an amount that depends on the cell there. Cell
+ * rules can read the concentration at their location.
+ *
+ * The concentrations are kept in two grids of floats: one generation's are
+ * read from one grid while the next generation's are written to the other,
+ * and the two then swap. The field is worked through in tiles of a fixed
+ * number of rows, in parallel; since no tile writes anything another tile
+ * reads, the result does not depend on how many threads share the work.
+ *
+ * Spreading uses the four orthogonal neighbours of a location, whatever the
+ * neighbourhood of the field. On a wrapped field it wraps around the edges;
+ * otherwise nothing flows across them.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.19
+ */
+
+public class ChemicalLayer {
+    // Names of the layers the cell rules respond to.
+    public static final String NUTRIENT = "nutrient";
+    public static final String TOXIN = "toxin";
+
+    // Rows stepped by one task.
+    private static final int TILE_ROWS = 32;
+
+    private final String name;
+    private final int depth, width;
+    private final boolean wrapped;
+
+    // This generation's concentrations, and the grid the next is written to.
+    private float[] current, next;
+
+    // Share of the difference from its neighbours' mean that a location
+    // evens out each generation, and share of the substance that decays.
+    private float diffusion, decay;
+
+    // Amount added at a location each generation, by the CellState code of
+    // the cell there; negative amounts are taken away.
+    private final float[] emission = new float[CellState.STATE_COUNT];
+
+    // Concentration everywhere when the layer is reset.
+    private float initial;
+
+    // The level at which the layer starts to affect the cells.
+    private float threshold;
+
+    /**
+     * Create a layer with nothing in it, which neither spreads nor decays
+     * until told to.
+     *
+     * @param name     The name the layer is looked up by.
+     * @param topology The topology of the field it lies over.
+     */
+    public ChemicalLayer(String name, Topology topology) {
+        this.name = name;
+        depth = topology.getDepth();
+        width = topology.getWidth();
+        wrapped = topology.isWrapped();
+        current = new float[depth * width];
+        next = new float[depth * width];
+    }
+
+    /**
+     * Create a nutrient layer. It is topped up everywhere at a steady rate
+     * and consumed by every living cell; cells cannot be born or live on
+     * where there is less than the threshold.
+     *
+     * @param topology The topology of the field.
+     * @return The layer, starting full.
+     */
+    public static ChemicalLayer nutrient(Topology topology) {
+        ChemicalLayer layer = new ChemicalLayer(NUTRIENT, topology);
+        layer.setDiffusion(0.2f);
+        layer.setDecay(0.02f);
+        layer.setInitial(1);
+        layer.setThreshold(0.15f);
+        for (Species species : Species.values()) {
+            layer.setEmission(species, false, 0.02f);
+            layer.setEmission(species, true, -0.03f);
+        }
+        layer.reset();
+        return layer;
+    }
+
+    /**
+     * Create a toxin layer. Living infected cells give it off, and other
+     * cells cannot be born or live on where there is more than the
+     * threshold.
+     *
+     * @param topology The topology of the field.
+     * @return The layer, starting empty.
+     */
+    public static ChemicalLayer toxin(Topology topology) {
+        ChemicalLayer layer = new ChemicalLayer(TOXIN, topology);
+        layer.setDiffusion(0.3f);
+        layer.setDecay(0.1f);
+        layer.setThreshold(0.6f);
+        layer.setEmission(Species.INFECTED, true, 0.1f);
+        return layer;
+    }
+
+    /**
+     * Run a headless simulation with a nutrient and a toxin layer, printing
+     * the population and the amount of each substance as it goes.
+     * Usage: ChemicalLayer [generations] [depth] [width] [seed]
+     */
+    public static void main(String[] args) {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 110;
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 140;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1122;
+
+        Simulator simulator = new Simulator(depth, width, new SimulationParameters(), seed);
+        Field field = simulator.getField();
+        ChemicalLayer nutrient = nutrient(field.getTopology());
+        ChemicalLayer toxin = toxin(field.getTopology());
+        field.addLayer(nutrient);
+        field.addLayer(toxin);
+        simulator.reset(true);
+
+        long start = System.nanoTime();
+        for (int i = 1; i <= generations; i++) {
+            simulator.simOneGeneration();
+            if (i % 100 == 0 || i == generations) {
+                System.out.printf("Generation %d: %d living, nutrient %.1f, toxin %.1f%n", simulator.getGeneration(),
+                        simulator.getLatestRecord().getTotalPopulation(), nutrient.getTotal(), toxin.getTotal());
+            }
+        }
+        System.out.printf("%.0f generations per second%n", generations / ((System.nanoTime() - start) / 1e9));
+    }
+
+    /**
+     * Work out the next generation's concentrations from this generation's
+     * and the cells now in the field, and make them current.
+     *
+     * @param field The field the layer lies over.
+     */
+    public void step(Field field) {
+        int tiles = (depth + TILE_ROWS - 1) / TILE_ROWS;
+        IntStream.range(0, tiles).parallel().forEach(tile -> stepTile(field, tile));
+        float[] swap = current;
+        current = next;
+        next = swap;
+    }
+
+    /**
+     * Step the rows of one tile.
+     */
+    private void stepTile(Field field, int tile) {
+        float[] from = current;
+        float[] to = next;
+        for (int row = tile * TILE_ROWS; row < Math.min((tile + 1) * TILE_ROWS, depth); row++) {
+            // rows above and below, or this row where nothing flows across the edge
+            int above = row > 0 ? row - 1 : wrapped ? depth - 1 : row;
+            int below = row < depth - 1 ? row + 1 : wrapped ? 0 : row;
+            for (int col = 0; col < width; col++) {
+                int left = col > 0 ? col - 1 : wrapped ? width - 1 : col;
+                int right = col < width - 1 ? col + 1 : wrapped ? 0 : col;
+
+                int index = row * width + col;
+                float here = from[index];
+                float mean = (from[above * width + col] + from[below * width + col] + from[row * width + left]
+                        + from[row * width + right]) * 0.25f;
+                float value = (here + diffusion * (mean - here)) * (1 - decay)
+                        + emission[CellState.of(field.getObjectAt(index))];
+                to[index] = Math.max(value, 0);
+            }
+        }
+    }
+
+    /**
+     * Set every location back to the initial concentration.
+     */
+    public void reset() {
+        Arrays.fill(current, initial);
+    }
+
+    /**
+     * @return The name the layer is looked up by.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param index The index of a location (row * width + col).
+     * @return The concentration there.
+     */
+    public float get(int index) {
+        return current[index];
+    }
+
+    /**
+     * @param row A row of the field.
+     * @param col A column of the field.
+     * @return The concentration there.
+     */
+    public float get(int row, int col) {
+        return current[row * width + col];
+    }
+
+    /**
+     * Set the concentration at a location, e.g. to seed a patch of nutrient.
+     *
+     * @param index The index of the location (row * width + col).
+     * @param value The concentration, at least 0.
+     */
+    public void set(int index, float value) {
+        current[index] = Math.max(value, 0);
+    }
+
+    /**
+     * @return The total amount of the substance over the field.
+     */
+    public double getTotal() {
+        double total = 0;
+        for (float value : current) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * @param diffusion The share, from 0 to 1, of the difference from its
+     *                  neighbours' mean that a location evens out each
+     *                  generation.
+     */
+    public void setDiffusion(float diffusion) {
+        if (diffusion < 0 || diffusion > 1) {
+            throw new IllegalArgumentException("The diffusion must be between 0 and 1: " + diffusion);
+        }
+        this.diffusion = diffusion;
+    }
+
+    /**
+     * @param decay The share, from 0 to 1, of the substance that decays each
+     *              generation.
+     */
+    public void setDecay(float decay) {
+        if (decay < 0 || decay > 1) {
+            throw new IllegalArgumentException("The decay must be between 0 and 1: " + decay);
+        }
+        this.decay = decay;
+    }
+
+    /**
+     * Set the amount added each generation at a location holding a cell of
+     * the given species and state.
+     *
+     * @param species The species of the cell.
+     * @param alive   Whether the cell is alive.
+     * @param amount  The amount added; negative to take some away.
+     */
+    public void setEmission(Species species, boolean alive, float amount) {
+        emission[CellState.encode(species, alive)] = amount;
+    }
+
+    /**
+     * @param initial The concentration everywhere when the layer is reset.
+     */
+    public void setInitial(float initial) {
+        this.initial = initial;
+    }
+
+    /**
+     * @param threshold The level at which the layer starts to affect cells.
+     */
+    public void setThreshold(float threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return The level at which the layer starts to affect cells.
+     */
+    public float getThreshold() {
+        return threshold;
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the connected clusters of living cells of each species. Two living
+ * cells of the same species are in the same cluster if they neighbour each
+ * other in the field's topology, directly or through other cells of the
+ * cluster.
+ *
+ * The field is split into bands of rows which are labelled in parallel,
+ * each with its own union-find forest that only links locations inside the
+ * band. A short serial pass then joins the forests across the rows where
+ * bands meet, and a last parallel pass resolves every location to its
+ * cluster.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.13
+ */
+
+public class ClusterAnalyser {
+    // Size buckets of the histograms; bucket k holds sizes 2^k to 2^(k+1) - 1.
+    private static final int BUCKETS = 32;
+
+    // Rows per band, at the least; small fields get a single band.
+    private static final int MIN_BAND_ROWS = 32;
+
+    private static final Species[] SPECIES = Species.values();
+
+    private final int depth, width;
+    private final Topology topology;
+
+    // The rows where each band starts, with the end of the field last.
+    private final int[] bandStarts;
+
+    // Species ordinal + 1 of the living cell at each location, or 0.
+    private final byte[] codes;
+
+    // Union-find parents, and the root each location resolves to.
+    private final int[] parent;
+    private final int[] roots;
+
+    // Cells in the cluster rooted at each location.
+    private final int[] sizes;
+
+    /**
+     * Create an analyser for fields with the given topology.
+     *
+     * @param topology Which locations neighbour each other.
+     */
+    public ClusterAnalyser(Topology topology) {
+        this.topology = topology;
+        depth = topology.getDepth();
+        width = topology.getWidth();
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int bands = Math.max(Math.min(threads * 4, depth / MIN_BAND_ROWS), 1);
+        bandStarts = new int[bands + 1];
+        for (int band = 0; band <= bands; band++) {
+            bandStarts[band] = (int) ((long) depth * band / bands);
+        }
+
+        codes = new byte[depth * width];
+        parent = new int[depth * width];
+        roots = new int[depth * width];
+        sizes = new int[depth * width];
+    }
+
+    /**
+     * Run a headless simulation and write the clusters of every generation to
+     * a CSV file.
+     * Usage: ClusterAnalyser output-file [generations] [depth] [width] [seed]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ClusterAnalyser <output-file> [generations] [depth] [width] [seed]");
+            return;
+        }
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 110;
+        int width = args.length > 3 ? Integer.parseInt(args[3]) : 140;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1122;
+
+        Topology topology = new Topology(depth, width);
+        Simulator simulator = new Simulator(depth, width, new SimulationParameters(), seed, topology);
+        ClusterAnalyser analyser = new ClusterAnalyser(topology);
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(args[0]))) {
+            out.print("generation");
+            for (Species species : SPECIES) {
+                if (species != Species.EMPTYCELL) {
+                    String name = species.toString().toLowerCase();
+                    out.print("," + name + "_clusters," + name + "_largest," + name + "_mean," + name + "_sizes");
+                }
+            }
+            out.println();
+
+            simulator.reset(true);
+            long start = System.nanoTime();
+            simulator.simulateHeadless(generations, record -> {
+                ClusterReport report = analyser.analyse(simulator.getField(), record.getGeneration());
+                out.print(report.getGeneration());
+                for (Species species : SPECIES) {
+                    if (species != Species.EMPTYCELL) {
+                        out.printf(",%d,%d,%.2f,%s", report.getClusterCount(species),
+                                report.getLargestCluster(species), report.getMeanClusterSize(species),
+                                histogramText(report, species));
+                    }
+                }
+                out.println();
+            });
+            System.out.printf("Analysed %d generations in %d ms%n", simulator.getGeneration(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Describe the size histogram of a species as "smallest size:clusters"
+     * pairs for the non-empty buckets, separated by semicolons.
+     */
+    private static String histogramText(ClusterReport report, Species species) {
+        StringBuilder text = new StringBuilder();
+        for (int bucket = 0; bucket < report.getBucketCount(); bucket++) {
+            int clusters = report.getClustersInBucket(species, bucket);
+            if (clusters > 0) {
+                if (text.length() > 0) {
+                    text.append(';');
+                }
+                text.append(1L << bucket).append(':').append(clusters);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Find the clusters of every species in the field.
+     *
+     * @param field      The field, with the topology this analyser was made for.
+     * @param generation The generation the field is at, for the report.
+     * @return The clusters found.
+     */
+    public ClusterReport analyse(Field field, int generation) {
+        int bands = bandStarts.length - 1;
+
+        // label each band on its own
+        IntStream.range(0, bands).parallel().forEach(band -> labelBand(field, band));
+
+        // join clusters across the rows where bands meet
+        int[] neighbours = new int[topology.getMaxNeighbours()];
+        for (int band = 0; band < bands; band++) {
+            joinAcrossBand(bandStarts[band], band, neighbours);
+            if (bandStarts[band + 1] - 1 > bandStarts[band]) {
+                joinAcrossBand(bandStarts[band + 1] - 1, band, neighbours);
+            }
+        }
+
+        // resolve every location to its root, without writing to the forest so
+        // the bands can be done at once
+        IntStream.range(0, bands).parallel().forEach(this::resolveBand);
+
+        // tally clusters by root
+        int[] clusterCounts = new int[SPECIES.length];
+        int[] largest = new int[SPECIES.length];
+        int[] livingCells = new int[SPECIES.length];
+        int[][] histograms = new int[SPECIES.length][BUCKETS];
+
+        for (int index = 0; index < codes.length; index++) {
+            if (codes[index] != 0) {
+                sizes[roots[index]]++;
+            }
+        }
+        for (int index = 0; index < codes.length; index++) {
+            if (codes[index] != 0 && roots[index] == index) {
+                int s = codes[index] - 1;
+                int size = sizes[index];
+                clusterCounts[s]++;
+                livingCells[s] += size;
+                largest[s] = Math.max(largest[s], size);
+                histograms[s][31 - Integer.numberOfLeadingZeros(size)]++;
+            }
+        }
+        return new ClusterReport(generation, clusterCounts, largest, livingCells, histograms);
+    }
+
+    /**
+     * Read the cells of a band and link each living cell to its neighbours of
+     * the same species that lie within the band.
+     */
+    private void labelBand(Field field, int band) {
+        int from = bandStarts[band] * width;
+        int to = bandStarts[band + 1] * width;
+        for (int index = from; index < to; index++) {
+            Cell cell = field.getObjectAt(index);
+            codes[index] = (byte) (cell != null && cell.isAlive() ? cell.getSpecies().ordinal() + 1 : 0);
+            parent[index] = index;
+            sizes[index] = 0;
+        }
+
+        int[] neighbours = new int[topology.getMaxNeighbours()];
+        for (int index = from; index < to; index++) {
+            if (codes[index] == 0) {
+                continue;
+            }
+            int count = topology.neighbours(index, neighbours);
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbours[i];
+                if (neighbour >= from && neighbour < to && codes[neighbour] == codes[index]) {
+                    union(index, neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Link the living cells of one row at the edge of a band to their
+     * neighbours of the same species in other bands.
+     */
+    private void joinAcrossBand(int row, int band, int[] neighbours) {
+        int from = bandStarts[band] * width;
+        int to = bandStarts[band + 1] * width;
+        for (int index = row * width; index < (row + 1) * width; index++) {
+            if (codes[index] == 0) {
+                continue;
+            }
+            int count = topology.neighbours(index, neighbours);
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbours[i];
+                if ((neighbour < from || neighbour >= to) && codes[neighbour] == codes[index]) {
+                    union(index, neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the root of every living cell in a band.
+     */
+    private void resolveBand(int band) {
+        for (int index = bandStarts[band] * width; index < bandStarts[band + 1] * width; index++) {
+            if (codes[index] != 0) {
+                int root = index;
+                while (parent[root] != root) {
+                    root = parent[root];
+                }
+                roots[index] = root;
+            }
+        }
+    }
+
+    /**
+     * Join the trees of two locations, making the smaller root the parent so
+     * the result does not depend on the order of the joins.
+     */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    /**
+     * Find the root of a location's tree, halving the path on the way.
+     */
+    private int find(int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * The clusters of one generation: for each species, how many connected
+ * groups of living cells there are and how their sizes are distributed.
+ * Sizes are grouped into power-of-two buckets, bucket k holding clusters of
+ * 2^k to 2^(k+1) - 1 cells.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.13
+ */
+
+public class ClusterReport {
+    private final int generation;
+
+    // Indexed by species ordinal.
+    private final int[] clusterCounts;
+    private final int[] largest;
+    private final int[] livingCells;
+    private final int[][] sizeHistograms;
+
+    /**
+     * Create a report from arrays indexed by species ordinal, which it takes
+     * ownership of.
+     *
+     * @param generation     The generation analysed.
+     * @param clusterCounts  The number of clusters of each species.
+     * @param largest        The size of the largest cluster of each species.
+     * @param livingCells    The number of living cells of each species.
+     * @param sizeHistograms The number of clusters in each size bucket.
+     */
+    public ClusterReport(int generation, int[] clusterCounts, int[] largest, int[] livingCells,
+            int[][] sizeHistograms) {
+        this.generation = generation;
+        this.clusterCounts = clusterCounts;
+        this.largest = largest;
+        this.livingCells = livingCells;
+        this.sizeHistograms = sizeHistograms;
+    }
+
+    /**
+     * @return The generation analysed.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param species A species.
+     * @return The number of clusters of living cells of that species.
+     */
+    public int getClusterCount(Species species) {
+        return clusterCounts[species.ordinal()];
+    }
+
+    /**
+     * @param species A species.
+     * @return The number of cells in its largest cluster, or 0 if it has none.
+     */
+    public int getLargestCluster(Species species) {
+        return largest[species.ordinal()];
+    }
+
+    /**
+     * @param species A species.
+     * @return The mean number of cells in its clusters, or 0 if it has none.
+     */
+    public double getMeanClusterSize(Species species) {
+        int count = clusterCounts[species.ordinal()];
+        return count == 0 ? 0 : (double) livingCells[species.ordinal()] / count;
+    }
+
+    /**
+     * @param species A species.
+     * @param bucket  A size bucket, holding clusters of 2^bucket to
+     *                2^(bucket + 1) - 1 cells.
+     * @return The number of clusters of that species in the bucket.
+     */
+    public int getClustersInBucket(Species species, int bucket) {
+        int[] histogram = sizeHistograms[species.ordinal()];
+        return bucket < histogram.length ? histogram[bucket] : 0;
+    }
+
+    /**
+     * @return The number of size buckets.
+     */
+    public int getBucketCount() {
+        return sizeHistograms[0].length;
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.Random;
+
+/**
+ * Runs an optimised engine in lockstep with the object-based Simulator,
+ * which serves as the reference for what the rules mean. Both start from
+ * the same field and from random streams in the same state. After every
+ * generation their state hashes are compared, and on the first difference
+ * the fields are compared location by location to find where they diverged.
+ *
+ * Run from the command line it is a fuzzing job: every run picks a random
+ * field size, topology, set of parameters and seed, and the job stops at the
+ * first divergence with what is needed to reproduce it.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.16
+ */
+
+public class CrossCheck {
+    // Largest depth and width of a fuzzed field.
+    private static final int MAX_SIZE = 120;
+
+    /**
+     * Fuzz random fields until a divergence is found or the runs are done.
+     * Usage: CrossCheck [runs (0 for no limit)] [generations] [seed]
+     */
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        System.out.println("Fuzzing with seed " + seed);
+
+        Random fuzz = new Random(seed);
+        for (int run = 1; runs == 0 || run <= runs; run++) {
+            int depth = 1 + fuzz.nextInt(MAX_SIZE);
+            int width = 1 + fuzz.nextInt(MAX_SIZE);
+            Topology.Neighbourhood[] neighbourhoods = Topology.Neighbourhood.values();
+            Topology.Neighbourhood neighbourhood = neighbourhoods[fuzz.nextInt(neighbourhoods.length)];
+            boolean wrapped = fuzz.nextBoolean();
+            if (wrapped && neighbourhood == Topology.Neighbourhood.HEXAGONAL && depth % 2 != 0) {
+                // wrapped hexagonal rows only line up, and neighbours only
+                // neighbour each other both ways, with an even depth
+                depth++;
+            }
+            Topology topology = new Topology(depth, width, neighbourhood, wrapped);
+            SimulationParameters parameters = new SimulationParameters();
+            // each parameter is left at its default half the time
+            for (String name : SimulationParameters.NAMES) {
+                if (fuzz.nextBoolean()) {
+                    parameters.set(name, fuzz.nextDouble());
+                }
+            }
+            long simulationSeed = fuzz.nextLong();
+
+            Simulator reference = new Simulator(depth, width, parameters, simulationSeed, topology);
+            reference.reset(true);
+            Mismatch mismatch = check(reference, new ArrayStepper(topology), generations, simulationSeed);
+
+            String description = String.format("run %d: %dx%d %s%s, simulation seed %d", run, depth, width,
+                    topology.getNeighbourhood(), topology.isWrapped() ? " wrapped" : "", simulationSeed);
+            if (mismatch != null) {
+                System.out.println(description + ": DIVERGED");
+                System.out.println("  " + mismatch);
+                for (String name : SimulationParameters.NAMES) {
+                    System.out.println("  " + name + " = " + parameters.get(name));
+                }
+                System.exit(1);
+            }
+            System.out.println(description + ": " + generations + " generations match");
+        }
+    }
+
+    /**
+     * Step the simulation and the engine side by side, comparing them after
+     * every generation.
+     *
+     * @param reference   The simulation, which is taken as correct.
+     * @param engine      The engine being checked, for a field of the same
+     *                    topology. It is loaded from the simulation's field.
+     * @param generations How many generations to compare.
+     * @param streamSeed  The random streams of both are set to this seed.
+     * @return The first divergence, or null if the engine matched throughout.
+     */
+    public static Mismatch check(Simulator reference, Stepper engine, int generations, long streamSeed) {
+        Field field = reference.getField();
+        field.getRandom().setSeed(streamSeed);
+        engine.load(field, reference.getGeneration(), new Random(streamSeed));
+
+        for (int i = 0; i < generations; i++) {
+            reference.simOneGeneration();
+            engine.step();
+            if (reference.getStateHash() != engine.getStateHash()) {
+                return diff(field, engine, reference.getGeneration());
+            }
+        }
+        // the hashes only cover what is visible, so compare the decisions for the
+        // next generation too
+        return diff(field, engine, reference.getGeneration());
+    }
+
+    /**
+     * Compare every location of the field and the engine.
+     *
+     * @return The first differing location, or null if there is none.
+     */
+    private static Mismatch diff(Field field, Stepper engine, int generation) {
+        Mismatch first = null;
+        int differing = 0;
+        for (int index = 0; index < field.getDepth() * field.getWidth(); index++) {
+            Cell cell = field.getObjectAt(index);
+            int expected = CellState.of(cell);
+            boolean expectedNextAlive = cell != null && cell.getNextAlive();
+            if (expected != engine.getState(index) || expectedNextAlive != engine.getNextAlive(index)) {
+                differing++;
+                if (first == null) {
+                    first = new Mismatch(generation, field.rowOf(index), field.colOf(index), expected,
+                            engine.getState(index), expectedNextAlive, engine.getNextAlive(index));
+                }
+            }
+        }
+        if (first == null) {
+            return null;
+        }
+        first.differing = differing;
+        return first;
+    }
+
+    /**
+     * Where an engine first diverged from the reference.
+     */
+    public static class Mismatch {
+        private final int generation, row, col;
+        private final int expectedState, actualState;
+        private final boolean expectedNextAlive, actualNextAlive;
+        private int differing;
+
+        private Mismatch(int generation, int row, int col, int expectedState, int actualState,
+                boolean expectedNextAlive, boolean actualNextAlive) {
+            this.generation = generation;
+            this.row = row;
+            this.col = col;
+            this.expectedState = expectedState;
+            this.actualState = actualState;
+            this.expectedNextAlive = expectedNextAlive;
+            this.actualNextAlive = actualNextAlive;
+        }
+
+        /**
+         * @return The first generation in which the engine differed.
+         */
+        public int getGeneration() {
+            return generation;
+        }
+
+        /**
+         * @return The row of the first differing location.
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * @return The column of the first differing location.
+         */
+        public int getCol() {
+            return col;
+        }
+
+        /**
+         * @return How many locations differed in that generation.
+         */
+        public int getDiffering() {
+            return differing;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("generation %d, cell (%d, %d): expected %s%s (next %s), got %s%s (next %s); "
+                    + "%d locations differ", generation, row, col,
+                    CellState.isAlive(expectedState) ? "living " : "dead ", CellState.species(expectedState),
+                    expectedNextAlive ? "alive" : "dead",
+                    CellState.isAlive(actualState) ? "living " : "dead ", CellState.species(actualState),
+                    actualNextAlive ? "alive" : "dead", differing);
+        }
+    }
+}
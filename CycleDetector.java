@@ -0,0 +1,108 @@
+/**
+ * Detects when a simulation has stopped changing or has fallen into a short
+ * repeating cycle, by remembering the hashes of the most recent generations
+ * in a small ring buffer. Because some rules are random, a single repeat of
+ * a hash is not taken as proof of a cycle: the same period has to repeat for
+ * a number of full cycles before it is reported.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.02
+ */
+
+public class CycleDetector {
+    // The longest cycle that can be detected.
+    private final int maxPeriod;
+
+    // How many full cycles must repeat before a period is reported.
+    private final int confirmations;
+
+    // Ring buffer of recent hashes; next is where the next hash goes.
+    private final long[] recent;
+    private int next, size;
+
+    // The period currently being confirmed and for how many steps it has held.
+    private int candidatePeriod, matchedSteps;
+
+    // The confirmed period, or 0 if none has been found.
+    private int period;
+
+    /**
+     * Create a detector for cycles of up to 32 generations which must repeat
+     * three times.
+     */
+    public CycleDetector() {
+        this(32, 3);
+    }
+
+    /**
+     * Create a detector.
+     *
+     * @param maxPeriod     The longest cycle to look for; 1 finds only fixed
+     *                      points.
+     * @param confirmations How many times a cycle must repeat to be reported.
+     */
+    public CycleDetector(int maxPeriod, int confirmations) {
+        if (maxPeriod < 1 || confirmations < 1) {
+            throw new IllegalArgumentException("The period and confirmations must be at least one.");
+        }
+        this.maxPeriod = maxPeriod;
+        this.confirmations = confirmations;
+        recent = new long[maxPeriod];
+    }
+
+    /**
+     * Record the hash of the newest generation and check for a cycle.
+     *
+     * @param hash The hash of the field after the generation.
+     * @return The detected period, or 0 if there is no cycle.
+     */
+    public int record(long hash) {
+        // find the shortest lag at which this state was seen before
+        int lag = 0;
+        for (int p = 1; p <= size; p++) {
+            if (recent[Math.floorMod(next - p, maxPeriod)] == hash) {
+                lag = p;
+                break;
+            }
+        }
+
+        if (lag == 0) {
+            candidatePeriod = 0;
+            matchedSteps = 0;
+            period = 0;
+        } else if (lag == candidatePeriod) {
+            matchedSteps++;
+        } else {
+            candidatePeriod = lag;
+            matchedSteps = 1;
+            period = 0;
+        }
+
+        if (candidatePeriod > 0 && matchedSteps >= candidatePeriod * confirmations) {
+            period = candidatePeriod;
+        }
+
+        recent[next] = hash;
+        next = (next + 1) % maxPeriod;
+        size = Math.min(size + 1, maxPeriod);
+        return period;
+    }
+
+    /**
+     * @return The detected period (1 for a fixed point), or 0 if there is none.
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Forget every recorded generation.
+     */
+    public void reset() {
+        next = 0;
+        size = 0;
+        candidatePeriod = 0;
+        matchedSteps = 0;
+        period = 0;
+    }
+}
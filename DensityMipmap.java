@@ -0,0 +1,103 @@
+import java.util.Arrays;
+
+/**
+ * A pyramid of living-cell counts over a field. Level 0 holds one entry per
+ * location (1 if a living cell is there), and each level above it halves
+ * the resolution, so an entry at level k counts the living cells in a
+ * 2^k by 2^k block of the field. Changing one location updates one entry
+ * per level, so the pyramid can be kept up to date cheaply and a zoomed-out
+ * view can be drawn from whichever level matches the screen resolution.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.04
+ */
+
+public class DensityMipmap {
+    // counts[level][row * widths[level] + col]
+    private final int[][] counts;
+    private final int[] depths, widths;
+
+    /**
+     * Create an empty pyramid for a field of the given size.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public DensityMipmap(int depth, int width) {
+        int levels = 1;
+        while ((1 << (levels - 1)) < Math.max(depth, width)) {
+            levels++;
+        }
+
+        counts = new int[levels][];
+        depths = new int[levels];
+        widths = new int[levels];
+        for (int level = 0; level < levels; level++) {
+            int block = 1 << level;
+            depths[level] = (depth + block - 1) / block;
+            widths[level] = (width + block - 1) / block;
+            counts[level] = new int[depths[level] * widths[level]];
+        }
+    }
+
+    /**
+     * Record whether a location holds a living cell, updating every level if
+     * it has changed.
+     *
+     * @param row   The row of the location.
+     * @param col   The column of the location.
+     * @param alive Whether a living cell is at the location.
+     */
+    public void set(int row, int col, boolean alive) {
+        int value = alive ? 1 : 0;
+        int delta = value - counts[0][row * widths[0] + col];
+        if (delta == 0) {
+            return;
+        }
+        for (int level = 0; level < counts.length; level++) {
+            counts[level][(row >> level) * widths[level] + (col >> level)] += delta;
+        }
+    }
+
+    /**
+     * Mark every location as empty.
+     */
+    public void clear() {
+        for (int[] level : counts) {
+            Arrays.fill(level, 0);
+        }
+    }
+
+    /**
+     * @param level The level of the pyramid.
+     * @param row   The row of the block at that level.
+     * @param col   The column of the block at that level.
+     * @return The number of living cells in the block.
+     */
+    public int getCount(int level, int row, int col) {
+        return counts[level][row * widths[level] + col];
+    }
+
+    /**
+     * @return The number of levels in the pyramid.
+     */
+    public int getLevels() {
+        return counts.length;
+    }
+
+    /**
+     * @param level The level of the pyramid.
+     * @return The number of block rows at that level.
+     */
+    public int getDepth(int level) {
+        return depths[level];
+    }
+
+    /**
+     * @param level The level of the pyramid.
+     * @return The number of block columns at that level.
+     */
+    public int getWidth(int level) {
+        return widths[level];
+    }
+}
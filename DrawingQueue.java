@@ -0,0 +1,173 @@
+/**
+ * Collects the locations the mouse passes over while drawing, so that no
+ * sample is lost however fast the mouse moves or however long the
+ * simulation takes to apply them. The view's mouse listeners add samples as
+ * they arrive; the simulation drains them in batches, joining consecutive
+ * samples of a stroke with straight lines so that a fast stroke leaves no
+ * gaps.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.08
+ */
+
+public class DrawingQueue {
+    /**
+     * Receives the locations of a drained batch.
+     */
+    public interface PointConsumer {
+        /**
+         * @param row         The row of the location.
+         * @param col         The column of the location.
+         * @param strokeStart Whether this is where a stroke began, i.e. where
+         *                    the mouse was pressed.
+         */
+        void accept(int row, int col, boolean strokeStart);
+    }
+
+    private final int width;
+
+    // Samples not yet drained, as row * width + col, with the bits inverted
+    // (so negative) for the first sample of a stroke.
+    private int[] samples = new int[64];
+    private int sampleCount;
+
+    // A buffer to swap in for the pending samples on the next drain, so that
+    // listeners can keep adding while a batch is applied. Only the draining
+    // thread touches it.
+    private int[] spare = new int[64];
+
+    // The last location drained, where the next sample's line starts, or -1
+    // if the next sample must begin a stroke.
+    private int lastRow = -1, lastCol = -1;
+
+    /**
+     * Create an empty queue for a field of the given width.
+     *
+     * @param width The width of the field being drawn on.
+     */
+    public DrawingQueue(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Add the location where the mouse was pressed, starting a new stroke.
+     *
+     * @param row The row under the mouse.
+     * @param col The column under the mouse.
+     */
+    public synchronized void beginStroke(int row, int col) {
+        add(~(row * width + col));
+    }
+
+    /**
+     * Add a location the mouse was dragged to, continuing the current stroke.
+     *
+     * @param row The row under the mouse.
+     * @param col The column under the mouse.
+     */
+    public synchronized void continueStroke(int row, int col) {
+        add(row * width + col);
+    }
+
+    /**
+     * Wait until there are samples to drain or the timeout passes.
+     *
+     * @param timeoutMillis How long to wait at most, in milliseconds.
+     * @return Whether there are samples to drain.
+     */
+    public synchronized boolean awaitSamples(long timeoutMillis) {
+        if (sampleCount == 0 && timeoutMillis > 0) {
+            try {
+                wait(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return sampleCount > 0;
+    }
+
+    /**
+     * Pass every location covered since the last drain to the consumer,
+     * interpolating between the samples of a stroke. Locations may be passed
+     * more than once. Only one thread may drain the queue.
+     *
+     * @param consumer Receives each location.
+     */
+    public void drain(PointConsumer consumer) {
+        int[] batch;
+        int count;
+        synchronized (this) {
+            batch = samples;
+            count = sampleCount;
+            samples = spare.length == batch.length ? spare : new int[batch.length];
+            sampleCount = 0;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int sample = batch[i];
+            boolean strokeStart = sample < 0 || lastRow < 0;
+            int index = sample < 0 ? ~sample : sample;
+            int row = index / width;
+            int col = index % width;
+
+            if (strokeStart) {
+                consumer.accept(row, col, true);
+            } else {
+                line(lastRow, lastCol, row, col, consumer);
+            }
+            lastRow = row;
+            lastCol = col;
+        }
+        spare = batch;
+    }
+
+    /**
+     * Forget where the last stroke ended, e.g. after the field is reset.
+     */
+    public synchronized void clear() {
+        sampleCount = 0;
+        lastRow = -1;
+        lastCol = -1;
+    }
+
+    /**
+     * Append a sample, growing the buffer if needed, and wake the drawing
+     * thread.
+     */
+    private void add(int sample) {
+        if (sampleCount == samples.length) {
+            int[] grown = new int[samples.length * 2];
+            System.arraycopy(samples, 0, grown, 0, sampleCount);
+            samples = grown;
+        }
+        samples[sampleCount++] = sample;
+        notifyAll();
+    }
+
+    /**
+     * Pass the locations on the line between two points, excluding the first
+     * (already passed) and including the last, using Bresenham's algorithm.
+     */
+    private static void line(int fromRow, int fromCol, int toRow, int toCol, PointConsumer consumer) {
+        int dRow = Math.abs(toRow - fromRow);
+        int dCol = Math.abs(toCol - fromCol);
+        int stepRow = fromRow < toRow ? 1 : -1;
+        int stepCol = fromCol < toCol ? 1 : -1;
+        int error = dCol - dRow;
+
+        int row = fromRow;
+        int col = fromCol;
+        while (row != toRow || col != toCol) {
+            int doubled = 2 * error;
+            if (doubled > -dRow) {
+                error -= dRow;
+                col += stepCol;
+            }
+            if (doubled < dCol) {
+                error += dCol;
+                row += stepRow;
+            }
+            consumer.accept(row, col, false);
+        }
+    }
+}
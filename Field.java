@@ -1,25 +1,59 @@
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 /**
  * Represent a rectangular grid of field positions.
- * Each position stores a single cell
+ * Each position stores a single cell.
+ * Positions can be given either as Location objects or as packed indices
+ * (row * width + col); the index forms allocate nothing and are the ones
+ * used inside the simulation.
+ * The field also keeps, for every location, how many of its neighbours are
+ * living cells of each species. Cells report their changes to the field, so
+ * the counts only need adjusting around the cells that changed, and reading
+ * one is a single array lookup.
  *
  * @author David J. Barnes, Michael Kölling & Jeffery Raphael
  * @version 2022.01.06 (1)
  */
 
 public class Field {
-    // A random number generator for providing random locations.
-    private static final Random rand = Randomizer.getRandom();
+    // A random number generator for providing random locations, shared by the
+    // cells in this field.
+    private final Random rand;
+
+    // The parameters driving the cells in this field.
+    private final SimulationParameters parameters;
+
+    // Which locations neighbour each other.
+    private final Topology topology;
+
+    // Scratch space for neighbour indices, so that lookups allocate nothing.
+    private final int[] neighbourBuffer;
 
     // The depth and width of the field.
     private int depth, width;
 
-    // Storage for the cells.
-    private Cell[][] field;
+    // Storage for the cells, in row-major order.
+    private Cell[] field;
+
+    // Living neighbours of each species around every location, stored as
+    // [species ordinal * depth * width + index].
+    private final byte[] livingNeighbourCounts;
+
+    // Whether cells are being placed in bulk, with the neighbour counts
+    // rebuilt once at the end instead of adjusted for every cell.
+    private boolean placingInBulk;
+
+    // Concentration layers lying over the field, stepped once a generation.
+    private final List<ChemicalLayer> layers = new ArrayList<>();
+
+    // Where the cells count their rule firings, or null if they are not counted.
+    private RuleCounters ruleCounters;
 
     /**
      * Represent a field of the given dimensions.
@@ -28,19 +62,55 @@ public class Field {
      * @param width The width of the field.
      */
     public Field(int depth, int width) {
+        this(depth, width, Randomizer.getRandom(), new SimulationParameters());
+    }
+
+    /**
+     * Represent a field of the given dimensions with its own random generator
+     * and parameters, independent of any other field.
+     * 
+     * @param depth      The depth of the field.
+     * @param width      The width of the field.
+     * @param rand       The random generator used by this field and its cells.
+     * @param parameters The parameters used by the cells in this field.
+     */
+    public Field(int depth, int width, Random rand, SimulationParameters parameters) {
+        this(depth, width, rand, parameters, new Topology(depth, width));
+    }
+
+    /**
+     * Represent a field of the given dimensions with its own random generator,
+     * parameters and neighbourhood topology.
+     * 
+     * @param depth      The depth of the field.
+     * @param width      The width of the field.
+     * @param rand       The random generator used by this field and its cells.
+     * @param parameters The parameters used by the cells in this field.
+     * @param topology   Which locations neighbour each other; it must be for a
+     *                   field of the same size.
+     */
+    public Field(int depth, int width, Random rand, SimulationParameters parameters, Topology topology) {
+        if (topology.getDepth() != depth || topology.getWidth() != width) {
+            throw new IllegalArgumentException("The topology is for a field of a different size.");
+        }
         this.depth = depth;
         this.width = width;
-        field = new Cell[depth][width];
+        this.rand = rand;
+        this.parameters = parameters;
+        this.topology = topology;
+        neighbourBuffer = new int[topology.getMaxNeighbours()];
+        field = new Cell[depth * width];
+        livingNeighbourCounts = new byte[Species.values().length * depth * width];
     }
 
     /**
      * Empty the field.
      */
     public void clear() {
-        for (int row = 0; row < depth; row++) {
-            for (int col = 0; col < width; col++) {
-                field[row][col] = null;
-            }
+        Arrays.fill(field, null);
+        Arrays.fill(livingNeighbourCounts, (byte) 0);
+        for (ChemicalLayer layer : layers) {
+            layer.reset();
         }
     }
 
@@ -50,7 +120,55 @@ public class Field {
      * @param location The location to clear.
      */
     public void clear(Location location) {
-        field[location.getRow()][location.getCol()] = null;
+        clear(index(location.getRow(), location.getCol()));
+    }
+
+    /**
+     * Clear the location at the given index.
+     * 
+     * @param index The index of the location to clear.
+     */
+    public void clear(int index) {
+        Cell old = field[index];
+        field[index] = null;
+        if (old != null && old.isAlive()) {
+            adjustNeighbourCounts(index, old.getSpecies(), -1);
+        }
+    }
+
+    /**
+     * Pack a row and column into an index.
+     * 
+     * @param row Row coordinate of the location.
+     * @param col Column coordinate of the location.
+     * @return The index of the location (row * width + col).
+     */
+    public int index(int row, int col) {
+        return row * width + col;
+    }
+
+    /**
+     * @param index The index of a location.
+     * @return The row of the location.
+     */
+    public int rowOf(int index) {
+        return index / width;
+    }
+
+    /**
+     * @param index The index of a location.
+     * @return The column of the location.
+     */
+    public int colOf(int index) {
+        return index % width;
+    }
+
+    /**
+     * @param index The index of a location.
+     * @return A Location object for the index.
+     */
+    public Location toLocation(int index) {
+        return new Location(rowOf(index), colOf(index));
     }
 
     /**
@@ -62,9 +180,74 @@ public class Field {
      * @param col  Column coordinate of the location.
      */
     public void place(Cell cell, int row, int col) {
-        place(cell, new Location(row, col));
+        place(cell, index(row, col));
+    }
+
+    /**
+     * Place a cell at the location with the given index.
+     * If there is already a cell at the location it will be lost.
+     * 
+     * @param cell  The cell to be placed.
+     * @param index The index of the location.
+     */
+    public void place(Cell cell, int index) {
+        Cell old = field[index];
+        if (old == cell) {
+            return;
+        }
+        field[index] = cell;
+        if (placingInBulk) {
+            return;
+        }
+        if (old != null && old.isAlive()) {
+            adjustNeighbourCounts(index, old.getSpecies(), -1);
+        }
+        if (cell != null && cell.isAlive()) {
+            adjustNeighbourCounts(index, cell.getSpecies(), 1);
+        }
+    }
+
+    /**
+     * Start placing many cells at once. Until endBulkPlacement is called,
+     * placing cells and changing their state leave the neighbour counts
+     * alone, and cells may be placed at different locations from several
+     * threads at once.
+     */
+    public void beginBulkPlacement() {
+        placingInBulk = true;
+    }
+
+    /**
+     * Finish placing cells in bulk and recount the living neighbours of
+     * every location, in parallel.
+     */
+    public void endBulkPlacement() {
+        placingInBulk = false;
+        IntStream.range(0, depth).parallel().forEach(this::recountRow);
+    }
+
+    /**
+     * Bring the neighbour counts up to date after the cell at a location
+     * changed whether it is alive or its species. Cells call this themselves
+     * whenever their current state changes.
+     * 
+     * @param cell       The cell that changed.
+     * @param oldSpecies The species of the cell before the change.
+     * @param wasAlive   Whether the cell was alive before the change.
+     */
+    public void cellChanged(Cell cell, Species oldSpecies, boolean wasAlive) {
+        int index = cell.getIndex();
+        if (field[index] != cell || placingInBulk) {
+            return; // not (yet) placed, or counted at the end of the bulk placement
+        }
+        if (wasAlive) {
+            adjustNeighbourCounts(index, oldSpecies, -1);
+        }
+        if (cell.isAlive()) {
+            adjustNeighbourCounts(index, cell.getSpecies(), 1);
+        }
     }
-    
+
     /**
      * Place a cell at the given location.
      * If there is already a cell at the location it will be lost.
@@ -73,7 +256,7 @@ public class Field {
      * @param location Where to place the cell.
      */
     public void place(Cell cell, Location location) {
-        field[location.getRow()][location.getCol()] = cell;
+        place(cell, location.getRow(), location.getCol());
     }
 
     /**
@@ -94,7 +277,17 @@ public class Field {
      * @return The cell at the given location, or null if there is none.
      */
     public Cell getObjectAt(int row, int col) {
-        return field[row][col];
+        return field[index(row, col)];
+    }
+
+    /**
+     * Return the cell at the location with the given index, if any.
+     * 
+     * @param index The index of the location.
+     * @return The cell at the location, or null if there is none.
+     */
+    public Cell getObjectAt(int index) {
+        return field[index];
     }
 
     /**
@@ -124,19 +317,9 @@ public class Field {
         // The list of locations to be returned.
         List<Location> locations = new LinkedList<>();
         if (location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for (int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if (nextRow >= 0 && nextRow < depth) {
-                    for (int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if (nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
-                }
+            int count = topology.neighbours(index(location.getRow(), location.getCol()), neighbourBuffer);
+            for (int i = 0; i < count; i++) {
+                locations.add(toLocation(neighbourBuffer[i]));
             }
 
             // Shuffle the list. Several other methods rely on the list
@@ -161,7 +344,7 @@ public class Field {
             List<Location> adjLocations = adjacentLocations(location);
 
             for (Location loc : adjLocations) {
-                Cell cell = field[loc.getRow()][loc.getCol()];
+                Cell cell = getObjectAt(loc);
                 if (cell == null)
                     continue;
                 // if (cell.isDead()) continue;
@@ -173,6 +356,136 @@ public class Field {
         return neighbours;
     }
 
+    /**
+     * Return the number of living neighbours of one species around a location,
+     * as kept up to date by the cells' changes.
+     * 
+     * @param index   The index of the location.
+     * @param species The species to count.
+     * @return The number of living neighbours of that species.
+     */
+    public int countLivingNeighbours(int index, Species species) {
+        return livingNeighbourCounts[species.ordinal() * field.length + index];
+    }
+
+    /**
+     * Count the living neighbours of each species around every location of a
+     * row from scratch. Only the row's own counts are written, so rows can be
+     * recounted at the same time.
+     */
+    private void recountRow(int row) {
+        int size = field.length;
+        int[] neighbours = new int[topology.getMaxNeighbours()];
+        for (int index = row * width; index < (row + 1) * width; index++) {
+            for (int base = 0; base < livingNeighbourCounts.length; base += size) {
+                livingNeighbourCounts[base + index] = 0;
+            }
+            int count = topology.neighbours(index, neighbours);
+            for (int i = 0; i < count; i++) {
+                Cell neighbour = field[neighbours[i]];
+                if (neighbour != null && neighbour.isAlive()) {
+                    livingNeighbourCounts[neighbour.getSpecies().ordinal() * size + index]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add delta to the count of living neighbours of the given species around
+     * every neighbour of a location. Neighbourhoods are symmetric, so these
+     * are exactly the locations whose counts include it.
+     */
+    private void adjustNeighbourCounts(int index, Species species, int delta) {
+        int base = species.ordinal() * field.length;
+        int neighbours = topology.neighbours(index, neighbourBuffer);
+        for (int i = 0; i < neighbours; i++) {
+            livingNeighbourCounts[base + neighbourBuffer[i]] += delta;
+        }
+    }
+
+    /**
+     * Return which locations of the field neighbour each other.
+     * 
+     * @return The field's topology.
+     */
+    public Topology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Lay a concentration layer over the field, replacing any of the same
+     * name. It is stepped along with the cells from the next generation on.
+     * 
+     * @param layer The layer, for a field of the same size.
+     */
+    public void addLayer(ChemicalLayer layer) {
+        layers.removeIf(existing -> existing.getName().equals(layer.getName()));
+        layers.add(layer);
+    }
+
+    /**
+     * @param name The name of a layer.
+     * @return The layer of that name, or null if there is none.
+     */
+    public ChemicalLayer getLayer(String name) {
+        for (ChemicalLayer layer : layers) {
+            if (layer.getName().equals(name)) {
+                return layer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether any layers lie over the field.
+     */
+    public boolean hasLayers() {
+        return !layers.isEmpty();
+    }
+
+    /**
+     * @param ruleCounters Where the cells are to count their rule firings, or
+     *                     null to stop counting.
+     */
+    public void setRuleCounters(RuleCounters ruleCounters) {
+        this.ruleCounters = ruleCounters;
+    }
+
+    /**
+     * @return Where the cells count their rule firings, or null if they do
+     *         not.
+     */
+    public RuleCounters getRuleCounters() {
+        return ruleCounters;
+    }
+
+    /**
+     * Step every layer by one generation, from the cells now in the field.
+     */
+    public void stepLayers() {
+        for (ChemicalLayer layer : layers) {
+            layer.step(this);
+        }
+    }
+
+    /**
+     * Return the random generator used by this field and its cells.
+     * 
+     * @return The field's random generator.
+     */
+    public Random getRandom() {
+        return rand;
+    }
+
+    /**
+     * Return the parameters used by the cells in this field.
+     * 
+     * @return The field's simulation parameters.
+     */
+    public SimulationParameters getParameters() {
+        return parameters;
+    }
+
     /**
      * Return the depth of the field.
      * 
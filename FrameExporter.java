@@ -0,0 +1,464 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Records a simulation as a sequence of PNG images or an animated GIF
+ * without a window. Every Nth generation the colour of each location is
+ * captured on the simulation thread - a single pass over the field - and
+ * handed to a pool of encoder threads through a bounded queue. The encoders
+ * draw the frame at the chosen cell size, using the colours SimulatorView
+ * uses, and encode it. By default every frame is kept: if the queue is full
+ * the simulation waits for an encoder to make room. An exporter recording
+ * alongside a live view can instead drop frames when the queue is full, so
+ * the simulation never waits; the frames dropped are counted.
+ *
+ * PNG frames are written to separate files in parallel. GIF frames are
+ * drawn and reduced to a palette in parallel and then appended to the
+ * animation in generation order.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.06
+ */
+
+public class FrameExporter implements AutoCloseable {
+    /**
+     * The kind of output to produce.
+     */
+    public enum Format {
+        PNG_SEQUENCE, GIF
+    }
+
+    // Placed on the queue to tell an encoder to stop.
+    private static final Frame END = new Frame(-1, -1, null);
+
+    // How long to wait for room on the queue before checking that an
+    // encoder is still there to make it, in milliseconds.
+    private static final long POLL_MILLIS = 100;
+
+    // Time each GIF frame is shown for, in hundredths of a second.
+    private static final int GIF_FRAME_DELAY = 5;
+
+    private final Format format;
+    private final Path output;
+    private final int depth, width;
+
+    // Size of a cell in pixels, and how often a generation is recorded.
+    private final int cellScale, every;
+
+    // Whether a frame is dropped, rather than waited for, when the queue is full.
+    private final boolean dropWhenFull;
+
+    private final ArrayBlockingQueue<Frame> queue;
+    private final Thread[] encoders;
+
+    // Sequence number of the next captured frame.
+    private int nextSequence;
+
+    // Frames dropped because the queue was full.
+    private final AtomicLong dropped = new AtomicLong();
+
+    // GIF output, and encoded frames waiting for their turn to be appended.
+    private ImageWriter gifWriter;
+    private ImageOutputStream gifStream;
+    private final Map<Integer, BufferedImage> waitingFrames = new TreeMap<>();
+    private int nextToWrite;
+
+    // The first error an encoder hit, reported on close.
+    private volatile IOException failure;
+
+    /**
+     * Record a headless simulation.
+     * Usage: FrameExporter output png|gif [generations] [every] [cellScale]
+     * [depth] [width] [seed]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println(
+                    "Usage: FrameExporter <output> <png|gif> [generations] [every] [cellScale] [depth] [width] [seed]");
+            return;
+        }
+        Format format = args[1].equalsIgnoreCase("gif") ? Format.GIF : Format.PNG_SEQUENCE;
+        int generations = args.length > 2 ? Integer.parseInt(args[2]) : 4000;
+        int every = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int cellScale = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+        int depth = args.length > 5 ? Integer.parseInt(args[5]) : 110;
+        int width = args.length > 6 ? Integer.parseInt(args[6]) : 140;
+        long seed = args.length > 7 ? Long.parseLong(args[7]) : 1122;
+
+        Simulator simulator = new Simulator(depth, width, new SimulationParameters(), seed);
+        try (FrameExporter exporter = new FrameExporter(Paths.get(args[0]), format, depth, width, cellScale, every,
+                Runtime.getRuntime().availableProcessors(), 64)) {
+            simulator.setFrameExporter(exporter);
+            simulator.reset(true);
+            simulator.simulateHeadless(generations, null);
+            if (exporter.getDroppedCount() > 0) {
+                System.err.println("Warning: " + exporter.getDroppedCount() + " frames were not recorded.");
+            }
+        }
+    }
+
+    /**
+     * Create an exporter that keeps every frame, making the simulation wait
+     * when the encoders fall behind, and start its encoder threads.
+     *
+     * @param output    The directory for PNG frames, or the GIF file.
+     * @param format    What to produce.
+     * @param depth     The depth of the field being recorded.
+     * @param width     The width of the field being recorded.
+     * @param cellScale The size of each cell in pixels.
+     * @param every     Record every this many generations.
+     * @param threads   The number of encoder threads.
+     * @param capacity  How many captured frames may wait for an encoder.
+     * @throws IOException If the output cannot be created.
+     */
+    public FrameExporter(Path output, Format format, int depth, int width, int cellScale, int every, int threads,
+            int capacity) throws IOException {
+        this(output, format, depth, width, cellScale, every, threads, capacity, false);
+    }
+
+    /**
+     * Create an exporter and start its encoder threads.
+     *
+     * @param output    The directory for PNG frames, or the GIF file.
+     * @param format    What to produce.
+     * @param depth     The depth of the field being recorded.
+     * @param width     The width of the field being recorded.
+     * @param cellScale The size of each cell in pixels.
+     * @param every     Record every this many generations.
+     * @param threads   The number of encoder threads.
+     * @param capacity     How many captured frames may wait for an encoder.
+     * @param dropWhenFull Whether to drop a frame when that many are already
+     *                     waiting, so that the simulation never waits, e.g.
+     *                     while it is also shown live.
+     * @throws IOException If the output cannot be created.
+     */
+    public FrameExporter(Path output, Format format, int depth, int width, int cellScale, int every, int threads,
+            int capacity, boolean dropWhenFull) throws IOException {
+        if (cellScale <= 0 || every <= 0 || threads <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Scale, interval, threads and capacity must be greater than zero.");
+        }
+        this.output = output;
+        this.format = format;
+        this.depth = depth;
+        this.width = width;
+        this.cellScale = cellScale;
+        this.every = every;
+        this.dropWhenFull = dropWhenFull;
+        queue = new ArrayBlockingQueue<>(capacity);
+
+        if (format == Format.PNG_SEQUENCE) {
+            Files.createDirectories(output);
+        } else {
+            gifWriter = ImageIO.getImageWritersByFormatName("gif").next();
+            gifStream = ImageIO.createImageOutputStream(output.toFile());
+            gifWriter.setOutput(gifStream);
+            gifWriter.prepareWriteSequence(null);
+        }
+
+        encoders = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            encoders[i] = new Thread(this::encodeLoop, "frame-encoder-" + i);
+            encoders[i].setDaemon(true);
+            encoders[i].start();
+        }
+    }
+
+    /**
+     * Capture the field if this generation is one to be recorded. Only the
+     * colours are copied here; drawing and encoding happen on the encoders.
+     * If the queue is full this waits for room, unless frames are dropped
+     * when it is full. Nothing more is captured once an encoder has failed.
+     *
+     * @param generation The current generation.
+     * @param field      The field to record.
+     */
+    public void capture(int generation, Field field) {
+        if (generation % every != 0 || failure != null) {
+            return;
+        }
+        int empty = SimulatorView.EMPTY_COLOR.getRGB();
+        int[] colours = new int[depth * width];
+        for (int row = 0; row < depth; row++) {
+            for (int col = 0; col < width; col++) {
+                Cell cell = field.getObjectAt(row, col);
+                colours[row * width + col] = cell != null && cell.isAlive() ? cell.getColor().getRGB() : empty;
+            }
+        }
+
+        if (!enqueue(new Frame(nextSequence, generation, colours))) {
+            dropped.incrementAndGet();
+            return;
+        }
+        nextSequence++;
+    }
+
+    /**
+     * Put a captured frame on the queue, waiting for room unless frames are
+     * dropped when it is full. An encoder that failed no longer takes frames,
+     * so this stops waiting once no encoder is left running.
+     *
+     * @return Whether the frame was queued.
+     */
+    private boolean enqueue(Frame frame) {
+        if (dropWhenFull) {
+            return queue.offer(frame);
+        }
+        try {
+            while (!queue.offer(frame, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure != null || !encodersRunning()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return How many frames were dropped because the encoders fell behind,
+     *         failed, or the simulation was interrupted while waiting.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Wait for every captured frame to be encoded and finish the output. If
+     * an encoder has failed, the frames still waiting are dropped instead.
+     *
+     * @throws IOException If any frame could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            stopEncoders();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (gifWriter != null) {
+            gifWriter.endWriteSequence();
+            gifStream.close();
+            gifWriter.dispose();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Tell every encoder to stop and wait for them to finish. An encoder that
+     * failed no longer takes frames from the queue, so this stops waiting for
+     * room on it once no encoder is left running.
+     */
+    private void stopEncoders() throws InterruptedException {
+        if (failure != null) {
+            queue.clear();
+        }
+        for (int i = 0; i < encoders.length; i++) {
+            while (!queue.offer(END, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!encodersRunning()) {
+                    return;
+                }
+            }
+        }
+        for (Thread encoder : encoders) {
+            encoder.join();
+        }
+    }
+
+    /**
+     * @return Whether any encoder thread is still running.
+     */
+    private boolean encodersRunning() {
+        for (Thread encoder : encoders) {
+            if (encoder.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Body of an encoder thread: draw and encode frames until told to stop.
+     */
+    private void encodeLoop() {
+        try {
+            while (true) {
+                Frame frame = queue.take();
+                if (frame == END) {
+                    return;
+                }
+                if (format == Format.PNG_SEQUENCE) {
+                    BufferedImage image = drawRgb(frame.colours);
+                    String name = String.format("frame-%06d.png", frame.generation);
+                    ImageIO.write(image, "png", output.resolve(name).toFile());
+                } else {
+                    appendGif(frame.sequence, drawIndexed(frame.colours));
+                }
+            }
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        } catch (InterruptedException ie) {
+            // stop encoding
+        }
+    }
+
+    /**
+     * Draw a frame as a full-colour image.
+     */
+    private BufferedImage drawRgb(int[] colours) {
+        BufferedImage image = new BufferedImage(width * cellScale, depth * cellScale, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int gridColour = SimulatorView.GRID_COLOR.getRGB();
+
+        for (int y = 0; y < image.getHeight(); y++) {
+            int row = y / cellScale;
+            boolean gapRow = isGap(y);
+            for (int x = 0; x < image.getWidth(); x++) {
+                pixels[y * image.getWidth() + x] = gapRow || isGap(x) ? gridColour
+                        : colours[row * width + x / cellScale];
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Draw a frame as an image with a palette of the colours it uses, which the
+     * GIF writer can store without reducing the colours itself. Frames with
+     * more than 256 colours are drawn in full colour instead.
+     */
+    private BufferedImage drawIndexed(int[] colours) {
+        Map<Integer, Integer> palette = new HashMap<>();
+        palette.put(SimulatorView.GRID_COLOR.getRGB() & 0xFFFFFF, 0);
+        for (int colour : colours) {
+            if (!palette.containsKey(colour & 0xFFFFFF)) {
+                palette.put(colour & 0xFFFFFF, palette.size());
+                if (palette.size() > 256) {
+                    return drawRgb(colours);
+                }
+            }
+        }
+
+        byte[] r = new byte[palette.size()];
+        byte[] g = new byte[palette.size()];
+        byte[] b = new byte[palette.size()];
+        for (Map.Entry<Integer, Integer> entry : palette.entrySet()) {
+            Color colour = new Color(entry.getKey());
+            r[entry.getValue()] = (byte) colour.getRed();
+            g[entry.getValue()] = (byte) colour.getGreen();
+            b[entry.getValue()] = (byte) colour.getBlue();
+        }
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(palette.size() - 1));
+        IndexColorModel model = new IndexColorModel(bits, palette.size(), r, g, b);
+
+        // index of each cell's colour, looked up once per cell rather than per pixel
+        byte[] cellIndex = new byte[colours.length];
+        for (int i = 0; i < colours.length; i++) {
+            cellIndex[i] = (byte) (int) palette.get(colours[i] & 0xFFFFFF);
+        }
+
+        BufferedImage image = new BufferedImage(width * cellScale, depth * cellScale,
+                BufferedImage.TYPE_BYTE_INDEXED, model);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < image.getHeight(); y++) {
+            int row = y / cellScale;
+            boolean gapRow = isGap(y);
+            for (int x = 0; x < image.getWidth(); x++) {
+                pixels[y * image.getWidth() + x] = gapRow || isGap(x) ? 0 : cellIndex[row * width + x / cellScale];
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Whether a pixel coordinate falls on the line between two cells, which
+     * is drawn in the same way as in SimulatorView.
+     */
+    private boolean isGap(int coordinate) {
+        return cellScale >= 3 && coordinate % cellScale == cellScale - 1;
+    }
+
+    /**
+     * Hand over an encoded GIF frame and append every frame that is now next in
+     * sequence.
+     */
+    private synchronized void appendGif(int sequence, BufferedImage image) throws IOException {
+        waitingFrames.put(sequence, image);
+        while (waitingFrames.containsKey(nextToWrite)) {
+            BufferedImage next = waitingFrames.remove(nextToWrite);
+            gifWriter.writeToSequence(new IIOImage(next, null, gifMetadata(next, nextToWrite == 0)), null);
+            nextToWrite++;
+        }
+    }
+
+    /**
+     * Metadata giving a GIF frame its delay and, on the first frame, making the
+     * animation loop forever.
+     */
+    private IIOMetadata gifMetadata(BufferedImage image, boolean first) throws IOException {
+        IIOMetadata metadata = gifWriter.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image),
+                gifWriter.getDefaultWriteParam());
+        String formatName = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(formatName);
+
+        IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", Integer.toString(GIF_FRAME_DELAY));
+        control.setAttribute("transparentColorIndex", "0");
+        root.appendChild(control);
+
+        if (first) {
+            IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+            IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+            loop.setAttribute("applicationID", "NETSCAPE");
+            loop.setAttribute("authenticationCode", "2.0");
+            loop.setUserObject(new byte[] { 1, 0, 0 });
+            extensions.appendChild(loop);
+            root.appendChild(extensions);
+        }
+
+        metadata.setFromTree(formatName, root);
+        return metadata;
+    }
+
+    /**
+     * The captured colours of one recorded generation.
+     */
+    private static class Frame {
+        private final int sequence, generation;
+        private final int[] colours;
+
+        private Frame(int sequence, int generation, int[] colours) {
+            this.sequence = sequence;
+            this.generation = generation;
+            this.colours = colours;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a simulation at a target number of generations per second and
+ * decides which generations are drawn. Waiting is done by parking until a
+ * deadline measured in nanoseconds, so high targets are not limited by the
+ * granularity of Thread.sleep, and the deadlines advance by a fixed period
+ * so small errors do not add up.
+ *
+ * Drawing a generation usually costs much more than simulating it, so only
+ * every n-th generation is drawn. n starts at whatever keeps the frame rate
+ * within what a screen can show, grows while the simulation falls short of
+ * its target, and shrinks again once it keeps up. With no target, it is set
+ * to give a steady frame rate while the simulation runs as fast as it can.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.10
+ */
+
+public class FrameRateController {
+    // A target rate meaning "as fast as possible".
+    public static final double UNLIMITED = Double.POSITIVE_INFINITY;
+
+    // Frame rates aimed for: at most MAX_FRAME_RATE, UNLIMITED_FRAME_RATE when
+    // there is no target, and never drawing less than MIN_FRAME_RATE to catch up.
+    private static final double MAX_FRAME_RATE = 60;
+    private static final double UNLIMITED_FRAME_RATE = 30;
+    private static final double MIN_FRAME_RATE = 5;
+
+    // How long the rates are measured over before adapting, in nanoseconds.
+    private static final long MEASURE_INTERVAL = 500_000_000L;
+
+    // The most generations that may pass between two frames.
+    private static final int MAX_RENDER_INTERVAL = 4096;
+
+    private double targetRate = UNLIMITED;
+
+    // Time between generations in nanoseconds, or 0 with no target.
+    private long period;
+
+    // When the next generation may start.
+    private long nextDeadline;
+
+    // Draw every renderInterval-th generation.
+    private int renderInterval = 1;
+    private int generationsSinceRender;
+
+    // The current measuring window.
+    private long windowStart = System.nanoTime();
+    private int windowGenerations, windowFrames;
+
+    // Rates measured over the last complete window.
+    private double achievedRate, frameRate;
+
+    /**
+     * Set how many generations per second to aim for.
+     *
+     * @param rate The target rate, or UNLIMITED (or anything not positive) to
+     *             run as fast as possible.
+     */
+    public void setTargetRate(double rate) {
+        if (rate <= 0 || Double.isNaN(rate)) {
+            rate = UNLIMITED;
+        }
+        if (rate == targetRate) {
+            return;
+        }
+        targetRate = rate;
+        period = Double.isInfinite(rate) ? 0 : (long) (1e9 / rate);
+        nextDeadline = System.nanoTime();
+        renderInterval = baseRenderInterval();
+    }
+
+    /**
+     * Wait until the next generation is due. Returns at once with no target.
+     */
+    public void awaitNextGeneration() {
+        if (period == 0) {
+            return;
+        }
+        // after a pause, or when too slow, start again from now rather than
+        // running a burst of generations to catch up
+        if (System.nanoTime() - nextDeadline > period) {
+            nextDeadline = System.nanoTime();
+        }
+
+        long remaining;
+        while ((remaining = nextDeadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+        nextDeadline += period;
+    }
+
+    /**
+     * @return Whether the generation about to be simulated should be drawn.
+     */
+    public boolean shouldRender() {
+        generationsSinceRender++;
+        if (generationsSinceRender >= renderInterval) {
+            generationsSinceRender = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record that a generation has been simulated, adapting how often
+     * generations are drawn at the end of each measuring window.
+     *
+     * @param rendered Whether the generation was drawn.
+     * @return Whether new rates have been measured.
+     */
+    public boolean generationFinished(boolean rendered) {
+        windowGenerations++;
+        if (rendered) {
+            windowFrames++;
+        }
+
+        long elapsed = System.nanoTime() - windowStart;
+        if (elapsed < MEASURE_INTERVAL) {
+            return false;
+        }
+        achievedRate = windowGenerations * 1e9 / elapsed;
+        frameRate = windowFrames * 1e9 / elapsed;
+        adapt();
+
+        windowStart = System.nanoTime();
+        windowGenerations = 0;
+        windowFrames = 0;
+        return true;
+    }
+
+    /**
+     * @return The target rate in generations per second, or UNLIMITED.
+     */
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * @return The generations per second achieved over the last measurement.
+     */
+    public double getAchievedRate() {
+        return achievedRate;
+    }
+
+    /**
+     * @return The frames per second drawn over the last measurement.
+     */
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    /**
+     * @return How many generations pass between two frames.
+     */
+    public int getRenderInterval() {
+        return renderInterval;
+    }
+
+    /**
+     * Choose a new render interval from the rates just measured.
+     */
+    private void adapt() {
+        if (period == 0) {
+            // as fast as possible, at a steady frame rate
+            renderInterval = (int) Math.round(achievedRate / UNLIMITED_FRAME_RATE);
+        } else if (achievedRate < 0.95 * targetRate && frameRate > MIN_FRAME_RATE) {
+            // falling short: draw less often
+            renderInterval *= 2;
+        } else if (achievedRate >= 0.95 * targetRate) {
+            // keeping up: draw a little more often again
+            renderInterval -= Math.max(renderInterval / 4, 1);
+        }
+        renderInterval = Math.max(Math.min(renderInterval, MAX_RENDER_INTERVAL), baseRenderInterval());
+    }
+
+    /**
+     * The render interval that keeps the frame rate within what a screen can
+     * show at the target rate.
+     */
+    private int baseRenderInterval() {
+        return period == 0 ? 1 : Math.max((int) Math.ceil(targetRate / MAX_FRAME_RATE), 1);
+    }
+}
@@ -0,0 +1,342 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes the generations of a simulation to viewers connected over a
+ * localhost socket. Each generation is sent as a delta frame listing only
+ * the locations whose state changed, with a full keyframe at a fixed
+ * interval and whenever a viewer needs to catch up, so the bandwidth of a
+ * frame grows with the number of changed cells rather than the field size.
+ *
+ * Publishing never blocks the simulation. Every viewer has its own small
+ * queue of frames and its own sending thread; a viewer too slow to keep up
+ * has its queued deltas dropped, and once its queue drains it is sent a
+ * single keyframe that stands in for everything it missed.
+ *
+ * The stream starts with the magic number, protocol version, depth and
+ * width as ints. Each frame is a type byte, the generation as an int, then:
+ * for a keyframe, run-length encoded states as (varint run length, state
+ * byte) pairs covering the whole field; for a delta, a varint count of
+ * changes followed by (varint gap from the previous index, state byte)
+ * pairs in increasing index order. States are CellState codes.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.05
+ */
+
+public class FrameServer implements AutoCloseable {
+    // Magic number at the start of every stream ("CSIM").
+    public static final int MAGIC = 0x4353494D;
+    public static final int VERSION = 1;
+
+    // Frame types.
+    public static final byte KEYFRAME = 0;
+    public static final byte DELTA = 1;
+
+    // How many frames may wait for one viewer before it is treated as slow.
+    private static final int CLIENT_QUEUE_SIZE = 16;
+
+    private final int depth, width;
+
+    // How often a keyframe is sent to every viewer, in generations.
+    private final int keyframeInterval;
+
+    // The state of every location as of the last published generation.
+    private final byte[] states;
+
+    private final ServerSocket serverSocket;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Start listening for viewers on the loopback interface.
+     *
+     * @param port             The port to listen on (0 picks a free port).
+     * @param depth            The depth of the field being published.
+     * @param width            The width of the field being published.
+     * @param keyframeInterval How often every viewer is sent a keyframe.
+     * @throws IOException If the port cannot be opened.
+     */
+    public FrameServer(int port, int depth, int width, int keyframeInterval) throws IOException {
+        this.depth = depth;
+        this.width = width;
+        this.keyframeInterval = Math.max(keyframeInterval, 1);
+        states = new byte[depth * width];
+
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "frame-server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Run a headless simulation and publish it.
+     * Usage: FrameServer [port] [generations] [depth] [width] [seed]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 110;
+        int width = args.length > 3 ? Integer.parseInt(args[3]) : 140;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1122;
+
+        Simulator simulator = new Simulator(depth, width, new SimulationParameters(), seed);
+        try (FrameServer server = new FrameServer(port, depth, width, 100)) {
+            System.out.println("Publishing on localhost:" + server.getPort());
+            simulator.setFrameServer(server);
+            simulator.reset(true);
+            simulator.simulateHeadless(generations, null);
+        }
+    }
+
+    /**
+     * @return The port viewers connect to.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Replace the whole published state, e.g. after the field has been reset,
+     * and send every viewer a keyframe of it.
+     *
+     * @param generation The current generation.
+     * @param field      The field to publish.
+     */
+    public void publishAll(int generation, Field field) {
+        for (int row = 0; row < depth; row++) {
+            for (int col = 0; col < width; col++) {
+                states[row * width + col] = (byte) CellState.of(field.getObjectAt(row, col));
+            }
+        }
+        if (!clients.isEmpty()) {
+            byte[] keyframe = encodeKeyframe(generation);
+            for (Client client : clients) {
+                client.replaceWith(keyframe);
+            }
+        }
+    }
+
+    /**
+     * Publish the changes made by one generation. The changed indices must be
+     * in increasing order.
+     *
+     * @param generation The generation that was just simulated.
+     * @param indices    The indices (row * width + col) of changed locations.
+     * @param newStates  The new state code of each changed location.
+     * @param count      The number of changes in the arrays.
+     */
+    public void publish(int generation, int[] indices, byte[] newStates, int count) {
+        for (int i = 0; i < count; i++) {
+            states[indices[i]] = newStates[i];
+        }
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        byte[] delta = null;
+        byte[] keyframe = null;
+        boolean periodicKeyframe = generation % keyframeInterval == 0;
+
+        for (Client client : clients) {
+            if (client.resyncing) {
+                // send a keyframe only once the backlog has gone
+                if (!client.queue.isEmpty()) {
+                    continue;
+                }
+                client.resyncing = false;
+                keyframe = keyframe != null ? keyframe : encodeKeyframe(generation);
+                client.offer(keyframe);
+            } else if (periodicKeyframe) {
+                keyframe = keyframe != null ? keyframe : encodeKeyframe(generation);
+                client.offer(keyframe);
+            } else {
+                delta = delta != null ? delta : encodeDelta(generation, indices, newStates, count);
+                client.offer(delta);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting viewers and disconnect the current ones.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Client client : clients) {
+            client.disconnect();
+        }
+    }
+
+    /**
+     * Accept viewers until the server is closed, greeting each with the
+     * stream header and a keyframe.
+     */
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Client client = new Client(socket);
+                // the first frame it receives is a keyframe
+                client.resyncing = true;
+                clients.add(client);
+                client.start();
+            } catch (IOException e) {
+                // the socket was closed, or the viewer went away while connecting
+            }
+        }
+    }
+
+    /**
+     * Encode the whole published state as run-length encoded runs.
+     */
+    private byte[] encodeKeyframe(int generation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(KEYFRAME);
+        writeInt(bytes, generation);
+
+        int i = 0;
+        while (i < states.length) {
+            byte state = states[i];
+            int run = 1;
+            while (i + run < states.length && states[i + run] == state) {
+                run++;
+            }
+            writeVarint(bytes, run);
+            bytes.write(state);
+            i += run;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode the changes of one generation.
+     */
+    private byte[] encodeDelta(int generation, int[] indices, byte[] newStates, int count) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + count * 3);
+        bytes.write(DELTA);
+        writeInt(bytes, generation);
+        writeVarint(bytes, count);
+
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarint(bytes, indices[i] - previous);
+            bytes.write(newStates[i]);
+            previous = indices[i];
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write a big-endian int.
+     */
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Write a non-negative int in 7-bit groups, lowest first, with the high bit
+     * marking that more groups follow.
+     */
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * A connected viewer with its own queue of frames and sending thread.
+     */
+    private class Client {
+        private final Socket socket;
+        private final ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(CLIENT_QUEUE_SIZE);
+
+        // Set when frames were dropped; the viewer is owed a keyframe.
+        private volatile boolean resyncing;
+
+        private Client(Socket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Start the thread that sends this viewer its frames.
+         */
+        private void start() {
+            Thread sender = new Thread(this::sendLoop, "frame-server-client");
+            sender.setDaemon(true);
+            sender.start();
+        }
+
+        /**
+         * Queue a frame, dropping the backlog if the viewer has fallen behind.
+         */
+        private void offer(byte[] frame) {
+            if (!queue.offer(frame)) {
+                queue.clear();
+                resyncing = true;
+            }
+        }
+
+        /**
+         * Drop anything queued and send the given keyframe next.
+         */
+        private void replaceWith(byte[] keyframe) {
+            queue.clear();
+            resyncing = false;
+            queue.offer(keyframe);
+        }
+
+        /**
+         * Send the stream header, then frames as they arrive.
+         */
+        private void sendLoop() {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(depth);
+                out.writeInt(width);
+                out.flush();
+
+                while (!closed) {
+                    byte[] frame = queue.take();
+                    out.write(frame);
+                    // send straight away unless more frames are already waiting
+                    if (queue.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // the viewer disconnected or the server is closing
+            } finally {
+                clients.remove(this);
+                disconnect();
+            }
+        }
+
+        /**
+         * Close the connection to the viewer.
+         */
+        private void disconnect() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * An immutable summary of a single generation of the simulation: how many
+ * living cells of each species there are, and how many cells were born,
+ * died, became infected or were engulfed during the step that produced it.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.01
+ */
+
+public class GenerationRecord {
+    // The generation this record describes.
+    private final int generation;
+
+    // Living population per species, indexed by Species ordinal.
+    private final int[] population;
+
+    // Rule outcomes observed while committing this generation.
+    private final int births, deaths, infections, engulfs;
+
+    // How often each rule fired, or null if firings were not counted.
+    private final RuleCounters.Counts ruleCounts;
+
+    /**
+     * Create a record of one generation.
+     *
+     * @param generation The generation being described.
+     * @param population Living cells per species, indexed by Species ordinal.
+     * @param births     Cells that were dead and are now alive.
+     * @param deaths     Cells that were alive and are now dead.
+     * @param infections Cells that became INFECTED.
+     * @param engulfs    Cells that were turned into Helicobacter.
+     */
+    public GenerationRecord(int generation, int[] population, int births, int deaths, int infections,
+            int engulfs) {
+        this(generation, population, births, deaths, infections, engulfs, null);
+    }
+
+    /**
+     * Create a record of one generation, with the rule firings counted while
+     * stepping to it.
+     *
+     * @param generation The generation being described.
+     * @param population Living cells per species, indexed by Species ordinal.
+     * @param births     Cells that were dead and are now alive.
+     * @param deaths     Cells that were alive and are now dead.
+     * @param infections Cells that became INFECTED.
+     * @param engulfs    Cells that were turned into Helicobacter.
+     * @param ruleCounts The rule firings and species changes, or null.
+     */
+    public GenerationRecord(int generation, int[] population, int births, int deaths, int infections,
+            int engulfs, RuleCounters.Counts ruleCounts) {
+        this.generation = generation;
+        this.population = population.clone();
+        this.births = births;
+        this.deaths = deaths;
+        this.infections = infections;
+        this.engulfs = engulfs;
+        this.ruleCounts = ruleCounts;
+    }
+
+    /**
+     * @return The generation this record describes.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param species The species to look up.
+     * @return The number of living cells of that species.
+     */
+    public int getPopulation(Species species) {
+        return population[species.ordinal()];
+    }
+
+    /**
+     * @return The total number of living cells.
+     */
+    public int getTotalPopulation() {
+        int total = 0;
+        for (int count : population) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of cells that came alive in this generation.
+     */
+    public int getBirths() {
+        return births;
+    }
+
+    /**
+     * @return The number of cells that died in this generation.
+     */
+    public int getDeaths() {
+        return deaths;
+    }
+
+    /**
+     * @return The number of cells that became infected in this generation.
+     */
+    public int getInfections() {
+        return infections;
+    }
+
+    /**
+     * @return The number of cells engulfed by Helicobacter in this generation.
+     */
+    public int getEngulfs() {
+        return engulfs;
+    }
+
+    /**
+     * @return How often each rule fired and how many cells changed species,
+     *         or null if these were not counted.
+     */
+    public RuleCounters.Counts getRuleCounts() {
+        return ruleCounts;
+    }
+}
@@ -1,5 +1,4 @@
 import java.awt.Color;
-import java.util.List;
 
 /**
  * Represents a distinct type of bacteria.
@@ -26,28 +25,32 @@ public class Helicobacter extends Cell {
         super(field, location, new Color(200, 255, 255), Species.HELICOBACTER);
     }
 
+    public Helicobacter(Field field, int index) {
+        super(field, index, new Color(200, 255, 255), Species.HELICOBACTER);
+    }
+
     /**
      * This is how the Helicobacter decides if it's alive or not
      */
     @Override
     public void act(int generation) {
-        // get all the living neighbours of the same colour
-        List<Cell> sameNeighbours = getLivingNeighboursBySpecies(getSpecies());
+        // count the living neighbours of the same colour
+        int sameNeighbours = countLivingNeighboursBySpecies(getSpecies());
 
         if (isAlive()) {
             // if exactly 1 helicobacter neighbour, cell dies
-            if (sameNeighbours.size() == 1) {
+            if (sameNeighbours == 1) {
                 setNextState(false);
                 // if exactly 3 helicobacter neighbours, cell is set alive
-            } else if (sameNeighbours.size() == 3) {
+            } else if (sameNeighbours == 3) {
                 setNextState(true);
                 // if more than 3 helicobacter neighbours, cell dies due to overcrowding
-            } else if (sameNeighbours.size() > 3) {
+            } else if (sameNeighbours > 3) {
                 setNextState(false);
             }
         } else {
             // if the cell is dead, and has exactly 3 neighbours, dead cell is set alive
-            if (sameNeighbours.size() == 3) {
+            if (sameNeighbours == 3) {
                 setNextState(true);
             }
         }
@@ -1,5 +1,4 @@
 import java.awt.Color;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -27,24 +26,29 @@ public class Isseria extends Cell {
         super(field, location, Color.MAGENTA, Species.ISSERIA);
     }
 
+    public Isseria(Field field, int index) {
+        super(field, index, Color.MAGENTA, Species.ISSERIA);
+    }
+
     /**
      * This is how the Isseria decides if it's alive or not
      */
     @Override
     public void act(int generation) {
-        Random rand = new Random();
+        Random rand = getField().getRandom();
+        SimulationParameters parameters = getField().getParameters();
 
-        // get all the living neighbours of the same colour
-        List<Cell> sameNeighbours = getLivingNeighboursBySpecies(getSpecies());
+        // count the living neighbours of the same colour
+        int sameNeighbours = countLivingNeighboursBySpecies(getSpecies());
 
         // if exactly 2 neighbours, there is a chance that the cell is set alive
-        if (sameNeighbours.size() == 2) {
-            if (rand.nextDouble() < 0.6)
+        if (sameNeighbours == 2) {
+            if (rand.nextDouble() < parameters.getIsseriaTwoNeighbourSurvival())
                 setNextState(true);
         }
         // if exactly 4 neighbours, there is a chance that the cell is set alive
-        else if (sameNeighbours.size() == 4) {
-            if (rand.nextDouble() < 0.5)
+        else if (sameNeighbours == 4) {
+            if (rand.nextDouble() < parameters.getIsseriaFourNeighbourSurvival())
                 setNextState(true);
         } else {
             // if any other number of neighbours, cell dies or stays dead
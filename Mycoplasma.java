@@ -1,5 +1,4 @@
 import java.awt.Color;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -29,32 +28,37 @@ public class Mycoplasma extends Cell {
         super(field, location, Color.ORANGE, Species.MYCOPLASMA);
     }
 
+    public Mycoplasma(Field field, int index) {
+        super(field, index, Color.ORANGE, Species.MYCOPLASMA);
+    }
+
     /**
      * This is how the Mycoplasma decides if it's alive or not
      */
     @Override
     public void act(int generation) {
-        // get all the living neighbours of the same colour
-        List<Cell> sameNeighbours = getLivingNeighboursBySpecies(getSpecies());
+        // count the living neighbours of the same colour
+        int sameNeighbours = countLivingNeighboursBySpecies(getSpecies());
 
-        Random rand = Randomizer.getRandom();
+        Random rand = getField().getRandom();
 
         if (isAlive()) {
             // live on if there are 2 or 3 neighbours
-            if (sameNeighbours.size() > 1 && sameNeighbours.size() < 4)
+            if (sameNeighbours > 1 && sameNeighbours < 4)
                 setNextState(true);
             else {
                 // if the cell is infected, there is a probability that is set alive
                 // as generations increase, the probability decreases to a minimum of 7%.
                 if (getSpecies() == Species.INFECTED && rand.nextDouble() < Math.max(10 / generation, 0.09)) {
                     setNextState(true);
+                    countFiring(RuleCounters.Event.REVIVAL);
                 } else
                     // otherwise cell dies
                     setNextState(false);
             }
         }
         // if the cell is dead and has exactly 3 neighbours, revive it
-        else if (sameNeighbours.size() == 3)
+        else if (sameNeighbours == 3)
             setNextState(true);
     }
 
@@ -64,17 +68,17 @@ public class Mycoplasma extends Cell {
      */
     @Override
     public void breedIfPossible() {
-        Random rand = new Random();
+        Random rand = getField().getRandom();
 
-        // get all the living neighbours that are Mycoplasma type
-        List<Cell> mycoNeighbours = getLivingNeighboursBySpecies(Species.MYCOPLASMA);
-        // get all the living neighbours that are Isseria type
-        List<Cell> isseNeighbours = getLivingNeighboursBySpecies(Species.ISSERIA);
+        // count the living neighbours that are Mycoplasma type
+        int mycoNeighbours = countLivingNeighboursBySpecies(Species.MYCOPLASMA);
+        // count the living neighbours that are Isseria type
+        int isseNeighbours = countLivingNeighboursBySpecies(Species.ISSERIA);
 
         // if a dead cell is surrounded by more than one Mycoplasma neighbour AND more
         // than one Isseria neighbour, attempt to breed
         if (!isAlive()) {
-            if (mycoNeighbours.size() >= 1 && isseNeighbours.size() >= 1) {
+            if (mycoNeighbours >= 1 && isseNeighbours >= 1) {
                 // probability that the cells becomes infected
                 if (rand.nextDouble() < 0.9) {
                     setNextSpecies(Species.INFECTED);
@@ -83,6 +87,7 @@ public class Mycoplasma extends Cell {
                     setNextSpecies(Species.ISSERIA);
                 }
                 setNextState(true);
+                countFiring(RuleCounters.Event.BREED);
             }
         }
     }
@@ -0,0 +1,66 @@
+/**
+ * Counts neighbours over a SpeciesGrid a strip of rows at a time and applies
+ * birth/survival rules to the counts. Implementations differ only in speed;
+ * given the same input they produce identical output.
+ *
+ * Rules are given as bit masks over neighbour counts: bit n of the birth
+ * mask is set if an empty location with n neighbours of the species becomes
+ * that species, and bit n of the survival mask is set if a living cell of
+ * the species with n such neighbours lives on. Conway's rules (B3/S23) are
+ * therefore a birth mask of 1 << 3 and a survival mask of (1 << 2) | (1 << 3).
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.03
+ */
+
+public interface NeighbourKernel {
+    /**
+     * For every location in rows [fromRow, toRow), count how many of its eight
+     * neighbours hold a living cell of the given species.
+     *
+     * @param grid    The grid to read.
+     * @param species The species code to count (see SpeciesGrid.code).
+     * @param fromRow The first row of the strip.
+     * @param toRow   One past the last row of the strip.
+     * @param counts  Receives the counts, in the grid's padded layout.
+     */
+    void countNeighbours(SpeciesGrid grid, byte species, int fromRow, int toRow, byte[] counts);
+
+    /**
+     * Apply a birth/survival rule for one species to rows [fromRow, toRow),
+     * writing the resulting species codes into next. Locations holding other
+     * species are copied unchanged.
+     *
+     * @param grid         The grid to read.
+     * @param species      The species code the rule applies to.
+     * @param counts       Neighbour counts of that species, from
+     *                     countNeighbours.
+     * @param birthMask    Counts at which an empty location is born.
+     * @param survivalMask Counts at which a living cell survives.
+     * @param fromRow      The first row of the strip.
+     * @param toRow        One past the last row of the strip.
+     * @param next         Receives the new codes, in the grid's padded layout.
+     */
+    void applyRule(SpeciesGrid grid, byte species, byte[] counts, int birthMask, int survivalMask, int fromRow,
+            int toRow, byte[] next);
+
+    /**
+     * Create the fastest kernel available. The vectorised kernel is used when
+     * it has been compiled (from the vector directory) and the
+     * jdk.incubator.vector module has been added to the JVM (with
+     * --add-modules jdk.incubator.vector); otherwise the scalar one is used.
+     *
+     * @return A neighbour kernel.
+     */
+    static NeighbourKernel create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (NeighbourKernel) Class.forName("VectorNeighbourKernel").getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // fall through to the scalar kernel
+            }
+        }
+        return new ScalarNeighbourKernel();
+    }
+}
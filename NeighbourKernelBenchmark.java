@@ -0,0 +1,104 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures how long the scalar and vectorised neighbour kernels take to
+ * count every species' neighbours and apply Conway's rule to Mycoplasma
+ * over a randomly filled grid, and checks that both give the same result.
+ * Compile vector/VectorNeighbourKernel.java and run with --add-modules
+ * jdk.incubator.vector to include the vectorised kernel; without them only
+ * the scalar kernel is measured.
+ * Usage: NeighbourKernelBenchmark [size] [generations]
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.03
+ */
+
+public class NeighbourKernelBenchmark {
+    // The species whose neighbours are counted every generation.
+    private static final Species[] LIVING_SPECIES = { Species.HELICOBACTER, Species.MYCOPLASMA, Species.ISSERIA,
+            Species.INFECTED };
+
+    // Conway's rules: born with 3 neighbours, survive with 2 or 3.
+    private static final int BIRTH_MASK = 1 << 3;
+    private static final int SURVIVAL_MASK = (1 << 2) | (1 << 3);
+
+    /**
+     * Run the benchmark.
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        SpeciesGrid grid = randomGrid(size, new Random(1122));
+
+        NeighbourKernel scalar = new ScalarNeighbourKernel();
+        NeighbourKernel fastest = NeighbourKernel.create();
+
+        long scalarNanos = time(scalar, grid, generations);
+        System.out.printf("%-24s %8.2f ns/cell%n", scalar.getClass().getName(),
+                (double) scalarNanos / generations / size / size);
+
+        if (fastest.getClass() == ScalarNeighbourKernel.class) {
+            System.out.println("The vectorised kernel is not available (compile vector/ and add jdk.incubator.vector); "
+                    + "only the scalar kernel was measured.");
+            return;
+        }
+
+        long fastestNanos = time(fastest, grid, generations);
+        System.out.printf("%-24s %8.2f ns/cell%n", fastest.getClass().getName(),
+                (double) fastestNanos / generations / size / size);
+        System.out.printf("Speed-up: %.2fx%n", (double) scalarNanos / fastestNanos);
+
+        boolean same = Arrays.equals(step(scalar, grid), step(fastest, grid));
+        System.out.println(same ? "Results match." : "RESULTS DIFFER!");
+    }
+
+    /**
+     * Time a number of generations after warming the kernel up.
+     */
+    private static long time(NeighbourKernel kernel, SpeciesGrid grid, int generations) {
+        for (int i = 0; i < Math.max(generations / 4, 5); i++) {
+            step(kernel, grid);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < generations; i++) {
+            step(kernel, grid);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Count the neighbours of every species and apply Conway's rule to
+     * Mycoplasma over the whole grid.
+     */
+    private static byte[] step(NeighbourKernel kernel, SpeciesGrid grid) {
+        int length = grid.getCells().length;
+        byte[] counts = new byte[length];
+        byte[] next = new byte[length];
+        for (Species species : LIVING_SPECIES) {
+            kernel.countNeighbours(grid, SpeciesGrid.code(species), 0, grid.getDepth(), counts);
+            if (species == Species.MYCOPLASMA) {
+                kernel.applyRule(grid, SpeciesGrid.code(species), counts, BIRTH_MASK, SURVIVAL_MASK, 0,
+                        grid.getDepth(), next);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * A square grid in which about a third of the locations hold a random
+     * living species.
+     */
+    private static SpeciesGrid randomGrid(int size, Random rand) {
+        SpeciesGrid grid = new SpeciesGrid(size, size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (rand.nextDouble() < 0.35) {
+                    grid.set(row, col, SpeciesGrid.code(LIVING_SPECIES[rand.nextInt(LIVING_SPECIES.length)]));
+                }
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,320 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs many headless simulations concurrently over a grid of parameter
+ * values and a list of seeds, and collects the results in a single CSV file.
+ *
+ * The grid file holds one "name = value, value, ..." line per setting, with
+ * '#' starting a comment. Any SimulationParameters field may be swept; the
+ * settings "seeds", "generations", "depth", "width", "sampleInterval",
+ * "neighbourhood" (moore, von_neumann or hexagonal), "wrapped" (true or
+ * false) and "spawn" (a SpawnMap description such as gradients or
+ * noise:7:12) control the runs themselves. The density each species is
+ * spawned at is its "AliveProb" parameter, which may be swept like any other.
+ * Every combination of parameter values is run once per seed, each run with
+ * its own Field and random stream.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.01
+ */
+
+public class ParameterSweep {
+    // Settings in the grid file which are not simulation parameters.
+    private static final String SEEDS = "seeds";
+    private static final String GENERATIONS = "generations";
+    private static final String DEPTH = "depth";
+    private static final String WIDTH = "width";
+    private static final String SAMPLE_INTERVAL = "sampleInterval";
+    private static final String NEIGHBOURHOOD = "neighbourhood";
+    private static final String WRAPPED = "wrapped";
+    private static final String SPAWN = "spawn";
+
+    // The species that are written as population columns.
+    private static final Species[] REPORTED_SPECIES = { Species.HELICOBACTER, Species.MYCOPLASMA,
+            Species.ISSERIA, Species.INFECTED };
+
+    // Swept parameter names, in file order, mapped to the values to try.
+    private Map<String, double[]> grid = new LinkedHashMap<>();
+
+    // The seeds each combination of parameters is run with.
+    private long[] seeds = { 1122 };
+
+    // Size and length of each run.
+    private int generations = 1000;
+    private int depth = 110;
+    private int width = 140;
+
+    // How often a time-series sample is recorded, in generations.
+    private int sampleInterval = 10;
+
+    // The topology of every run's field.
+    private Topology.Neighbourhood neighbourhood = Topology.Neighbourhood.MOORE;
+    private boolean wrapped = false;
+
+    // Where each species is spawned on every run's field.
+    private SpawnMap spawnMap = SpawnMap.quadrants();
+
+    // Number of worker threads running simulations.
+    private int threads;
+
+    /**
+     * Run a sweep from the command line.
+     * Usage: ParameterSweep grid-file results-file [threads]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 2) {
+            System.out.println("Usage: ParameterSweep <grid-file> <results-file> [threads]");
+            return;
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        ParameterSweep sweep = new ParameterSweep(Paths.get(args[0]), threads);
+        sweep.run(Paths.get(args[1]));
+    }
+
+    /**
+     * Read a parameter grid from a file.
+     *
+     * @param gridFile The file describing the grid.
+     * @param threads  The number of simulations to run at once.
+     * @throws IOException If the file cannot be read.
+     */
+    public ParameterSweep(Path gridFile, int threads) throws IOException {
+        this.threads = Math.max(threads, 1);
+
+        for (String line : Files.readAllLines(gridFile, StandardCharsets.UTF_8)) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            int equals = line.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected 'name = values' but found: " + line);
+            }
+            String name = line.substring(0, equals).trim();
+            String[] values = line.substring(equals + 1).split(",");
+
+            switch (name) {
+                case SEEDS:
+                    seeds = new long[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        seeds[i] = Long.parseLong(values[i].trim());
+                    }
+                    break;
+                case GENERATIONS:
+                    generations = Integer.parseInt(values[0].trim());
+                    break;
+                case DEPTH:
+                    depth = Integer.parseInt(values[0].trim());
+                    break;
+                case WIDTH:
+                    width = Integer.parseInt(values[0].trim());
+                    break;
+                case SAMPLE_INTERVAL:
+                    sampleInterval = Math.max(Integer.parseInt(values[0].trim()), 1);
+                    break;
+                case NEIGHBOURHOOD:
+                    neighbourhood = Topology.Neighbourhood.valueOf(values[0].trim().toUpperCase());
+                    break;
+                case WRAPPED:
+                    wrapped = Boolean.parseBoolean(values[0].trim());
+                    break;
+                case SPAWN:
+                    // the description may itself hold commas, e.g. in a file name
+                    spawnMap = SpawnMap.parse(line.substring(equals + 1));
+                    break;
+                default:
+                    double[] parsed = new double[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        parsed[i] = Double.parseDouble(values[i].trim());
+                    }
+                    // fail early on a misspelt parameter name
+                    new SimulationParameters().get(name);
+                    grid.put(name, parsed);
+            }
+        }
+        // fail early on a field shape the topology rejects
+        new Topology(depth, width, neighbourhood, wrapped);
+    }
+
+    /**
+     * Run every combination of parameters with every seed and write the
+     * results. At most twice as many runs as there are threads are in flight
+     * at once, so memory stays bounded however large the sweep is.
+     *
+     * @param resultsFile The CSV file to write.
+     * @throws IOException If the results cannot be written.
+     */
+    public void run(Path resultsFile) throws IOException, InterruptedException, ExecutionException {
+        List<SimulationParameters> combinations = expandGrid();
+        int totalRuns = combinations.size() * seeds.length;
+        int maxInFlight = threads * 2;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<RunResult> completion = new ExecutorCompletionService<>(pool);
+
+        try (BufferedWriter out = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8)) {
+            writeHeader(out);
+
+            int runId = 0;
+            int inFlight = 0;
+            for (SimulationParameters parameters : combinations) {
+                for (long seed : seeds) {
+                    if (inFlight == maxInFlight) {
+                        writeResult(out, completion.take().get());
+                        inFlight--;
+                    }
+                    int id = runId++;
+                    completion.submit(() -> runOne(id, parameters, seed));
+                    inFlight++;
+                }
+            }
+            while (inFlight > 0) {
+                writeResult(out, completion.take().get());
+                inFlight--;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.println("Completed " + totalRuns + " runs.");
+    }
+
+    /**
+     * Build one set of parameters for every combination of grid values.
+     */
+    private List<SimulationParameters> expandGrid() {
+        List<SimulationParameters> combinations = new ArrayList<>();
+        combinations.add(new SimulationParameters());
+
+        for (Map.Entry<String, double[]> entry : grid.entrySet()) {
+            List<SimulationParameters> expanded = new ArrayList<>();
+            for (SimulationParameters base : combinations) {
+                for (double value : entry.getValue()) {
+                    SimulationParameters parameters = new SimulationParameters(base);
+                    parameters.set(entry.getKey(), value);
+                    expanded.add(parameters);
+                }
+            }
+            combinations = expanded;
+        }
+        return combinations;
+    }
+
+    /**
+     * Run a single headless simulation, keeping every sampleInterval-th record
+     * and the final one.
+     */
+    private RunResult runOne(int id, SimulationParameters parameters, long seed) {
+        Simulator simulator = new Simulator(depth, width, parameters, seed,
+                new Topology(depth, width, neighbourhood, wrapped));
+        simulator.getPopulation().setSpawnMap(spawnMap);
+        simulator.reset(true);
+
+        List<GenerationRecord> samples = new ArrayList<>();
+        simulator.simulateHeadless(generations, record -> {
+            if (record.getGeneration() % sampleInterval == 0) {
+                samples.add(record);
+            }
+        });
+        return new RunResult(id, parameters, seed, samples, simulator.getLatestRecord(),
+                simulator.getDetectedPeriod());
+    }
+
+    /**
+     * Write the column names of the results file.
+     */
+    private void writeHeader(BufferedWriter out) throws IOException {
+        StringBuilder header = new StringBuilder("run,seed");
+        for (String name : grid.keySet()) {
+            header.append(',').append(name);
+        }
+        header.append(",final,period,generation");
+        for (Species species : REPORTED_SPECIES) {
+            header.append(',').append(species.name().toLowerCase());
+        }
+        header.append(",births,deaths,infections,engulfs");
+        out.write(header.toString());
+        out.newLine();
+    }
+
+    /**
+     * Write the time-series samples and final record of one run.
+     */
+    private void writeResult(BufferedWriter out, RunResult result) throws IOException {
+        for (GenerationRecord record : result.samples) {
+            writeRow(out, result, record, false);
+        }
+        if (result.last != null) {
+            writeRow(out, result, result.last, true);
+        }
+    }
+
+    /**
+     * Write a single row of the results file.
+     */
+    private void writeRow(BufferedWriter out, RunResult result, GenerationRecord record, boolean isFinal)
+            throws IOException {
+        StringBuilder row = new StringBuilder();
+        row.append(result.id).append(',').append(result.seed);
+        for (String name : grid.keySet()) {
+            row.append(',').append(result.parameterValues.get(name));
+        }
+        row.append(',').append(isFinal ? 1 : 0);
+        row.append(',').append(isFinal ? result.period : 0);
+        row.append(',').append(record.getGeneration());
+        for (Species species : REPORTED_SPECIES) {
+            row.append(',').append(record.getPopulation(species));
+        }
+        row.append(',').append(record.getBirths());
+        row.append(',').append(record.getDeaths());
+        row.append(',').append(record.getInfections());
+        row.append(',').append(record.getEngulfs());
+        out.write(row.toString());
+        out.newLine();
+    }
+
+    /**
+     * The outcome of one simulation run.
+     */
+    private class RunResult {
+        private final int id;
+        private final long seed;
+        private final Map<String, Double> parameterValues = new LinkedHashMap<>();
+        private final List<GenerationRecord> samples;
+        private final GenerationRecord last;
+        private final int period;
+
+        private RunResult(int id, SimulationParameters parameters, long seed, List<GenerationRecord> samples,
+                GenerationRecord last, int period) {
+            this.id = id;
+            this.period = period;
+            this.seed = seed;
+            this.samples = samples;
+            this.last = last;
+
+            // remember the values of the swept parameters for this run
+            for (String name : grid.keySet()) {
+                parameterValues.put(name, parameters.get(name));
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Fills a field with its starting cells. At each location, the species that
+ * can be spawned alive are tried in turn, each with a chance of its density
+ * times its weight in the spawn map; a location where none is spawned gets a
+ * dead cell of the species the map weighs highest there.
+ *
+ * The field is filled in tiles of a fixed number of rows, in parallel. Each
+ * tile draws from its own random stream, seeded from the population seed and
+ * the tile's number, so a seed gives the same field however many threads
+ * share the work and in whatever order they finish.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.14
+ */
+
+public class Population {
+    // Rows filled by one task.
+    private static final int TILE_ROWS = 16;
+
+    // Species that can be spawned alive, in the order they are tried.
+    private static final Species[] SPAWNED = { Species.MYCOPLASMA, Species.HELICOBACTER, Species.ISSERIA };
+
+    // Species given to dead cells, in order of preference when weights tie.
+    private static final Species[] DEAD_PREFERENCE = { Species.ISSERIA, Species.HELICOBACTER, Species.MYCOPLASMA };
+
+    private SpawnMap spawnMap = SpawnMap.quadrants();
+
+    // Chance of a living cell where a species has full weight, by ordinal.
+    private final double[] densities = new double[Species.values().length];
+
+    /**
+     * Create a population with the quadrant spawn map and the densities of
+     * the given parameters.
+     *
+     * @param parameters The parameters to take the densities from.
+     */
+    public Population(SimulationParameters parameters) {
+        densities[Species.MYCOPLASMA.ordinal()] = parameters.getMycoplasmaAliveProb();
+        densities[Species.HELICOBACTER.ordinal()] = parameters.getHelicobacterAliveProb();
+        densities[Species.ISSERIA.ordinal()] = parameters.getIsseriaAliveProb();
+    }
+
+    /**
+     * Fill the field with new cells, replacing any already there.
+     *
+     * @param field  The field, which should be empty.
+     * @param seed   The seed the cells are spawned from.
+     * @param living Whether to spawn living cells, or only dead ones.
+     * @return The new cells, in index order.
+     */
+    public Cell[] populate(Field field, long seed, boolean living) {
+        Cell[] cells = new Cell[field.getDepth() * field.getWidth()];
+        int tiles = (field.getDepth() + TILE_ROWS - 1) / TILE_ROWS;
+
+        field.beginBulkPlacement();
+        try {
+            IntStream.range(0, tiles).parallel().forEach(tile -> populateTile(field, cells, tile, seed, living));
+        } finally {
+            field.endBulkPlacement();
+        }
+        return cells;
+    }
+
+    /**
+     * @param spawnMap Where each species is spawned from now on.
+     */
+    public void setSpawnMap(SpawnMap spawnMap) {
+        this.spawnMap = spawnMap;
+    }
+
+    /**
+     * @return Where each species is spawned.
+     */
+    public SpawnMap getSpawnMap() {
+        return spawnMap;
+    }
+
+    /**
+     * Set the chance of a living cell of a species where the spawn map gives
+     * it full weight.
+     *
+     * @param species One of the species spawned alive.
+     * @param density The chance, from 0 to 1.
+     */
+    public void setDensity(Species species, double density) {
+        if (density < 0 || density > 1) {
+            throw new IllegalArgumentException("A density must be between 0 and 1: " + density);
+        }
+        densities[species.ordinal()] = density;
+    }
+
+    /**
+     * @param species A species.
+     * @return The chance of a living cell of that species at full weight.
+     */
+    public double getDensity(Species species) {
+        return densities[species.ordinal()];
+    }
+
+    /**
+     * Create the cells of one tile of rows.
+     */
+    private void populateTile(Field field, Cell[] cells, int tile, long seed, boolean living) {
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        SplittableRandom rand = new SplittableRandom(seed + tile * 0x9E3779B97F4A7C15L);
+
+        for (int row = tile * TILE_ROWS; row < Math.min((tile + 1) * TILE_ROWS, depth); row++) {
+            for (int col = 0; col < width; col++) {
+                Species alive = null;
+                if (living) {
+                    for (Species species : SPAWNED) {
+                        // draw for every species, so the stream does not depend on the map
+                        double draw = rand.nextDouble();
+                        if (alive == null && draw < densities[species.ordinal()]
+                                * spawnMap.weight(species, row, col, depth, width)) {
+                            alive = species;
+                        }
+                    }
+                }
+
+                int index = row * width + col;
+                if (alive != null) {
+                    cells[index] = create(field, index, alive);
+                } else {
+                    cells[index] = create(field, index, deadSpecies(row, col, depth, width));
+                    cells[index].setDead();
+                }
+            }
+        }
+    }
+
+    /**
+     * The species the spawn map weighs highest at a location.
+     */
+    private Species deadSpecies(int row, int col, int depth, int width) {
+        Species best = DEAD_PREFERENCE[DEAD_PREFERENCE.length - 1];
+        double bestWeight = 0;
+        for (Species species : DEAD_PREFERENCE) {
+            double weight = spawnMap.weight(species, row, col, depth, width);
+            if (weight > bestWeight) {
+                best = species;
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Create a living cell of the class that spawns as the given species,
+     * which places itself in the field.
+     *
+     * @param field   The field to place it in.
+     * @param index   The index of its location.
+     * @param species Mycoplasma, Helicobacter or Isseria.
+     * @return The cell.
+     */
+    public static Cell create(Field field, int index, Species species) {
+        switch (species) {
+            case HELICOBACTER:
+                return new Helicobacter(field, index);
+            case ISSERIA:
+                return new Isseria(field, index);
+            default:
+                return new Mycoplasma(field, index);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.awt.*;
+import javax.swing.*;
+
+/**
+ * A live chart of the population of each species over the whole run so
+ * far, read from a population history. Each pixel column shows, for every
+ * species, a faint band from the smallest to the largest population over the
+ * generations it covers, with a line through the mean. Drawing asks the
+ * history for one summary per column, so it takes the same time however
+ * long the run has gone on.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.19
+ */
+
+public class PopulationChart extends JPanel {
+    // The species charted, and the colour each is drawn in.
+    private static final Species[] CHARTED = { Species.HELICOBACTER, Species.MYCOPLASMA, Species.ISSERIA,
+            Species.INFECTED };
+    private static final Color[] COLORS = { new Color(0, 150, 150), Color.ORANGE, Color.MAGENTA, Color.RED };
+
+    // Opacity of the band between the smallest and largest population.
+    private static final int BAND_ALPHA = 60;
+
+    // Space left around the plot for the labels, in pixels.
+    private static final int MARGIN = 4, LABEL_HEIGHT = 14;
+
+    private PopulationHistory history;
+
+    /**
+     * Create an empty chart of the given size.
+     *
+     * @param width  The width it asks for, in pixels.
+     * @param height The height it asks for, in pixels.
+     */
+    public PopulationChart(int width, int height) {
+        setPreferredSize(new Dimension(width, height));
+        setBackground(Color.white);
+        setToolTipText("Population of each species: the mean, within the smallest and largest");
+    }
+
+    /**
+     * @param history The history to chart, or null to chart nothing.
+     */
+    public void setHistory(PopulationHistory history) {
+        this.history = history;
+        repaint();
+    }
+
+    /**
+     * Draw the chart.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (history == null || history.getLatestGeneration() < 0) {
+            return;
+        }
+        int from = history.getOldestGeneration();
+        int to = history.getLatestGeneration();
+
+        int left = MARGIN;
+        int top = MARGIN + LABEL_HEIGHT;
+        int plotWidth = getWidth() - 2 * MARGIN;
+        int plotHeight = getHeight() - top - LABEL_HEIGHT - MARGIN;
+        if (plotWidth <= 0 || plotHeight <= 0) {
+            return;
+        }
+
+        // a column per generation while there are fewer generations than
+        // pixels, spread across the whole width
+        int columns = (int) Math.min(plotWidth, (long) to - from + 1);
+        PopulationHistory.Summary summary = history.summarise(from, to, columns);
+        int peak = Math.max(summary.getPeak(CHARTED), 1);
+        double scale = (double) plotHeight / peak;
+        int bottom = top + plotHeight;
+
+        g.setColor(Color.lightGray);
+        g.drawLine(left, bottom, left + plotWidth, bottom);
+
+        // the columns with something recorded; a column can be empty where
+        // the history's buckets are wider than a column, so the chart joins
+        // the columns either side of it
+        int[] filled = new int[columns];
+        int points = 0;
+        for (int column = 0; column < columns; column++) {
+            if (summary.hasData(column)) {
+                filled[points++] = column;
+            }
+        }
+        int[] xs = new int[2 * points];
+        int[] ys = new int[2 * points];
+        int[] means = new int[points];
+        for (int i = 0; points > 0 && i < CHARTED.length; i++) {
+            Species species = CHARTED[i];
+            Color color = COLORS[i];
+            Color band = new Color(color.getRed(), color.getGreen(), color.getBlue(), BAND_ALPHA);
+
+            // one band and one line per species, so a redraw takes a few calls
+            for (int k = 0; k < points; k++) {
+                int column = filled[k];
+                int x = left + (columns == 1 ? plotWidth / 2 : (int) ((long) column * (plotWidth - 1) / (columns - 1)));
+                xs[k] = x;
+                ys[k] = bottom - (int) Math.round(summary.getMax(species, column) * scale);
+                xs[2 * points - 1 - k] = x;
+                ys[2 * points - 1 - k] = bottom - (int) Math.round(summary.getMin(species, column) * scale);
+                means[k] = bottom - (int) Math.round(summary.getMean(species, column) * scale);
+            }
+            if (points == 1) {
+                // a single generation: its range as a bar and its mean as a tick
+                g.setColor(band);
+                g.drawLine(xs[0], ys[0], xs[0], ys[1]);
+                g.setColor(color);
+                g.drawLine(xs[0] - 2, means[0], xs[0] + 2, means[0]);
+            } else {
+                g.setColor(band);
+                g.fillPolygon(xs, ys, 2 * points);
+                g.setColor(color);
+                g.drawPolyline(xs, means, points);
+            }
+        }
+
+        g.setColor(Color.darkGray);
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString("Peak " + peak, left, MARGIN + metrics.getAscent());
+        g.drawString("Generation " + from, left, bottom + metrics.getAscent());
+        String end = "Generation " + to;
+        g.drawString(end, left + plotWidth - metrics.stringWidth(end), bottom + metrics.getAscent());
+    }
+}
@@ -0,0 +1,337 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes per-generation population data to disk on a background thread.
+ * The simulation thread hands records over through a bounded ring buffer
+ * using a non-blocking offer, so a slow disk can never stall the
+ * simulation; if the buffer is full the record is dropped and counted.
+ * The writer thread drains the buffer in batches and writes either a CSV
+ * file or a compact binary file laid out column by column per batch.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.01
+ */
+
+public class PopulationExporter implements AutoCloseable {
+    /**
+     * The on-disk layout of the exported data.
+     */
+    public enum Format {
+        CSV, BINARY
+    }
+
+    // Magic number at the start of every binary export ("CPOP").
+    private static final int BINARY_MAGIC = 0x43504F50;
+
+    // Version of the binary layout: 2 added the rule columns.
+    private static final int BINARY_VERSION = 2;
+
+    // The species that are written as population columns.
+    private static final Species[] EXPORTED_SPECIES = { Species.HELICOBACTER, Species.MYCOPLASMA,
+            Species.ISSERIA, Species.INFECTED };
+
+    // The rule decisions written as columns after the outcomes, followed by a
+    // column for every change from one exported species to another. A
+    // decision counts a rule firing, which a later rule in the same
+    // generation may overrule, so e.g. infection_decisions need not match
+    // infections. The columns are -1 when the simulation does not count its
+    // rule firings.
+    private static final int NOT_COUNTED = -1;
+    private static final RuleCounters.Event[] EXPORTED_DECISIONS = { RuleCounters.Event.BREED,
+            RuleCounters.Event.INFECTION, RuleCounters.Event.ENGULF, RuleCounters.Event.REVIVAL };
+    private static final List<String> RULE_COLUMNS = ruleColumnNames();
+
+    // Records waiting to be written.
+    private final ArrayBlockingQueue<GenerationRecord> buffer;
+
+    // The largest number of records written in one go.
+    private final int batchSize;
+
+    private final Format format;
+
+    // Exactly one of these is used, depending on the format.
+    private BufferedWriter csvOut;
+    private DataOutputStream binaryOut;
+
+    private final Thread writer;
+
+    // Set once close() has been called; the writer drains and stops.
+    private volatile boolean closing;
+
+    // The first error the writer thread hit, reported on close.
+    private volatile IOException failure;
+
+    // Number of records that were dropped because the buffer was full.
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Create an exporter writing to the given file with a default buffer of
+     * 4096 records written in batches of 256.
+     *
+     * @param path   The file to write to. It is created or truncated.
+     * @param format The layout to write.
+     * @throws IOException If the file cannot be opened.
+     */
+    public PopulationExporter(Path path, Format format) throws IOException {
+        this(path, format, 4096, 256);
+    }
+
+    /**
+     * Create an exporter writing to the given file.
+     *
+     * @param path      The file to write to. It is created or truncated.
+     * @param format    The layout to write.
+     * @param capacity  How many records may be waiting before new ones are
+     *                  dropped.
+     * @param batchSize The largest number of records written in one batch.
+     * @throws IOException If the file cannot be opened.
+     */
+    public PopulationExporter(Path path, Format format, int capacity, int batchSize) throws IOException {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be greater than zero.");
+        }
+        this.format = format;
+        this.batchSize = batchSize;
+        buffer = new ArrayBlockingQueue<>(capacity);
+
+        if (format == Format.CSV) {
+            csvOut = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            writeCsvHeader();
+        } else {
+            binaryOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+            writeBinaryHeader();
+        }
+
+        writer = new Thread(this::drainLoop, "population-exporter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Hand a record to the exporter without blocking.
+     *
+     * @param record The record to write.
+     * @return true if the record was queued, false if it was dropped.
+     */
+    public boolean offer(GenerationRecord record) {
+        if (closing || !buffer.offer(record)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return How many records have been dropped so far.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Write out everything still queued, then close the file.
+     *
+     * @throws IOException If writing failed at any point.
+     */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        try {
+            writer.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if (csvOut != null) {
+            csvOut.close();
+        } else {
+            binaryOut.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Body of the writer thread: wait for records, then write them a batch at
+     * a time until the exporter is closed and the buffer is empty.
+     */
+    private void drainLoop() {
+        List<GenerationRecord> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closing || !buffer.isEmpty()) {
+                GenerationRecord first = buffer.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+                batch.clear();
+            }
+            flush();
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException ie) {
+            // stop writing
+        }
+    }
+
+    /**
+     * Write a batch of records in the chosen format.
+     */
+    private void writeBatch(List<GenerationRecord> batch) throws IOException {
+        if (format == Format.CSV) {
+            for (GenerationRecord record : batch) {
+                StringBuilder line = new StringBuilder();
+                line.append(record.getGeneration());
+                for (Species species : EXPORTED_SPECIES) {
+                    line.append(',').append(record.getPopulation(species));
+                }
+                line.append(',').append(record.getBirths());
+                line.append(',').append(record.getDeaths());
+                line.append(',').append(record.getInfections());
+                line.append(',').append(record.getEngulfs());
+                for (int value : ruleColumns(record)) {
+                    line.append(',').append(value);
+                }
+                csvOut.write(line.toString());
+                csvOut.newLine();
+            }
+        } else {
+            // one block per batch: the row count followed by each column in turn
+            binaryOut.writeInt(batch.size());
+            for (GenerationRecord record : batch) {
+                binaryOut.writeInt(record.getGeneration());
+            }
+            for (Species species : EXPORTED_SPECIES) {
+                for (GenerationRecord record : batch) {
+                    binaryOut.writeInt(record.getPopulation(species));
+                }
+            }
+            for (GenerationRecord record : batch) {
+                binaryOut.writeInt(record.getBirths());
+            }
+            for (GenerationRecord record : batch) {
+                binaryOut.writeInt(record.getDeaths());
+            }
+            for (GenerationRecord record : batch) {
+                binaryOut.writeInt(record.getInfections());
+            }
+            for (GenerationRecord record : batch) {
+                binaryOut.writeInt(record.getEngulfs());
+            }
+            int[][] ruleValues = new int[batch.size()][];
+            for (int row = 0; row < batch.size(); row++) {
+                ruleValues[row] = ruleColumns(batch.get(row));
+            }
+            for (int column = 0; column < RULE_COLUMNS.size(); column++) {
+                for (int[] values : ruleValues) {
+                    binaryOut.writeInt(values[column]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The names of the rule decision and species change columns.
+     */
+    private static List<String> ruleColumnNames() {
+        List<String> names = new ArrayList<>();
+        for (RuleCounters.Event event : EXPORTED_DECISIONS) {
+            names.add(event.name().toLowerCase() + "_decisions");
+        }
+        for (Species from : EXPORTED_SPECIES) {
+            for (Species to : EXPORTED_SPECIES) {
+                if (from != to) {
+                    names.add(from.name().toLowerCase() + "_to_" + to.name().toLowerCase());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * The values of the rule decision and species change columns of a
+     * record, all NOT_COUNTED if its rule firings were not counted.
+     */
+    private static int[] ruleColumns(GenerationRecord record) {
+        int[] values = new int[RULE_COLUMNS.size()];
+        RuleCounters.Counts counts = record.getRuleCounts();
+        if (counts == null) {
+            Arrays.fill(values, NOT_COUNTED);
+            return values;
+        }
+        int column = 0;
+        for (RuleCounters.Event event : EXPORTED_DECISIONS) {
+            values[column++] = (int) counts.get(event);
+        }
+        for (Species from : EXPORTED_SPECIES) {
+            for (Species to : EXPORTED_SPECIES) {
+                if (from != to) {
+                    values[column++] = (int) counts.getTransitions(from, to);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Push buffered output to disk.
+     */
+    private void flush() throws IOException {
+        if (csvOut != null) {
+            csvOut.flush();
+        } else {
+            binaryOut.flush();
+        }
+    }
+
+    /**
+     * Write the column names as the first line of a CSV export.
+     */
+    private void writeCsvHeader() throws IOException {
+        StringBuilder header = new StringBuilder("generation");
+        for (Species species : EXPORTED_SPECIES) {
+            header.append(',').append(species.name().toLowerCase());
+        }
+        header.append(",births,deaths,infections,engulfs");
+        for (String name : RULE_COLUMNS) {
+            header.append(',').append(name);
+        }
+        csvOut.write(header.toString());
+        csvOut.newLine();
+    }
+
+    /**
+     * Write the magic number, version and column names of a binary export.
+     * Every column is a 32-bit big-endian integer.
+     */
+    private void writeBinaryHeader() throws IOException {
+        binaryOut.writeInt(BINARY_MAGIC);
+        binaryOut.writeInt(BINARY_VERSION);
+        binaryOut.writeInt(EXPORTED_SPECIES.length + 5 + RULE_COLUMNS.size());
+        binaryOut.writeUTF("generation");
+        for (Species species : EXPORTED_SPECIES) {
+            binaryOut.writeUTF(species.name().toLowerCase());
+        }
+        binaryOut.writeUTF("births");
+        binaryOut.writeUTF("deaths");
+        binaryOut.writeUTF("infections");
+        binaryOut.writeUTF("engulfs");
+        for (String name : RULE_COLUMNS) {
+            binaryOut.writeUTF(name);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+import java.util.Arrays;
+
+/**
+ * The population of each species over every generation of a run, kept in
+ * constant memory however long the run goes. Recent generations are kept
+ * exactly; older ones only as the smallest, largest and mean population
+ * over buckets of generations.
+ *
+ * The history is kept at several levels. Level 0 has a bucket per
+ * generation, and each level after it has buckets twice as wide. Every
+ * level holds the same number of its most recent buckets, so each reaches
+ * twice as far back as the one before, and the last reaches back the
+ * furthest; anything older than that is forgotten. A query reads from the
+ * finest level that reaches back far enough, which never holds more than a
+ * fixed number of buckets, so its cost does not depend on the length of the
+ * run.
+ *
+ * Generations are recorded by the simulation thread and read by the event
+ * dispatch thread, so every method is synchronized.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.19
+ */
+
+public class PopulationHistory {
+    private static final int SPECIES = Species.values().length;
+
+    // Buckets held at each level, and the number of levels.
+    private final int capacity;
+    private final int levels;
+
+    // Per level, per slot and species: [level][slot * SPECIES + species].
+    private final int[][] min, max;
+    private final long[][] sum;
+
+    // Per level and slot, the number of generations recorded in the bucket.
+    private final int[][] count;
+
+    // Per level, the numbers of the oldest and newest buckets held, counted
+    // from the first generation recorded; newest is -1 if the level is empty.
+    private final long[] oldest, newest;
+
+    // The first and latest generations recorded; first is -1 while empty.
+    private int first = -1, latest;
+
+    /**
+     * Create a history holding about 256 million generations in 20 levels of
+     * 512 buckets.
+     */
+    public PopulationHistory() {
+        this(512, 20);
+    }
+
+    /**
+     * Create an empty history.
+     *
+     * @param capacity The number of buckets held at each level.
+     * @param levels   The number of levels.
+     */
+    public PopulationHistory(int capacity, int levels) {
+        this.capacity = capacity;
+        this.levels = levels;
+        min = new int[levels][capacity * SPECIES];
+        max = new int[levels][capacity * SPECIES];
+        sum = new long[levels][capacity * SPECIES];
+        count = new int[levels][capacity];
+        oldest = new long[levels];
+        newest = new long[levels];
+        clear();
+    }
+
+    /**
+     * Forget every generation recorded.
+     */
+    public synchronized void clear() {
+        first = -1;
+        latest = -1;
+        Arrays.fill(oldest, 0);
+        Arrays.fill(newest, -1);
+    }
+
+    /**
+     * Record the population of the next generation. A generation that is not
+     * after the latest one recorded first drops everything after it, as
+     * after a rewind.
+     *
+     * @param record The generation's record.
+     */
+    public synchronized void record(GenerationRecord record) {
+        int generation = record.getGeneration();
+        if (first < 0 || generation < first) {
+            clear();
+            first = generation;
+        } else if (generation <= latest) {
+            truncate(generation - 1);
+        }
+        latest = generation;
+
+        long offset = generation - first;
+        for (int level = 0; level < levels; level++) {
+            long bucket = offset >> level;
+            int slot = (int) (bucket % capacity);
+            if (bucket > newest[level]) {
+                // empty the buckets skipped over, and start this one
+                for (long skipped = Math.max(newest[level] + 1, bucket - capacity + 1); skipped < bucket; skipped++) {
+                    count[level][(int) (skipped % capacity)] = 0;
+                }
+                newest[level] = bucket;
+                oldest[level] = Math.max(oldest[level], bucket - capacity + 1);
+                count[level][slot] = 0;
+                Arrays.fill(min[level], slot * SPECIES, (slot + 1) * SPECIES, Integer.MAX_VALUE);
+                Arrays.fill(max[level], slot * SPECIES, (slot + 1) * SPECIES, Integer.MIN_VALUE);
+                Arrays.fill(sum[level], slot * SPECIES, (slot + 1) * SPECIES, 0);
+            }
+            count[level][slot]++;
+            for (Species species : Species.values()) {
+                int value = record.getPopulation(species);
+                int at = slot * SPECIES + species.ordinal();
+                min[level][at] = Math.min(min[level][at], value);
+                max[level][at] = Math.max(max[level][at], value);
+                sum[level][at] += value;
+            }
+        }
+    }
+
+    /**
+     * Drop the generations after the given one. Buckets wider than one
+     * generation that began before it are kept whole, so their summaries may
+     * still include some of the dropped generations.
+     *
+     * @param generation The last generation to keep.
+     */
+    public synchronized void truncate(int generation) {
+        if (first < 0 || generation >= latest) {
+            return;
+        }
+        if (generation < first) {
+            clear();
+            return;
+        }
+        // buckets after the new newest may have replaced older ones in the
+        // ring, which are no longer held either; a level left with none starts
+        // again from the next bucket
+        long offset = generation - first;
+        for (int level = 0; level < levels; level++) {
+            long oldestHeld = Math.max(oldest[level], newest[level] - capacity + 1);
+            newest[level] = Math.min(newest[level], offset >> level);
+            oldest[level] = Math.min(oldestHeld, newest[level] + 1);
+        }
+        latest = generation;
+    }
+
+    /**
+     * @return The first generation still held, or -1 if none is.
+     */
+    public synchronized int getOldestGeneration() {
+        if (first < 0) {
+            return -1;
+        }
+        int top = levels - 1;
+        return (int) (first + (oldest[top] << top));
+    }
+
+    /**
+     * @return The latest generation recorded, or -1 if none has been.
+     */
+    public synchronized int getLatestGeneration() {
+        return first < 0 ? -1 : latest;
+    }
+
+    /**
+     * Summarise the population over a range of generations in a number of
+     * columns of equal width, e.g. one per pixel of a chart.
+     *
+     * @param from    The first generation of the range.
+     * @param to      The last generation of the range.
+     * @param columns The number of columns.
+     * @return The summary, with NaN means for columns with nothing recorded.
+     */
+    public synchronized Summary summarise(int from, int to, int columns) {
+        Summary summary = new Summary(from, to, columns);
+        if (first < 0 || to < from || columns <= 0) {
+            return summary;
+        }
+
+        // the finest level that still holds the start of the range
+        int level = 0;
+        while (level < levels - 1 && first + (oldest[level] << level) > from) {
+            level++;
+        }
+
+        long span = (long) to - from + 1;
+        long firstBucket = Math.max(Math.max((long) from - first, 0) >> level, oldest[level]);
+        long lastBucket = Math.min(((long) to - first) >> level, newest[level]);
+        for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            int slot = (int) (bucket % capacity);
+            if (count[level][slot] == 0) {
+                continue;
+            }
+            long start = first + (bucket << level);
+            int column = (int) Math.max(0, Math.min(columns - 1, (start - from) * columns / span));
+            summary.count[column] += count[level][slot];
+            for (int species = 0; species < SPECIES; species++) {
+                int at = slot * SPECIES + species;
+                int into = species * columns + column;
+                summary.min[into] = Math.min(summary.min[into], min[level][at]);
+                summary.max[into] = Math.max(summary.max[into], max[level][at]);
+                summary.sum[into] += sum[level][at];
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * The population over a range of generations, summarised in columns.
+     */
+    public static class Summary {
+        private final int from, to, columns;
+        private final int[] min, max, count;
+        private final long[] sum;
+
+        private Summary(int from, int to, int columns) {
+            this.from = from;
+            this.to = to;
+            this.columns = Math.max(columns, 0);
+            min = new int[SPECIES * this.columns];
+            max = new int[SPECIES * this.columns];
+            sum = new long[SPECIES * this.columns];
+            count = new int[this.columns];
+            Arrays.fill(min, Integer.MAX_VALUE);
+            Arrays.fill(max, Integer.MIN_VALUE);
+        }
+
+        /**
+         * @return The first generation summarised.
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * @return The last generation summarised.
+         */
+        public int getTo() {
+            return to;
+        }
+
+        /**
+         * @return The number of columns.
+         */
+        public int getColumns() {
+            return columns;
+        }
+
+        /**
+         * @param column A column.
+         * @return Whether any generation was recorded in it.
+         */
+        public boolean hasData(int column) {
+            return count[column] > 0;
+        }
+
+        /**
+         * @return The smallest population of a species in a column.
+         */
+        public int getMin(Species species, int column) {
+            return min[species.ordinal() * columns + column];
+        }
+
+        /**
+         * @return The largest population of a species in a column.
+         */
+        public int getMax(Species species, int column) {
+            return max[species.ordinal() * columns + column];
+        }
+
+        /**
+         * @return The mean population of a species in a column, or NaN if
+         *         nothing was recorded in it.
+         */
+        public double getMean(Species species, int column) {
+            return count[column] == 0 ? Double.NaN : (double) sum[species.ordinal() * columns + column] / count[column];
+        }
+
+        /**
+         * @return The largest population of any of the given species in any
+         *         column, or 0 if there is none.
+         */
+        public int getPeak(Species... species) {
+            int peak = 0;
+            for (Species s : species) {
+                for (int column = 0; column < columns; column++) {
+                    if (count[column] > 0) {
+                        peak = Math.max(peak, getMax(s, column));
+                    }
+                }
+            }
+            return peak;
+        }
+    }
+}
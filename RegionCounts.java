@@ -0,0 +1,162 @@
+import java.util.stream.IntStream;
+
+/**
+ * Summed-area tables of the living cells of each species, so that the
+ * number of living cells of a species in any rectangle of the field can be
+ * found with four lookups, however large the rectangle. Entry (r, c) of a
+ * table holds the count over every location above and to the left of (r, c),
+ * with an extra zero row and column so that rectangles touching the edges
+ * need no special cases.
+ *
+ * The tables are rebuilt from the field in two passes, first summing along
+ * each row and then down each column. Rows, and then blocks of columns, are
+ * independent of each other, so on large fields each pass is split across
+ * threads.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.12
+ */
+
+public class RegionCounts {
+    // Fields with fewer locations than this are rebuilt on a single thread,
+    // since starting the parallel passes would cost more than it saves.
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+
+    // Columns summed together by one task of the column pass, so that each
+    // task works along rows of memory rather than down single columns.
+    private static final int COLUMN_BLOCK = 64;
+
+    // The species with tables, in the order of their ordinals.
+    private static final Species[] SPECIES = Species.values();
+
+    private final int depth, width;
+
+    // Width of a table row, including the zero column.
+    private final int stride;
+
+    // One summed-area table per species, indexed by ordinal.
+    private final int[][] tables;
+
+    /**
+     * Create empty tables for a field of the given size.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public RegionCounts(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        stride = width + 1;
+        tables = new int[SPECIES.length][(depth + 1) * stride];
+    }
+
+    /**
+     * Rebuild the tables from the field as it is now.
+     *
+     * @param field The field, of the size the tables were created for.
+     */
+    public void rebuild(Field field) {
+        boolean parallel = depth * width >= PARALLEL_THRESHOLD;
+
+        IntStream rows = IntStream.range(0, depth);
+        (parallel ? rows.parallel() : rows).forEach(row -> sumRow(field, row));
+
+        IntStream blocks = IntStream.range(0, (width + COLUMN_BLOCK - 1) / COLUMN_BLOCK);
+        (parallel ? blocks.parallel() : blocks).forEach(this::sumColumns);
+    }
+
+    /**
+     * Count the living cells of a species in a rectangle of the field. The
+     * rectangle is clipped to the field.
+     *
+     * @param species The species to count.
+     * @param top     The first row of the rectangle.
+     * @param left    The first column of the rectangle.
+     * @param bottom  The last row of the rectangle.
+     * @param right   The last column of the rectangle.
+     * @return The number of living cells of the species in the rectangle.
+     */
+    public int count(Species species, int top, int left, int bottom, int right) {
+        top = Math.max(top, 0);
+        left = Math.max(left, 0);
+        bottom = Math.min(bottom, depth - 1);
+        right = Math.min(right, width - 1);
+        if (top > bottom || left > right) {
+            return 0;
+        }
+
+        int[] table = tables[species.ordinal()];
+        int below = (bottom + 1) * stride;
+        int above = top * stride;
+        return table[below + right + 1] - table[below + left] - table[above + right + 1] + table[above + left];
+    }
+
+    /**
+     * Count the living cells of every species in a rectangle of the field.
+     *
+     * @param top    The first row of the rectangle.
+     * @param left   The first column of the rectangle.
+     * @param bottom The last row of the rectangle.
+     * @param right  The last column of the rectangle.
+     * @return The number of living cells in the rectangle.
+     */
+    public int countAll(int top, int left, int bottom, int right) {
+        int total = 0;
+        for (Species species : SPECIES) {
+            total += count(species, top, left, bottom, right);
+        }
+        return total;
+    }
+
+    /**
+     * @return The depth of the field the tables cover.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field the tables cover.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Fill one row of every table with the running count along that row of
+     * the field.
+     */
+    private void sumRow(Field field, int row) {
+        int start = (row + 1) * stride;
+        for (int[] table : tables) {
+            table[start] = 0;
+        }
+        int[] running = new int[SPECIES.length];
+        for (int col = 0; col < width; col++) {
+            Cell cell = field.getObjectAt(row * width + col);
+            if (cell != null && cell.isAlive()) {
+                running[cell.getSpecies().ordinal()]++;
+            }
+            for (int s = 0; s < tables.length; s++) {
+                tables[s][start + col + 1] = running[s];
+            }
+        }
+    }
+
+    /**
+     * Add the counts of the rows above to one block of columns of every table.
+     */
+    private void sumColumns(int block) {
+        int from = 1 + block * COLUMN_BLOCK;
+        int to = Math.min(from + COLUMN_BLOCK, stride);
+        for (int[] table : tables) {
+            for (int row = 2; row <= depth; row++) {
+                int above = (row - 1) * stride;
+                int here = row * stride;
+                for (int col = from; col < to; col++) {
+                    table[here + col] += table[above + col];
+                }
+            }
+        }
+    }
+}
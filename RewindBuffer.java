@@ -0,0 +1,298 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Keeps compressed snapshots of the most recent generations so that a
+ * simulation can be wound back to any of them. Each snapshot packs the
+ * field as runs of identical locations: every run is a 5-bit symbol (the
+ * species, whether the cell is alive, and whether it will be alive next)
+ * followed by its length in Elias gamma code, so the large uniform areas of
+ * a typical field take only a few bits. Once the snapshots use more memory
+ * than the budget allows, the oldest are dropped first.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.11
+ */
+
+public class RewindBuffer {
+    // Bits in the symbol of a location: its state code and a next-alive bit.
+    private static final int SYMBOL_BITS = 5;
+
+    // Rough memory used by a snapshot besides its packed bits, in bytes.
+    private static final int SNAPSHOT_OVERHEAD = 48;
+
+    private final long memoryBudget;
+
+    // Snapshots in increasing order of generation.
+    private final ArrayDeque<Snapshot> snapshots = new ArrayDeque<>();
+    private long memoryUsed;
+
+    /**
+     * Create an empty buffer.
+     *
+     * @param memoryBudget The most memory the snapshots may use, in bytes. The
+     *                     newest snapshot is always kept, whatever its size.
+     */
+    public RewindBuffer(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Take a snapshot of the field. Any snapshots of this or later
+     * generations are replaced, since the simulation has moved on from an
+     * earlier point.
+     *
+     * @param generation The generation the field is at.
+     * @param field      The field.
+     */
+    public void record(int generation, Field field) {
+        while (!snapshots.isEmpty() && snapshots.peekLast().generation >= generation) {
+            memoryUsed -= snapshots.pollLast().size();
+        }
+
+        Snapshot snapshot = new Snapshot(generation, encode(field));
+        snapshots.addLast(snapshot);
+        memoryUsed += snapshot.size();
+
+        while (memoryUsed > memoryBudget && snapshots.size() > 1) {
+            memoryUsed -= snapshots.pollFirst().size();
+        }
+    }
+
+    /**
+     * Set the cells of the field back to how they were in the given
+     * generation.
+     *
+     * @param generation The generation to go back to.
+     * @param field      The field, of the size it was recorded at.
+     * @return Whether the generation was held and the field restored.
+     */
+    public boolean restore(int generation, Field field) {
+        Snapshot snapshot = find(generation);
+        if (snapshot == null) {
+            return false;
+        }
+        decode(snapshot.data, field);
+        return true;
+    }
+
+    /**
+     * @param generation A generation.
+     * @return Whether a snapshot of that generation is held.
+     */
+    public boolean contains(int generation) {
+        return find(generation) != null;
+    }
+
+    /**
+     * @return The oldest generation held, or -1 if there is none.
+     */
+    public int getOldestGeneration() {
+        return snapshots.isEmpty() ? -1 : snapshots.peekFirst().generation;
+    }
+
+    /**
+     * @return The newest generation held, or -1 if there is none.
+     */
+    public int getNewestGeneration() {
+        return snapshots.isEmpty() ? -1 : snapshots.peekLast().generation;
+    }
+
+    /**
+     * @return The number of snapshots held.
+     */
+    public int size() {
+        return snapshots.size();
+    }
+
+    /**
+     * @return The memory the snapshots use, in bytes.
+     */
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Drop every snapshot, e.g. when the field is reset.
+     */
+    public void clear() {
+        snapshots.clear();
+        memoryUsed = 0;
+    }
+
+    /**
+     * Find the snapshot of a generation, searching from whichever end of the
+     * buffer is closer.
+     */
+    private Snapshot find(int generation) {
+        if (snapshots.isEmpty() || generation < getOldestGeneration() || generation > getNewestGeneration()) {
+            return null;
+        }
+        if (generation - getOldestGeneration() <= getNewestGeneration() - generation) {
+            for (Snapshot snapshot : snapshots) {
+                if (snapshot.generation >= generation) {
+                    return snapshot.generation == generation ? snapshot : null;
+                }
+            }
+        } else {
+            for (Iterator<Snapshot> it = snapshots.descendingIterator(); it.hasNext();) {
+                Snapshot snapshot = it.next();
+                if (snapshot.generation <= generation) {
+                    return snapshot.generation == generation ? snapshot : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The symbol of a location: its state code and whether its cell
+     * will be alive in the next generation.
+     */
+    private static int symbol(Cell cell) {
+        int nextAlive = cell != null && cell.getNextAlive() ? 1 : 0;
+        return (CellState.of(cell) << 1) | nextAlive;
+    }
+
+    /**
+     * Pack the field as runs of identical symbols.
+     */
+    private static byte[] encode(Field field) {
+        int size = field.getDepth() * field.getWidth();
+        BitWriter out = new BitWriter(64);
+
+        int index = 0;
+        while (index < size) {
+            int symbol = symbol(field.getObjectAt(index));
+            int run = 1;
+            while (index + run < size && symbol(field.getObjectAt(index + run)) == symbol) {
+                run++;
+            }
+            out.write(symbol, SYMBOL_BITS);
+            out.writeGamma(run);
+            index += run;
+        }
+        return out.toBytes();
+    }
+
+    /**
+     * Unpack runs of symbols into the cells of the field.
+     */
+    private static void decode(byte[] data, Field field) {
+        int size = field.getDepth() * field.getWidth();
+        BitReader in = new BitReader(data);
+
+        int index = 0;
+        while (index < size) {
+            int symbol = in.read(SYMBOL_BITS);
+            int run = in.readGamma();
+            int state = symbol >>> 1;
+            for (int i = index; i < index + run; i++) {
+                Cell cell = field.getObjectAt(i);
+                if (cell != null) {
+                    cell.setSpecies(CellState.species(state));
+                    cell.setState(CellState.isAlive(state));
+                    cell.setNextState((symbol & 1) != 0);
+                }
+            }
+            index += run;
+        }
+    }
+
+    /**
+     * The packed field of one generation.
+     */
+    private static class Snapshot {
+        private final int generation;
+        private final byte[] data;
+
+        private Snapshot(int generation, byte[] data) {
+            this.generation = generation;
+            this.data = data;
+        }
+
+        /**
+         * @return The memory the snapshot uses, in bytes.
+         */
+        private long size() {
+            return data.length + SNAPSHOT_OVERHEAD;
+        }
+    }
+
+    /**
+     * Writes values bit by bit, most significant bit first.
+     */
+    private static class BitWriter {
+        private byte[] bytes;
+        private long bitCount;
+
+        private BitWriter(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        /**
+         * Write the lowest bits of a value.
+         */
+        private void write(int value, int bits) {
+            for (int i = bits - 1; i >= 0; i--) {
+                int byteIndex = (int) (bitCount >>> 3);
+                if (byteIndex == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                if (((value >>> i) & 1) != 0) {
+                    bytes[byteIndex] |= (byte) (0x80 >>> (bitCount & 7));
+                }
+                bitCount++;
+            }
+        }
+
+        /**
+         * Write a positive value in Elias gamma code: as many zeros as it has
+         * bits after the first, then the value itself.
+         */
+        private void writeGamma(int value) {
+            int bits = 32 - Integer.numberOfLeadingZeros(value);
+            write(0, bits - 1);
+            write(value, bits);
+        }
+
+        private byte[] toBytes() {
+            return Arrays.copyOf(bytes, (int) ((bitCount + 7) >>> 3));
+        }
+    }
+
+    /**
+     * Reads values written by a BitWriter.
+     */
+    private static class BitReader {
+        private final byte[] bytes;
+        private long bitCount;
+
+        private BitReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int readBit() {
+            int bit = (bytes[(int) (bitCount >>> 3)] >>> (7 - (bitCount & 7))) & 1;
+            bitCount++;
+            return bit;
+        }
+
+        private int read(int bits) {
+            int value = 0;
+            for (int i = 0; i < bits; i++) {
+                value = (value << 1) | readBit();
+            }
+            return value;
+        }
+
+        private int readGamma() {
+            int zeros = 0;
+            while (readBit() == 0) {
+                zeros++;
+            }
+            return (1 << zeros) | read(zeros);
+        }
+    }
+}
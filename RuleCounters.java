@@ -0,0 +1,200 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Counts how often each rule fires during a generation and how many cells
+ * change from each species to each other, to show why the population
+ * changes. The counts are taken from the counters once per generation,
+ * which starts them again from zero.
+ *
+ * Births and deaths are outcomes, counted as each generation is committed,
+ * as are the changes of species. The other events count decisions, made when
+ * a cell's rule fires; a rule applied later in the same generation, such as
+ * an engulf after an infection or the effect of a chemical layer, can still
+ * overrule a decision, so these counts need not match the outcomes in a
+ * GenerationRecord.
+ *
+ * The counters are striped: there is a copy of every counter per stripe,
+ * and a thread always counts in the stripe its id picks, so threads stepping
+ * parts of the field in parallel rarely touch the same counter. The stripes
+ * are padded apart so that they never share a cache line. A count is an
+ * atomic add, which costs little when no other thread is adding to the
+ * same stripe; the stripes are only summed when the counts are taken.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.19
+ */
+
+public class RuleCounters {
+    /**
+     * The events counted: BIRTH and DEATH are outcomes, the others decisions
+     * that a later rule may overrule.
+     */
+    public enum Event {
+        BIRTH("Births"), DEATH("Deaths"), BREED("Breeds"), INFECTION("Infections"), ENGULF("Engulfs"),
+        REVIVAL("Infected revivals");
+
+        private final String label;
+
+        Event(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final int EVENTS = Event.values().length;
+    private static final int SPECIES = Species.values().length;
+
+    // Counters in a stripe: the events, then [from species][to species].
+    private static final int SLOTS = EVENTS + SPECIES * SPECIES;
+
+    // Longs between the starts of neighbouring stripes, a multiple of 16
+    // (128 bytes) so that no two stripes share a cache line or a pair of them.
+    private static final int STRIDE = (SLOTS + 15) / 16 * 16;
+
+    private static final VarHandle COUNTER = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] counters;
+
+    // One less than the number of stripes, which is a power of two.
+    private final int stripeMask;
+
+    /**
+     * Create counters with a stripe for every processor.
+     */
+    public RuleCounters() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create counters for the given number of threads.
+     *
+     * @param threads How many threads are expected to count at once.
+     */
+    public RuleCounters(int threads) {
+        int stripes = Integer.highestOneBit(Math.max(threads, 1) * 2 - 1);
+        stripeMask = stripes - 1;
+        counters = new long[stripes * STRIDE];
+    }
+
+    /**
+     * Run a headless simulation, counting its rules, and print the counts of
+     * every hundredth generation.
+     * Usage: RuleCounters [generations] [depth] [width] [seed]
+     */
+    public static void main(String[] args) {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 110;
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 140;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1122;
+
+        Simulator simulator = new Simulator(depth, width, new SimulationParameters(), seed);
+        simulator.setRuleCounters(new RuleCounters());
+        simulator.reset(true);
+        for (int i = 1; i <= generations; i++) {
+            simulator.simOneGeneration();
+            if (i % 100 == 0 || i == generations) {
+                System.out.println("Generation " + simulator.getGeneration() + ": "
+                        + simulator.getLatestRecord().getRuleCounts());
+            }
+        }
+    }
+
+    /**
+     * Count one firing of a rule.
+     *
+     * @param event The rule outcome.
+     */
+    public void count(Event event) {
+        COUNTER.getAndAdd(counters, stripe() + event.ordinal(), 1L);
+    }
+
+    /**
+     * Count a cell changing species.
+     *
+     * @param from The species it was.
+     * @param to   The species it now is.
+     */
+    public void countTransition(Species from, Species to) {
+        COUNTER.getAndAdd(counters, stripe() + EVENTS + from.ordinal() * SPECIES + to.ordinal(), 1L);
+    }
+
+    /**
+     * Take the counts since they were last taken, and start again from zero.
+     * Nothing may be counting meanwhile, e.g. it is called between
+     * generations.
+     *
+     * @return The counts.
+     */
+    public Counts drain() {
+        long[] totals = new long[SLOTS];
+        for (int stripe = 0; stripe < counters.length; stripe += STRIDE) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                totals[slot] += counters[stripe + slot];
+                counters[stripe + slot] = 0;
+            }
+        }
+        return new Counts(totals);
+    }
+
+    /**
+     * The start of the stripe the current thread counts in.
+     */
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        // spread consecutive ids over the stripes
+        return ((int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & stripeMask) * STRIDE;
+    }
+
+    /**
+     * The counts of one generation.
+     */
+    public static class Counts {
+        private final long[] totals;
+
+        private Counts(long[] totals) {
+            this.totals = totals;
+        }
+
+        /**
+         * @param event A rule outcome.
+         * @return How many times it happened.
+         */
+        public long get(Event event) {
+            return totals[event.ordinal()];
+        }
+
+        /**
+         * @param from A species.
+         * @param to   Another species.
+         * @return How many cells changed from the first to the second.
+         */
+        public long getTransitions(Species from, Species to) {
+            return totals[EVENTS + from.ordinal() * SPECIES + to.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Event event : Event.values()) {
+                if (text.length() > 0) {
+                    text.append(", ");
+                }
+                text.append(event).append(' ').append(get(event));
+            }
+            for (Species from : Species.values()) {
+                for (Species to : Species.values()) {
+                    if (getTransitions(from, to) > 0) {
+                        text.append(", ").append(from).append(" to ").append(to).append(' ')
+                                .append(getTransitions(from, to));
+                    }
+                }
+            }
+            return text.toString();
+        }
+    }
+}
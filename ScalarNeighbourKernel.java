@@ -0,0 +1,68 @@
+/**
+ * A neighbour kernel written as plain loops. It works on any JVM and is the
+ * reference the vectorised kernel is measured against.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.03
+ */
+
+public class ScalarNeighbourKernel implements NeighbourKernel {
+    /**
+     * Count the neighbours of one species in a strip of rows.
+     */
+    @Override
+    public void countNeighbours(SpeciesGrid grid, byte species, int fromRow, int toRow, byte[] counts) {
+        for (int row = fromRow; row < toRow; row++) {
+            int start = grid.index(row, 0);
+            countRange(grid.getCells(), grid.getStride(), species, start, start + grid.getWidth(), counts);
+        }
+    }
+
+    /**
+     * Apply a birth/survival rule for one species to a strip of rows.
+     */
+    @Override
+    public void applyRule(SpeciesGrid grid, byte species, byte[] counts, int birthMask, int survivalMask,
+            int fromRow, int toRow, byte[] next) {
+        for (int row = fromRow; row < toRow; row++) {
+            int start = grid.index(row, 0);
+            applyRange(grid.getCells(), species, counts, birthMask, survivalMask, start, start + grid.getWidth(),
+                    next);
+        }
+    }
+
+    /**
+     * Count neighbours of one species for the array indices [from, to), which
+     * must lie within a single row.
+     */
+    static void countRange(byte[] cells, int stride, byte species, int from, int to, byte[] counts) {
+        for (int i = from; i < to; i++) {
+            int above = i - stride;
+            int below = i + stride;
+            int count = (cells[above - 1] == species ? 1 : 0) + (cells[above] == species ? 1 : 0)
+                    + (cells[above + 1] == species ? 1 : 0) + (cells[i - 1] == species ? 1 : 0)
+                    + (cells[i + 1] == species ? 1 : 0) + (cells[below - 1] == species ? 1 : 0)
+                    + (cells[below] == species ? 1 : 0) + (cells[below + 1] == species ? 1 : 0);
+            counts[i] = (byte) count;
+        }
+    }
+
+    /**
+     * Apply a birth/survival rule for one species to the array indices
+     * [from, to).
+     */
+    static void applyRange(byte[] cells, byte species, byte[] counts, int birthMask, int survivalMask, int from,
+            int to, byte[] next) {
+        for (int i = from; i < to; i++) {
+            byte current = cells[i];
+            int countBit = 1 << counts[i];
+            if (current == species) {
+                next[i] = (survivalMask & countBit) != 0 ? species : SpeciesGrid.NONE;
+            } else if (current == SpeciesGrid.NONE) {
+                next[i] = (birthMask & countBit) != 0 ? species : SpeciesGrid.NONE;
+            } else {
+                next[i] = current;
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Publishes the field into a memory-mapped file, so that analysis tools in
+ * other processes can map the same file and read the current generation
+ * straight out of shared memory. Only the locations that changed are written
+ * each generation, with no copying and nothing for the simulation to wait on.
+ *
+ * The file is a 32-byte header followed by one byte per location in
+ * row-major order, holding its CellState code (species ordinal shifted left
+ * once, plus 1 if alive). The header holds, little-endian: the magic number
+ * and version as ints at 0 and 4, the depth and width as ints at 8 and 12,
+ * the sequence number as a long at 16 and the generation as an int at 24.
+ *
+ * The sequence number works as a seqlock. It is odd while a generation is
+ * being written and even otherwise, and it grows with every write. A reader
+ * reads the sequence number, waiting while it is odd, then reads what it
+ * needs and reads the sequence number again: if it has not changed, what
+ * was read is a consistent snapshot of one generation; otherwise it tries
+ * again. Reader implements this for Java readers. On Linux, a file in
+ * /dev/shm keeps the mapping in memory only.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.17
+ */
+
+public class SharedFieldView implements AutoCloseable {
+    // Magic number at the start of the file ("CSHM").
+    public static final int MAGIC = 0x4353484D;
+    public static final int VERSION = 1;
+
+    // Offsets of the header fields, and the size of the header.
+    public static final int DEPTH_OFFSET = 8;
+    public static final int WIDTH_OFFSET = 12;
+    public static final int SEQUENCE_OFFSET = 16;
+    public static final int GENERATION_OFFSET = 24;
+    public static final int HEADER_SIZE = 32;
+
+    // Ordered access to the sequence number, which is 8-byte aligned since
+    // mappings start on a page boundary.
+    private static final VarHandle SEQUENCE =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int depth, width;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    // The sequence number as last written.
+    private long sequence;
+
+    /**
+     * Create or replace the file and map it.
+     *
+     * @param file  The file to publish into.
+     * @param depth The depth of the field being published.
+     * @param width The width of the field being published.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    public SharedFieldView(Path file, int depth, int width) throws IOException {
+        this.depth = depth;
+        this.width = width;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) depth * width);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(DEPTH_OFFSET, depth);
+        buffer.putInt(WIDTH_OFFSET, width);
+        buffer.putInt(GENERATION_OFFSET, 0);
+        SEQUENCE.setRelease(buffer, SEQUENCE_OFFSET, sequence);
+    }
+
+    /**
+     * Run a headless simulation and publish it, or with "read" as the first
+     * argument, follow a published simulation from another process.
+     * Usage: SharedFieldView file [generations] [depth] [width] [seed]
+     *        SharedFieldView read file
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: SharedFieldView <file> [generations] [depth] [width] [seed]");
+            System.out.println("       SharedFieldView read <file>");
+            return;
+        }
+        if (args[0].equals("read") && args.length > 1) {
+            follow(Paths.get(args[1]));
+            return;
+        }
+
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 110;
+        int width = args.length > 3 ? Integer.parseInt(args[3]) : 140;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1122;
+
+        Simulator simulator = new Simulator(depth, width, new SimulationParameters(), seed);
+        try (SharedFieldView view = new SharedFieldView(Paths.get(args[0]), depth, width)) {
+            simulator.setSharedFieldView(view);
+            simulator.reset(true);
+            simulator.simulateHeadless(generations, null);
+            System.out.println("Published " + simulator.getGeneration() + " generations to " + args[0]);
+        }
+    }
+
+    /**
+     * Print the living population of a published field twice a second.
+     */
+    private static void follow(Path file) throws IOException, InterruptedException {
+        try (Reader reader = new Reader(file)) {
+            byte[] grid = new byte[reader.getDepth() * reader.getWidth()];
+            while (true) {
+                int generation = reader.readSnapshot(grid);
+                int living = 0;
+                for (byte state : grid) {
+                    living += state & 1;
+                }
+                System.out.println("Generation " + generation + ": " + living + " living cells");
+                Thread.sleep(500);
+            }
+        }
+    }
+
+    /**
+     * Replace the whole published field, e.g. after it has been reset.
+     *
+     * @param generation The current generation.
+     * @param field      The field to publish.
+     */
+    public void publishAll(int generation, Field field) {
+        beginWrite();
+        for (int index = 0; index < depth * width; index++) {
+            buffer.put(HEADER_SIZE + index, (byte) CellState.of(field.getObjectAt(index)));
+        }
+        endWrite(generation);
+    }
+
+    /**
+     * Publish the changes made by one generation.
+     *
+     * @param generation The generation that was just simulated.
+     * @param indices    The indices (row * width + col) of changed locations.
+     * @param newStates  The new state code of each changed location.
+     * @param count      The number of changes in the arrays.
+     */
+    public void publish(int generation, int[] indices, byte[] newStates, int count) {
+        beginWrite();
+        for (int i = 0; i < count; i++) {
+            buffer.put(HEADER_SIZE + indices[i], newStates[i]);
+        }
+        endWrite(generation);
+    }
+
+    /**
+     * Stop publishing. The file is left behind with the last generation in it.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Make the sequence number odd, before any location is written.
+     */
+    private void beginWrite() {
+        sequence++;
+        SEQUENCE.setOpaque(buffer, SEQUENCE_OFFSET, sequence);
+        VarHandle.storeStoreFence();
+    }
+
+    /**
+     * Make the sequence number even again, after every location is written.
+     */
+    private void endWrite(int generation) {
+        buffer.putInt(GENERATION_OFFSET, generation);
+        sequence++;
+        SEQUENCE.setRelease(buffer, SEQUENCE_OFFSET, sequence);
+    }
+
+    /**
+     * Reads a field published by a SharedFieldView, usually in another
+     * process, in place in the mapped file.
+     */
+    public static class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int depth, width;
+
+        /**
+         * Map a published file for reading.
+         *
+         * @param file The file being published into.
+         * @throws IOException If the file cannot be mapped or was not written
+         *                     by a SharedFieldView.
+         */
+        public Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                channel.close();
+                throw new IOException("Not a shared field file: " + file);
+            }
+            depth = header.getInt(DEPTH_OFFSET);
+            width = header.getInt(WIDTH_OFFSET);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) depth * width);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Start a read, waiting while a generation is being written.
+         *
+         * @return The token to pass to validate once reading is done.
+         */
+        public long beginRead() {
+            long token;
+            while (((token = (long) SEQUENCE.getAcquire(buffer, SEQUENCE_OFFSET)) & 1) != 0) {
+                Thread.onSpinWait();
+            }
+            return token;
+        }
+
+        /**
+         * @param token The token returned by beginRead.
+         * @return Whether everything read since beginRead belongs to one
+         *         generation; if not, the read should be retried.
+         */
+        public boolean validate(long token) {
+            VarHandle.loadLoadFence();
+            return (long) SEQUENCE.getOpaque(buffer, SEQUENCE_OFFSET) == token;
+        }
+
+        /**
+         * @return The generation published, to be checked with validate.
+         */
+        public int getGeneration() {
+            return buffer.getInt(GENERATION_OFFSET);
+        }
+
+        /**
+         * @param index The index of a location (row * width + col).
+         * @return Its state code, to be checked with validate.
+         */
+        public int getState(int index) {
+            return buffer.get(HEADER_SIZE + index);
+        }
+
+        /**
+         * Copy a consistent snapshot of the field, retrying until one is read.
+         *
+         * @param grid Receives the state code of every location.
+         * @return The generation of the snapshot.
+         */
+        public int readSnapshot(byte[] grid) {
+            while (true) {
+                long token = beginRead();
+                int generation = getGeneration();
+                buffer.get(HEADER_SIZE, grid, 0, depth * width);
+                if (validate(token)) {
+                    return generation;
+                }
+            }
+        }
+
+        /**
+         * @return The depth of the published field.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return The width of the published field.
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * The tunable probabilities that drive the behaviour of the simulation.
+ * Every field starts at the value the simulation has always used, so a
+ * default SimulationParameters reproduces the original model. Each field
+ * (and therefore each simulation) holds its own set of parameters so that
+ * several differently configured simulations can run side by side.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.01
+ */
+
+public class SimulationParameters {
+    // The names of every parameter, as accepted by get and set.
+    public static final String[] NAMES = { "mycoplasmaAliveProb", "helicobacterAliveProb", "isseriaAliveProb",
+            "infectRate", "engulfProbability", "isseriaTwoNeighbourSurvival", "isseriaFourNeighbourSurvival" };
+
+    // The probability that a Mycoplasma is alive when the field is populated
+    private double mycoplasmaAliveProb = 0.2;
+
+    // The probability that a Helicobacter is alive when the field is populated
+    private double helicobacterAliveProb = 0.2;
+
+    // The probability that an Isseria is alive when the field is populated
+    private double isseriaAliveProb = 0.15;
+
+    // The initial probability that a cell next to an infected cell gets infected
+    private double infectRate = 0.10;
+
+    // The probability that a cell next to 1 to 3 Helicobacter is engulfed
+    private double engulfProbability = 0.135;
+
+    // The chance that an Isseria with exactly 2 neighbours lives on
+    private double isseriaTwoNeighbourSurvival = 0.6;
+
+    // The chance that an Isseria with exactly 4 neighbours lives on
+    private double isseriaFourNeighbourSurvival = 0.5;
+
+    /**
+     * Create a set of parameters holding the default values.
+     */
+    public SimulationParameters() {
+    }
+
+    /**
+     * Create a copy of another set of parameters.
+     *
+     * @param other The parameters to copy.
+     */
+    public SimulationParameters(SimulationParameters other) {
+        mycoplasmaAliveProb = other.mycoplasmaAliveProb;
+        helicobacterAliveProb = other.helicobacterAliveProb;
+        isseriaAliveProb = other.isseriaAliveProb;
+        infectRate = other.infectRate;
+        engulfProbability = other.engulfProbability;
+        isseriaTwoNeighbourSurvival = other.isseriaTwoNeighbourSurvival;
+        isseriaFourNeighbourSurvival = other.isseriaFourNeighbourSurvival;
+    }
+
+    /**
+     * Set a parameter by the name of its field, as used in parameter grids.
+     *
+     * @param name  The name of the parameter, e.g. "infectRate".
+     * @param value The value to give it.
+     * @throws IllegalArgumentException If there is no parameter with that name.
+     */
+    public void set(String name, double value) {
+        switch (name) {
+            case "mycoplasmaAliveProb":
+                mycoplasmaAliveProb = value;
+                break;
+            case "helicobacterAliveProb":
+                helicobacterAliveProb = value;
+                break;
+            case "isseriaAliveProb":
+                isseriaAliveProb = value;
+                break;
+            case "infectRate":
+                infectRate = value;
+                break;
+            case "engulfProbability":
+                engulfProbability = value;
+                break;
+            case "isseriaTwoNeighbourSurvival":
+                isseriaTwoNeighbourSurvival = value;
+                break;
+            case "isseriaFourNeighbourSurvival":
+                isseriaFourNeighbourSurvival = value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown simulation parameter: " + name);
+        }
+    }
+
+    /**
+     * Get a parameter by the name of its field, as used in parameter grids.
+     *
+     * @param name The name of the parameter, e.g. "infectRate".
+     * @return The value of the parameter.
+     * @throws IllegalArgumentException If there is no parameter with that name.
+     */
+    public double get(String name) {
+        switch (name) {
+            case "mycoplasmaAliveProb":
+                return mycoplasmaAliveProb;
+            case "helicobacterAliveProb":
+                return helicobacterAliveProb;
+            case "isseriaAliveProb":
+                return isseriaAliveProb;
+            case "infectRate":
+                return infectRate;
+            case "engulfProbability":
+                return engulfProbability;
+            case "isseriaTwoNeighbourSurvival":
+                return isseriaTwoNeighbourSurvival;
+            case "isseriaFourNeighbourSurvival":
+                return isseriaFourNeighbourSurvival;
+            default:
+                throw new IllegalArgumentException("Unknown simulation parameter: " + name);
+        }
+    }
+
+    /**
+     * @return the probability that a Mycoplasma is alive when populating.
+     */
+    public double getMycoplasmaAliveProb() {
+        return mycoplasmaAliveProb;
+    }
+
+    /**
+     * @return the probability that a Helicobacter is alive when populating.
+     */
+    public double getHelicobacterAliveProb() {
+        return helicobacterAliveProb;
+    }
+
+    /**
+     * @return the probability that an Isseria is alive when populating.
+     */
+    public double getIsseriaAliveProb() {
+        return isseriaAliveProb;
+    }
+
+    /**
+     * @return the initial infection rate of a cell.
+     */
+    public double getInfectRate() {
+        return infectRate;
+    }
+
+    /**
+     * @return the probability that a cell is engulfed by Helicobacter.
+     */
+    public double getEngulfProbability() {
+        return engulfProbability;
+    }
+
+    /**
+     * @return the chance that an Isseria with 2 neighbours lives on.
+     */
+    public double getIsseriaTwoNeighbourSurvival() {
+        return isseriaTwoNeighbourSurvival;
+    }
+
+    /**
+     * @return the chance that an Isseria with 4 neighbours lives on.
+     */
+    public double getIsseriaFourNeighbourSurvival() {
+        return isseriaFourNeighbourSurvival;
+    }
+}
@@ -0,0 +1,573 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many independent headless simulations, or sessions, behind a small
+ * HTTP API on the loopback interface. Each session has its own field,
+ * random seed, topology and parameters.
+ *
+ * Sessions share a fixed pool of worker threads. A session with
+ * generations to run takes a worker for a slice of at most
+ * SLICE_GENERATIONS generations and then goes to the back of the queue, so
+ * every busy session gets its turn however many there are. A session left
+ * idle for longer than the idle timeout is written to a checkpoint on disk
+ * and dropped from memory, and read back the next time it is needed.
+ *
+ * The API, with sizes, seeds and parameters given as query parameters:
+ *   POST   /sessions                      create a session; takes depth, width,
+ *                                         seed, neighbourhood, wrapped, spawn
+ *                                         (quadrants, gradients or
+ *                                         noise:seed:scale) and any
+ *                                         simulation parameter, including the
+ *                                         species' AliveProb densities
+ *   GET    /sessions                      list the sessions
+ *   POST   /sessions/{id}/step            run a number of generations
+ *   POST   /sessions/{id}/run             run until paused
+ *   POST   /sessions/{id}/pause           stop running
+ *   GET    /sessions/{id}/stats           the generation and population
+ *   GET    /sessions/{id}/snapshot        the field, one CellState byte per
+ *                                         location, with its generation, depth
+ *                                         and width in X- headers
+ *
+ * Stats and snapshots are as of the session's last slice, so they answer at
+ * once, however large the field and whether or not a slice is running.
+ *   DELETE /sessions/{id}                 end a session
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.18
+ */
+
+public class SimulationServer implements AutoCloseable {
+    // The most generations a session runs before giving up its worker.
+    private static final int SLICE_GENERATIONS = 32;
+
+    // Limits on the size of a session's field.
+    private static final int MAX_SIZE = 2000;
+
+    private static final Species[] SPECIES = Species.values();
+
+    private final HttpServer http;
+    private final ExecutorService requestThreads;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService evictor;
+
+    // Where evicted sessions are written, and after how long idle sessions are.
+    private final Path checkpointDirectory;
+    private final long idleTimeoutMillis;
+
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    /**
+     * Start the server.
+     *
+     * @param port                The port to listen on (0 picks a free port).
+     * @param workerThreads       How many threads run generations.
+     * @param checkpointDirectory Where to write evicted sessions.
+     * @param idleTimeoutMillis   How long a session may be idle before it is
+     *                            evicted.
+     * @throws IOException If the port cannot be opened or the directory
+     *                     created.
+     */
+    public SimulationServer(int port, int workerThreads, Path checkpointDirectory, long idleTimeoutMillis)
+            throws IOException {
+        this.checkpointDirectory = Files.createDirectories(checkpointDirectory);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+
+        workers = Executors.newFixedThreadPool(workerThreads, daemonThreads("session-worker"));
+        requestThreads = Executors.newFixedThreadPool(4, daemonThreads("session-http"));
+        evictor = Executors.newSingleThreadScheduledExecutor(daemonThreads("session-evictor"));
+        long interval = Math.max(idleTimeoutMillis / 4, 100);
+        evictor.scheduleWithFixedDelay(this::evictIdleSessions, interval, interval, TimeUnit.MILLISECONDS);
+
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/sessions", this::handle);
+        http.setExecutor(requestThreads);
+        http.start();
+    }
+
+    /**
+     * Run a server until the process is stopped.
+     * Usage: SimulationServer [port] [worker-threads] [checkpoint-directory] [idle-seconds]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path directory = Paths.get(args.length > 2 ? args[2] : "checkpoints");
+        long idleSeconds = args.length > 3 ? Long.parseLong(args[3]) : 60;
+
+        SimulationServer server = new SimulationServer(port, threads, directory, idleSeconds * 1000);
+        System.out.println("Serving sessions on http://localhost:" + server.getPort() + "/sessions");
+    }
+
+    /**
+     * @return The port the API is served on.
+     */
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * @return The number of sessions, evicted or not.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Stop serving and running sessions. Checkpoints are left on disk.
+     */
+    @Override
+    public void close() {
+        http.stop(0);
+        evictor.shutdownNow();
+        workers.shutdownNow();
+        requestThreads.shutdownNow();
+    }
+
+    /**
+     * Route a request to the session it is for.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            // parts[0] is empty and parts[1] is "sessions"
+            if (parts.length == 2) {
+                if (method.equals("POST")) {
+                    sendJson(exchange, 201, createSession(query).toJson());
+                } else if (method.equals("GET")) {
+                    sendJson(exchange, 200, listSessions());
+                } else {
+                    sendError(exchange, 405, "Use GET or POST on /sessions.");
+                }
+                return;
+            }
+
+            Session session = sessions.get(Integer.parseInt(parts[2]));
+            if (session == null) {
+                sendError(exchange, 404, "No session " + parts[2] + ".");
+                return;
+            }
+            String action = parts.length > 3 ? parts[3] : "";
+            switch (method + " " + action) {
+                case "POST step":
+                    session.step(Integer.parseInt(query.getOrDefault("generations", "1")));
+                    sendJson(exchange, 202, session.toJson());
+                    break;
+                case "POST run":
+                    session.run();
+                    sendJson(exchange, 202, session.toJson());
+                    break;
+                case "POST pause":
+                    session.pause();
+                    sendJson(exchange, 200, session.toJson());
+                    break;
+                case "GET stats":
+                case "GET ":
+                    sendJson(exchange, 200, session.toJson());
+                    break;
+                case "GET snapshot":
+                    session.sendSnapshot(exchange);
+                    break;
+                case "DELETE ":
+                    sessions.remove(session.id);
+                    session.delete();
+                    sendJson(exchange, 200, "{\"deleted\":" + session.id + "}");
+                    break;
+                default:
+                    sendError(exchange, 404, "Unknown request: " + method + " " + exchange.getRequestURI().getPath());
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            sendError(exchange, 500, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Create a session from the query parameters of a request.
+     */
+    private Session createSession(Map<String, String> query) {
+        int depth = Integer.parseInt(query.getOrDefault("depth", "110"));
+        int width = Integer.parseInt(query.getOrDefault("width", "140"));
+        if (depth <= 0 || width <= 0 || depth > MAX_SIZE || width > MAX_SIZE) {
+            throw new IllegalArgumentException("depth and width must be between 1 and " + MAX_SIZE + ".");
+        }
+        long seed = Long.parseLong(query.getOrDefault("seed", String.valueOf(System.nanoTime())));
+        Topology.Neighbourhood neighbourhood = Topology.Neighbourhood.valueOf(
+                query.getOrDefault("neighbourhood", "moore").toUpperCase());
+        boolean wrapped = Boolean.parseBoolean(query.getOrDefault("wrapped", "false"));
+
+        SimulationParameters parameters = new SimulationParameters();
+        for (String name : SimulationParameters.NAMES) {
+            if (query.containsKey(name)) {
+                parameters.set(name, Double.parseDouble(query.get(name)));
+            }
+        }
+        String spawn = query.getOrDefault("spawn", "quadrants");
+        if (spawn.trim().toLowerCase().startsWith("image")) {
+            // a client may not have the server read files from its disk
+            throw new IllegalArgumentException("Image spawn maps cannot be used over HTTP.");
+        }
+        SpawnMap spawnMap = SpawnMap.parse(spawn);
+
+        Topology topology = new Topology(depth, width, neighbourhood, wrapped);
+        Simulator simulator = new Simulator(depth, width, parameters, seed, topology);
+        simulator.getPopulation().setSpawnMap(spawnMap);
+        simulator.reset(true);
+
+        Session session = new Session(nextId.getAndIncrement(), seed, simulator);
+        sessions.put(session.id, session);
+        return session;
+    }
+
+    private String listSessions() {
+        StringBuilder json = new StringBuilder("[");
+        for (Session session : sessions.values()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(session.toJson());
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Write every session that has been idle too long to disk.
+     */
+    private void evictIdleSessions() {
+        long now = System.currentTimeMillis();
+        for (Session session : sessions.values()) {
+            try {
+                session.evictIfIdle(now);
+            } catch (IOException e) {
+                System.err.println("Could not evict session " + session.id + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> values = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    values.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        String text = message == null ? "" : message.replace("\\", "\\\\").replace("\"", "\\\"");
+        sendJson(exchange, status, "{\"error\":\"" + text + "\"}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The generation, population and field of a session as of its last
+     * slice. A summary is replaced whole rather than changed, so requests can
+     * read it while the next slice runs.
+     */
+    private static class Summary {
+        private final int generation;
+        private final int[] population = new int[SPECIES.length];
+        private final byte[] states;
+
+        /**
+         * Summarise a simulation that nothing is stepping meanwhile.
+         */
+        private Summary(Simulator simulator) {
+            generation = simulator.getGeneration();
+            Field field = simulator.getField();
+            states = new byte[field.getDepth() * field.getWidth()];
+            for (int index = 0; index < states.length; index++) {
+                Cell cell = field.getObjectAt(index);
+                states[index] = (byte) CellState.of(cell);
+                if (cell != null && cell.isAlive()) {
+                    population[cell.getSpecies().ordinal()]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * One hosted simulation. Its control state is guarded by its own lock,
+     * which is only ever held briefly: a worker marks the session busy under
+     * the lock and then steps, loads or checkpoints the simulator without it,
+     * so requests never wait for a slice to finish.
+     */
+    private class Session {
+        private final int id;
+        private final long seed;
+        private final int depth, width;
+
+        // The simulation, or null while it is evicted to its checkpoint.
+        private Simulator simulator;
+
+        // Generations still to run, and whether to keep running regardless.
+        private long pendingGenerations;
+        private boolean running;
+
+        // Whether a slice is queued or running for this session.
+        private boolean scheduled;
+
+        // Whether a thread is using the simulator outside the lock, and
+        // whether the session was deleted meanwhile.
+        private boolean busy, deleted;
+
+        private long lastAccess = System.currentTimeMillis();
+
+        // The state as of the last slice, kept while evicted.
+        private volatile Summary summary;
+
+        private Session(int id, long seed, Simulator simulator) {
+            this.id = id;
+            this.seed = seed;
+            this.simulator = simulator;
+            depth = simulator.getField().getDepth();
+            width = simulator.getField().getWidth();
+            summary = new Summary(simulator);
+        }
+
+        private synchronized void step(int generations) {
+            if (generations < 0) {
+                throw new IllegalArgumentException("generations must not be negative.");
+            }
+            pendingGenerations += generations;
+            schedule();
+        }
+
+        private synchronized void run() {
+            running = true;
+            schedule();
+        }
+
+        private synchronized void pause() {
+            running = false;
+            pendingGenerations = 0;
+        }
+
+        /**
+         * Queue a slice unless one is already queued or running.
+         */
+        private void schedule() {
+            lastAccess = System.currentTimeMillis();
+            if (!scheduled && !deleted && (running || pendingGenerations > 0)) {
+                scheduled = true;
+                workers.execute(this::runSlice);
+            }
+        }
+
+        /**
+         * Run one slice of generations, then go to the back of the queue if
+         * there is more to do. The generations are run outside the lock, each
+         * taken from the pending count just before it is run, so a pause takes
+         * effect after the generation in progress.
+         */
+        private void runSlice() {
+            Simulator stepped;
+            synchronized (this) {
+                scheduled = false;
+                try {
+                    // an eviction may be writing the checkpoint
+                    while (busy) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    return; // the server is closing
+                }
+                if (deleted || !(running || pendingGenerations > 0)) {
+                    return;
+                }
+                busy = true;
+                stepped = simulator;
+            }
+
+            try {
+                if (stepped == null) {
+                    stepped = Checkpoint.read(checkpointFile());
+                    Files.deleteIfExists(checkpointFile());
+                    synchronized (this) {
+                        simulator = stepped;
+                    }
+                }
+                for (int i = 0; i < SLICE_GENERATIONS && takeGeneration(); i++) {
+                    stepped.simOneGeneration();
+                    if (stepped.getLatestRecord().getTotalPopulation() == 0) {
+                        // nothing will ever change again
+                        pause();
+                    }
+                }
+                summary = new Summary(stepped);
+            } catch (IOException e) {
+                System.err.println("Could not restore session " + id + ": " + e.getMessage());
+                pause();
+            } finally {
+                finishBusy();
+            }
+        }
+
+        /**
+         * Take one generation to run.
+         *
+         * @return Whether there is one to run.
+         */
+        private synchronized boolean takeGeneration() {
+            if (!running && pendingGenerations == 0) {
+                return false;
+            }
+            if (pendingGenerations > 0) {
+                pendingGenerations--;
+            }
+            return true;
+        }
+
+        /**
+         * Give the simulator back after using it outside the lock, finishing a
+         * deletion that came meanwhile or queueing the next slice.
+         */
+        private synchronized void finishBusy() {
+            busy = false;
+            notifyAll();
+            if (deleted) {
+                simulator = null;
+                deleteCheckpoint();
+            } else {
+                schedule();
+            }
+        }
+
+        /**
+         * Write the field as a snapshot response, as of the last slice.
+         */
+        private void sendSnapshot(HttpExchange exchange) throws IOException {
+            Summary latest = summary;
+            exchange.getResponseHeaders().set("X-Generation", String.valueOf(latest.generation));
+            exchange.getResponseHeaders().set("X-Depth", String.valueOf(depth));
+            exchange.getResponseHeaders().set("X-Width", String.valueOf(width));
+            send(exchange, 200, "application/octet-stream", latest.states);
+        }
+
+        /**
+         * Write the session to its checkpoint and drop it from memory if it
+         * has nothing to run and has not been used for a while.
+         */
+        private void evictIfIdle(long now) throws IOException {
+            Simulator evicted;
+            synchronized (this) {
+                if (simulator == null || scheduled || busy || deleted || now - lastAccess <= idleTimeoutMillis) {
+                    return;
+                }
+                busy = true;
+                evicted = simulator;
+            }
+            try {
+                Checkpoint.write(evicted, checkpointFile());
+                synchronized (this) {
+                    simulator = null;
+                }
+            } finally {
+                finishBusy();
+            }
+        }
+
+        private synchronized void delete() {
+            deleted = true;
+            running = false;
+            pendingGenerations = 0;
+            // a busy thread finishes the deletion once it is done
+            if (!busy) {
+                simulator = null;
+                deleteCheckpoint();
+            }
+        }
+
+        private void deleteCheckpoint() {
+            try {
+                Files.deleteIfExists(checkpointFile());
+            } catch (IOException e) {
+                System.err.println("Could not delete the checkpoint of session " + id + ": " + e.getMessage());
+            }
+        }
+
+        private Path checkpointFile() {
+            return checkpointDirectory.resolve("session-" + id + ".ckpt");
+        }
+
+        private String toJson() {
+            String state;
+            long pending;
+            synchronized (this) {
+                state = simulator == null ? "evicted" : running || pendingGenerations > 0 ? "running" : "paused";
+                pending = pendingGenerations;
+            }
+            Summary latest = summary;
+            StringBuilder json = new StringBuilder();
+            json.append("{\"id\":").append(id)
+                    .append(",\"seed\":").append(seed)
+                    .append(",\"depth\":").append(depth)
+                    .append(",\"width\":").append(width)
+                    .append(",\"generation\":").append(latest.generation)
+                    .append(",\"state\":\"").append(state).append('"')
+                    .append(",\"pendingGenerations\":").append(pending)
+                    .append(",\"population\":{");
+            for (Species species : SPECIES) {
+                if (species != Species.EMPTYCELL) {
+                    if (species.ordinal() > 0) {
+                        json.append(',');
+                    }
+                    json.append('"').append(species).append("\":").append(latest.population[species.ordinal()]);
+                }
+            }
+            return json.append("}}").toString();
+        }
+    }
+}
@@ -2,6 +2,9 @@ import java.util.Random;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Consumer;
 import java.awt.Color;
 
 /**
@@ -20,30 +23,84 @@ public class Simulator {
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 110;
 
-    // The probability that a Mycoplasma is alive
-    private static final double MYCOPLASMA_ALIVE_PROB = 0.2;
+    // How long the drawing loop waits for mouse input before checking the
+    // buttons again, in milliseconds.
+    private static final int DRAWING_POLL_MILLIS = 10;
 
-    // The probability that a Mycoplasma is alive
-    private static final double HELICOBACTER_ALIVE_PROB = 0.2;
-
-    // The probability that a Mycoplasma is alive
-    private static final double ISSERIA_ALIVE_PROB = 0.15;
+    // Memory the view's rewind buffer may use for snapshots, in bytes.
+    private static final long REWIND_MEMORY_BUDGET = 64L * 1024 * 1024;
 
     // List of cells in the field.
     private List<Cell> cells;
 
+    // Spawns the cells of the field on reset.
+    private final Population population;
+
     // The current state of the field.
     private Field field;
 
     // The current generation of the simulation.
     private int generation;
 
-    // A graphical view of the simulation.
+    // A graphical view of the simulation, or null when running headless.
     private SimulatorView view;
 
     // Flag to check if the simulator is empty or not.
     private boolean populatedWithCells;
 
+    // Optional writer for per-generation population data.
+    private PopulationExporter exporter;
+
+    // Summary of the most recently simulated generation.
+    private GenerationRecord latestRecord;
+
+    // Incrementally maintained hash of the field, and the recent history of it.
+    private StateHasher hasher;
+    private CycleDetector cycleDetector;
+
+    // The locations changed by the latest generation and their new state codes.
+    private int[] changedIndices;
+    private byte[] changedStates;
+    private int changedCount;
+
+    // Optional publisher of each generation to viewers.
+    private FrameServer frameServer;
+
+    // Optional publisher of each generation's changes to subscribers.
+    private ChangePublisher changePublisher;
+
+    // Publishes the field into shared memory, or null.
+    private SharedFieldView sharedFieldView;
+
+    // Paces the simulation in the view and decides which generations are drawn.
+    private FrameRateController frameRateController = new FrameRateController();
+
+    // Whether the view is showing an older generation than the current one.
+    private boolean viewBehind;
+
+    // Optional snapshots of recent generations to rewind to.
+    private RewindBuffer rewindBuffer;
+
+    // Optional per-species counts over any rectangle, rebuilt every generation.
+    private RegionCounts regionCounts;
+
+    // Per-location activity counters, or null if none are kept.
+    private CellActivity cellActivity;
+
+    // Population of each species over the run, or null if none is kept.
+    private PopulationHistory populationHistory;
+
+    // Counters of rule firings, or null if they are not counted.
+    private RuleCounters ruleCounters;
+
+    // Optional recorder of generations as images.
+    private FrameExporter frameExporter;
+
+    // Locations already listed as changed in the current batch of drawing, and
+    // the rectangle of rows and columns the batch has touched.
+    private BitSet drawnLocations;
+    private int dirtyTop, dirtyLeft, dirtyBottom, dirtyRight;
+
     /**
      * Execute simulation
      */
@@ -66,6 +123,74 @@ public class Simulator {
      * @param width Width of the field. Must be greater than zero.
      */
     public Simulator(int depth, int width) {
+        this(depth, width, new SimulationParameters(), Randomizer.getRandom(), true, null);
+    }
+
+    /**
+     * Create a headless simulation with its own parameters and random stream.
+     * No window is opened, so several of these can run at once, each with an
+     * independent field.
+     * 
+     * @param depth      Depth of the field. Must be greater than zero.
+     * @param width      Width of the field. Must be greater than zero.
+     * @param parameters The parameters that drive the simulation.
+     * @param seed       The seed of the simulation's random stream.
+     */
+    public Simulator(int depth, int width, SimulationParameters parameters, long seed) {
+        this(depth, width, parameters, new Random(seed), false, null);
+    }
+
+    /**
+     * Create a headless simulation with its own parameters, random stream and
+     * neighbourhood topology, e.g. a toroidal field without edges.
+     * 
+     * @param depth      Depth of the field. Must be greater than zero.
+     * @param width      Width of the field. Must be greater than zero.
+     * @param parameters The parameters that drive the simulation.
+     * @param seed       The seed of the simulation's random stream.
+     * @param topology   Which locations neighbour each other, for a field of
+     *                   the given size.
+     * @throws IllegalArgumentException If the topology is for a field of
+     *                                  another size.
+     */
+    public Simulator(int depth, int width, SimulationParameters parameters, long seed, Topology topology) {
+        this(depth, width, parameters, new Random(seed), false, topology);
+    }
+
+    /**
+     * Create a headless simulation that draws from the given random stream,
+     * e.g. one restored from a checkpoint. The stream is not drawn from until
+     * the field is populated or simulated.
+     * 
+     * @param depth      Depth of the field. Must be greater than zero.
+     * @param width      Width of the field. Must be greater than zero.
+     * @param parameters The parameters that drive the simulation.
+     * @param rand       The random stream of the simulation.
+     * @param topology   Which locations neighbour each other, for a field of
+     *                   the given size.
+     * @throws IllegalArgumentException If the topology is for a field of
+     *                                  another size.
+     */
+    public Simulator(int depth, int width, SimulationParameters parameters, Random rand, Topology topology) {
+        this(depth, width, parameters, rand, false, topology);
+    }
+
+    /**
+     * Create a simulation field with the given size, parameters and random
+     * stream.
+     * 
+     * @param depth      Depth of the field. Must be greater than zero.
+     * @param width      Width of the field. Must be greater than zero.
+     * @param parameters The parameters that drive the simulation.
+     * @param rand       The random stream of the simulation.
+     * @param showView   Whether to open a graphical view of the simulation.
+     * @param topology   Which locations neighbour each other, or null for a
+     *                   bounded field with Moore neighbourhoods.
+     * @throws IllegalArgumentException If the topology is for a field of
+     *                                  another size.
+     */
+    private Simulator(int depth, int width, SimulationParameters parameters, Random rand, boolean showView,
+            Topology topology) {
         if (width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be greater than zero.");
             System.out.println("Using default values.");
@@ -74,10 +199,32 @@ public class Simulator {
         }
 
         cells = new ArrayList<>();
-        field = new Field(depth, width);
+        if (topology == null) {
+            topology = new Topology(depth, width);
+        } else if (topology.getDepth() != depth || topology.getWidth() != width) {
+            throw new IllegalArgumentException("The topology is for a " + topology.getDepth() + " by "
+                    + topology.getWidth() + " field, not " + depth + " by " + width + ".");
+        }
+        field = new Field(depth, width, rand, parameters, topology);
+        population = new Population(parameters);
+        hasher = new StateHasher();
+        cycleDetector = new CycleDetector();
+        changedIndices = new int[depth * width];
+        changedStates = new byte[depth * width];
+        drawnLocations = new BitSet(depth * width);
 
         // Create a view of the state of each location in the field.
-        view = new SimulatorView(depth, width);
+        if (showView) {
+            view = new SimulatorView(depth, width);
+            rewindBuffer = new RewindBuffer(REWIND_MEMORY_BUDGET);
+            regionCounts = new RegionCounts(depth, width);
+            view.setRegionCounts(regionCounts);
+            cellActivity = new CellActivity(depth, width);
+            view.setCellActivity(cellActivity);
+            populationHistory = new PopulationHistory();
+            view.setPopulationHistory(populationHistory);
+            setRuleCounters(new RuleCounters());
+        }
 
         // Setup a valid starting point.
         reset(false);
@@ -99,6 +246,9 @@ public class Simulator {
      * @param numGenerations The number of generations to run for.
      */
     public void simulate(int numGenerations) {
+        if (view == null) {
+            throw new IllegalStateException("A headless simulation has no view; use simulateHeadless.");
+        }
         view.toggleDebugComponents(true);
 
         // initially, start off with blank canvas and allow user to draw
@@ -115,19 +265,34 @@ public class Simulator {
                 // whilst simulation is being ran, don't allow modification of field
                 view.toggleAllowUserToSelectSpecies(false);
 
-                simOneGeneration();
+                // wait for this generation's turn, and draw it only if that
+                // will not hold the simulation back from its target speed
+                frameRateController.setTargetRate(view.getTargetRate());
+                frameRateController.awaitNextGeneration();
+                boolean render = frameRateController.shouldRender() || generation + 1 == numGenerations;
+
+                simOneGeneration(render);
+
+                if (frameRateController.generationFinished(render)) {
+                    view.showThroughput(frameRateController.getAchievedRate(), frameRateController.getFrameRate());
+                }
+            }
 
-                // delay to control the speed of the simulation
-                delay((int) (350 * view.getDelayMultiplier()));
+            // show the latest generation once the simulation stops
+            else if (viewBehind) {
+                view.showStatus(generation, field);
+                showTimeline();
+                viewBehind = false;
             }
 
             // if in drawing canvas mode
             else if (!populatedWithCells) {
 
-                // check to see if a user is adding cells onto the grid and add if possible
-                if (view.getIsMouseBeingPressed()) {
+                // apply everything drawn since the last pass in one batch, waiting
+                // briefly for the mouse when nothing has been drawn
+                if (view.getDrawingQueue().awaitSamples(DRAWING_POLL_MILLIS)) {
                     view.toggleDebugComponents(true); // allow the bottom components to be interactable
-                    drawCell(view.getMouseLocation());
+                    applyDrawing();
                 }
 
                 // toggle the ability to draw cells depending on whether simulation is paused.
@@ -138,11 +303,18 @@ public class Simulator {
             // if the populate button was pressed, reset the field with pre-populated cells
             if (view.getPopulateButtonPressed()) {
                 populatedWithCells = true; // since field is now populated with cells
+                population.setSpawnMap(view.getSpawnMap());
                 reset(true);
                 view.resetComponents();
                 view.toggleAllowUserToSelectSpecies(false);
             }
 
+            // go back to a generation chosen on the timeline while paused
+            int rewindTo = view.takeRewindRequest();
+            if (rewindTo >= 0 && view.getPause()) {
+                rewind(rewindTo);
+            }
+
             // reset simulation to default empty field
             if (view.getReset()) {
                 reset(false);
@@ -152,45 +324,348 @@ public class Simulator {
         }
     }
 
+    /**
+     * Run a headless simulation from its current state for the given number of
+     * generations, stopping early once no living cells remain or the field has
+     * settled into a fixed point or short cycle.
+     * 
+     * @param numGenerations The number of generations to run for.
+     * @param listener       Called with the record of every generation, or null.
+     */
+    public void simulateHeadless(int numGenerations, Consumer<GenerationRecord> listener) {
+        for (int i = 0; i < numGenerations; i++) {
+            simOneGeneration();
+            if (listener != null) {
+                listener.accept(latestRecord);
+            }
+            if (latestRecord.getTotalPopulation() == 0 || getDetectedPeriod() > 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return The period of the cycle the field has settled into (1 for a
+     *         fixed point), or 0 if no cycle has been detected.
+     */
+    public int getDetectedPeriod() {
+        return cycleDetector.getPeriod();
+    }
+
+    /**
+     * @return How the field is populated on reset; its spawn map and
+     *         densities can be changed before the next reset.
+     */
+    public Population getPopulation() {
+        return population;
+    }
+
+    /**
+     * @return The hash of the state of every location in the field, kept up
+     *         to date by a StateHasher with the default salt.
+     */
+    public long getStateHash() {
+        return hasher.getHash();
+    }
+
+    /**
+     * @return The field being simulated.
+     */
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return The current generation of the simulation.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
     /**
      * Draws a cell to the field at a given location
      * 
      * @param location
      */
     public void drawCell(Location location) {
-        Species speciesSelected = view.getSpeciesSelected();
-
-        Cell cellToDraw = field.getObjectAt(location);
+        drawCell(field.index(location.getRow(), location.getCol()));
+    }
 
-        // set location to selected species of cell
-        switch (speciesSelected) {
+    /**
+     * Draws a cell to the field at the location with the given index
+     * 
+     * @param index The index of the location (row * width + col)
+     */
+    public void drawCell(int index) {
+        beginDrawing();
+        paintCell(index, view.getSpeciesSelected(), true);
+        finishDrawing();
+    }
 
-            case HELICOBACTER:
-                cellToDraw.setSpecies(Species.HELICOBACTER);
-                break;
+    /**
+     * Apply everything drawn with the mouse since the last call as a single
+     * batch: the selected brush is painted along each stroke, or a selected
+     * stamp placed where each stroke began, and only the part of the view
+     * that changed is redrawn.
+     */
+    private void applyDrawing() {
+        Brush brush = view.getBrushSelected();
+        Species species = view.getSpeciesSelected();
+
+        beginDrawing();
+        view.getDrawingQueue().drain((row, col, strokeStart) -> {
+            if (strokeStart || !brush.isStamp()) {
+                paintBrush(brush, row, col, species);
+            }
+        });
+        finishDrawing();
+    }
 
-            case MYCOPLASMA:
-                cellToDraw.setSpecies(Species.MYCOPLASMA);
-                break;
+    /**
+     * Paint a brush centred on the given location, clipped to the field.
+     */
+    private void paintBrush(Brush brush, int row, int col, Species species) {
+        for (int i = 0; i < brush.getSize(); i++) {
+            int nextRow = row + brush.getRowOffset(i);
+            int nextCol = col + brush.getColOffset(i);
+            if (nextRow >= 0 && nextRow < field.getDepth() && nextCol >= 0 && nextCol < field.getWidth()) {
+                paintCell(field.index(nextRow, nextCol), species, brush.isAlive(i));
+            }
+        }
+    }
 
-            case ISSERIA:
-                cellToDraw.setSpecies(Species.ISSERIA);
-                break;
+    /**
+     * Start a batch of drawing with nothing changed yet.
+     */
+    private void beginDrawing() {
+        changedCount = 0;
+        dirtyTop = field.getDepth();
+        dirtyLeft = field.getWidth();
+        dirtyBottom = -1;
+        dirtyRight = -1;
+    }
 
-            case INFECTED:
-                cellToDraw.setSpecies(Species.INFECTED);
-                break;
-        }
+    /**
+     * Set one location to a living cell of the given species, or to a dead
+     * cell, noting the change in the current batch of drawing.
+     */
+    private void paintCell(int index, Species species, boolean alive) {
+        Cell cellToDraw = field.getObjectAt(index);
+        int oldState = CellState.of(cellToDraw);
 
         // an empty cell is just a dead cell
-        if (speciesSelected == Species.EMPTYCELL) {
-            cellToDraw.setState(false);
-        } else {
+        if (alive && species != Species.EMPTYCELL) {
+            cellToDraw.setSpecies(species);
             cellToDraw.setState(true);
+        } else {
+            cellToDraw.setState(false);
+        }
+
+        int newState = CellState.of(cellToDraw);
+        if (newState == oldState) {
+            return;
+        }
+        hasher.update(index, oldState, newState);
+
+        if (!drawnLocations.get(index)) {
+            drawnLocations.set(index);
+            changedIndices[changedCount++] = index;
+        }
+        int row = field.rowOf(index);
+        int col = field.colOf(index);
+        dirtyTop = Math.min(dirtyTop, row);
+        dirtyBottom = Math.max(dirtyBottom, row);
+        dirtyLeft = Math.min(dirtyLeft, col);
+        dirtyRight = Math.max(dirtyRight, col);
+    }
+
+    /**
+     * Publish the changes of the current batch of drawing and redraw the
+     * rectangle it touched.
+     */
+    private void finishDrawing() {
+        if (changedCount == 0) {
+            return;
+        }
+        cycleDetector.reset();
+
+        // viewers expect the changes in increasing order of index
+        Arrays.sort(changedIndices, 0, changedCount);
+        for (int i = 0; i < changedCount; i++) {
+            drawnLocations.clear(changedIndices[i]);
+            changedStates[i] = (byte) CellState.of(field.getObjectAt(changedIndices[i]));
+        }
+        if (frameServer != null) {
+            frameServer.publish(generation, changedIndices, changedStates, changedCount);
+        }
+        if (changePublisher != null) {
+            changePublisher.publish(generation, changedIndices, changedStates, changedCount);
+        }
+        if (sharedFieldView != null) {
+            sharedFieldView.publish(generation, changedIndices, changedStates, changedCount);
+        }
+
+        // the snapshot of this generation no longer matches the field
+        if (rewindBuffer != null) {
+            rewindBuffer.record(generation, field);
+        }
+        if (regionCounts != null) {
+            regionCounts.rebuild(field);
+        }
+        if (cellActivity != null) {
+            cellActivity.record(generation, changedIndices, changedStates, changedCount);
+        }
+
+        view.showDrawing(generation, field, dirtyTop, dirtyLeft, dirtyBottom, dirtyRight);
+    }
+
+    /**
+     * Wind the simulation back to an earlier generation held in the rewind
+     * buffer. Simulating on from there replaces the generations after it.
+     * 
+     * @param targetGeneration The generation to go back to.
+     * @return Whether the generation was held and the field restored.
+     */
+    public boolean rewind(int targetGeneration) {
+        if (rewindBuffer == null || !rewindBuffer.restore(targetGeneration, field)) {
+            return false;
+        }
+        generation = targetGeneration;
+        latestRecord = null;
+
+        hasher.rehash(cells);
+        cycleDetector.reset();
+        if (regionCounts != null) {
+            regionCounts.rebuild(field);
+        }
+        if (cellActivity != null) {
+            cellActivity.reset(generation, field);
+        }
+        if (populationHistory != null) {
+            populationHistory.truncate(generation);
+        }
+        if (frameServer != null) {
+            frameServer.publishAll(generation, field);
+        }
+        if (changePublisher != null) {
+            changePublisher.publishAll(generation, field);
+        }
+        if (sharedFieldView != null) {
+            sharedFieldView.publishAll(generation, field);
+        }
+
+        if (view != null) {
+            view.showDetectedPeriod(0);
+            view.showRuleCounts(null);
+            view.showStatus(generation, field);
+            showTimeline();
+            viewBehind = false;
+        }
+        return true;
+    }
+
+    /**
+     * Keep snapshots of subsequent generations in the given buffer, so that
+     * the simulation can be wound back to them.
+     * 
+     * @param rewindBuffer The buffer to use, or null to stop keeping snapshots.
+     */
+    public void setRewindBuffer(RewindBuffer rewindBuffer) {
+        this.rewindBuffer = rewindBuffer;
+        if (rewindBuffer != null) {
+            rewindBuffer.record(generation, field);
+        }
+    }
+
+    /**
+     * Rebuild the given region counts after every subsequent generation, so
+     * that they always describe the current field.
+     * 
+     * @param regionCounts The counts to keep up to date, for a field of this
+     *                     size, or null to stop.
+     */
+    public void setRegionCounts(RegionCounts regionCounts) {
+        this.regionCounts = regionCounts;
+        if (regionCounts != null) {
+            regionCounts.rebuild(field);
+        }
+    }
+
+    /**
+     * @return The per-species counts over rectangles of the field, or null if
+     *         none are being kept.
+     */
+    public RegionCounts getRegionCounts() {
+        return regionCounts;
+    }
+
+    /**
+     * Count the activity of every location from now on. Counting only looks at
+     * the locations that change, after each generation is committed.
+     * 
+     * @param cellActivity The counters to keep up to date, for a field of this
+     *                     size, or null to stop.
+     */
+    public void setCellActivity(CellActivity cellActivity) {
+        this.cellActivity = cellActivity;
+        if (cellActivity != null) {
+            cellActivity.reset(generation, field);
+        }
+    }
+
+    /**
+     * @return The per-location activity counters, or null if none are kept.
+     */
+    public CellActivity getCellActivity() {
+        return cellActivity;
+    }
+
+    /**
+     * Record the population of every subsequent generation in the given
+     * history, which is cleared whenever the simulation starts again.
+     * 
+     * @param populationHistory The history to record in, or null to stop.
+     */
+    public void setPopulationHistory(PopulationHistory populationHistory) {
+        this.populationHistory = populationHistory;
+    }
+
+    /**
+     * Count how often each rule fires from now on, and publish the counts of
+     * each generation in its record.
+     * 
+     * @param ruleCounters The counters to count in, or null to stop.
+     */
+    public void setRuleCounters(RuleCounters ruleCounters) {
+        this.ruleCounters = ruleCounters;
+        field.setRuleCounters(ruleCounters);
+        if (ruleCounters != null) {
+            // forget anything counted outside a generation, e.g. while drawing
+            ruleCounters.drain();
         }
+    }
+
+    /**
+     * @return The rule firing counters, or null if firings are not counted.
+     */
+    public RuleCounters getRuleCounters() {
+        return ruleCounters;
+    }
 
-        // update field
-        view.showStatus(generation, field);
+    /**
+     * @return The population history being recorded, or null if none is.
+     */
+    public PopulationHistory getPopulationHistory() {
+        return populationHistory;
+    }
+
+    /**
+     * Show the generations that can be rewound to on the view's timeline.
+     */
+    private void showTimeline() {
+        if (rewindBuffer != null) {
+            view.showTimeline(rewindBuffer.getOldestGeneration(), rewindBuffer.getNewestGeneration(), generation);
+        }
     }
 
     /**
@@ -198,7 +673,18 @@ public class Simulator {
      * Iterate over the whole field updating the state of each life form.
      */
     public void simOneGeneration() {
+        simOneGeneration(true);
+    }
+
+    /**
+     * Run the simulation for a single generation, optionally without drawing
+     * it, so that the view does not limit how fast the simulation can run.
+     * 
+     * @param render Whether to show the new generation in the view.
+     */
+    private void simOneGeneration(boolean render) {
         generation++;
+        boolean layered = field.hasLayers();
 
         for (Iterator<Cell> it = cells.iterator(); it.hasNext();) {
             Cell cell = it.next();
@@ -211,14 +697,177 @@ public class Simulator {
             }
 
             cell.getEngulfedIfPossible();
+            if (layered) {
+                cell.respondToLayers();
+            }
         }
 
+        // commit the next state, tallying what changed on the way
+        int[] population = new int[Species.values().length];
+        int births = 0, deaths = 0, infections = 0, engulfs = 0;
+        changedCount = 0;
+
         for (Cell cell : cells) {
+            boolean wasAlive = cell.isAlive();
+            Species oldSpecies = cell.getSpecies();
+
             cell.updateState();
             cell.darkenHeliColour(generation);
+
+            int oldState = CellState.encode(oldSpecies, wasAlive);
+            int newState = CellState.of(cell);
+            if (newState != oldState) {
+                int index = cell.getIndex();
+                hasher.update(index, oldState, newState);
+                changedIndices[changedCount] = index;
+                changedStates[changedCount] = (byte) newState;
+                changedCount++;
+            }
+
+            if (ruleCounters != null) {
+                if (cell.getSpecies() != oldSpecies) {
+                    ruleCounters.countTransition(oldSpecies, cell.getSpecies());
+                }
+                if (cell.isAlive() != wasAlive) {
+                    ruleCounters.count(wasAlive ? RuleCounters.Event.DEATH : RuleCounters.Event.BIRTH);
+                }
+            }
+
+            if (cell.isAlive()) {
+                population[cell.getSpecies().ordinal()]++;
+                if (!wasAlive) {
+                    births++;
+                }
+                if (cell.getSpecies() != oldSpecies) {
+                    if (cell.getSpecies() == Species.INFECTED) {
+                        infections++;
+                    } else if (cell.getSpecies() == Species.HELICOBACTER) {
+                        engulfs++;
+                    }
+                }
+            } else if (wasAlive) {
+                deaths++;
+            }
+        }
+
+        // the substances over the field spread, decay and react to the new cells
+        field.stepLayers();
+
+        latestRecord = new GenerationRecord(generation, population, births, deaths, infections, engulfs,
+                ruleCounters == null ? null : ruleCounters.drain());
+        if (exporter != null) {
+            exporter.offer(latestRecord);
+        }
+        if (populationHistory != null) {
+            populationHistory.record(latestRecord);
+        }
+
+        cycleDetector.record(hasher.getHash());
+        if (rewindBuffer != null) {
+            rewindBuffer.record(generation, field);
+        }
+        if (regionCounts != null) {
+            regionCounts.rebuild(field);
+        }
+        if (cellActivity != null) {
+            cellActivity.record(generation, changedIndices, changedStates, changedCount);
         }
 
-        view.showStatus(generation, field);
+        if (frameServer != null) {
+            frameServer.publish(generation, changedIndices, changedStates, changedCount);
+        }
+        if (changePublisher != null) {
+            changePublisher.publish(generation, changedIndices, changedStates, changedCount);
+        }
+        if (sharedFieldView != null) {
+            sharedFieldView.publish(generation, changedIndices, changedStates, changedCount);
+        }
+        if (frameExporter != null) {
+            frameExporter.capture(generation, field);
+        }
+
+        if (view != null) {
+            view.showDetectedPeriod(cycleDetector.getPeriod());
+            if (render) {
+                view.showRuleCounts(latestRecord.getRuleCounts());
+                view.showStatus(generation, field);
+                showTimeline();
+            }
+            viewBehind = !render;
+        }
+    }
+
+    /**
+     * Send a record of every subsequent generation to the given exporter.
+     * The exporter never blocks the simulation; closing it is left to the
+     * caller.
+     * 
+     * @param exporter The exporter to use, or null to stop exporting.
+     */
+    public void setExporter(PopulationExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    /**
+     * Publish every subsequent generation to the viewers of the given server.
+     * Publishing never blocks the simulation; closing the server is left to the
+     * caller.
+     * 
+     * @param frameServer The server to publish to, or null to stop publishing.
+     */
+    public void setFrameServer(FrameServer frameServer) {
+        this.frameServer = frameServer;
+        if (frameServer != null) {
+            frameServer.publishAll(generation, field);
+        }
+    }
+
+    /**
+     * Publish the changes of every subsequent generation to the subscribers
+     * of the given publisher, starting with the field as it is now. Closing
+     * the publisher is left to the caller.
+     * 
+     * @param changePublisher The publisher to use, or null to stop publishing.
+     */
+    public void setChangePublisher(ChangePublisher changePublisher) {
+        this.changePublisher = changePublisher;
+        if (changePublisher != null) {
+            changePublisher.publishAll(generation, field);
+        }
+    }
+
+    /**
+     * Publish every subsequent generation into the given shared-memory view,
+     * starting with the field as it is now. Closing the view is left to the
+     * caller.
+     * 
+     * @param sharedFieldView The view to publish into, for a field of this
+     *                        size, or null to stop publishing.
+     */
+    public void setSharedFieldView(SharedFieldView sharedFieldView) {
+        this.sharedFieldView = sharedFieldView;
+        if (sharedFieldView != null) {
+            sharedFieldView.publishAll(generation, field);
+        }
+    }
+
+    /**
+     * Record subsequent generations as images. Unless the exporter drops
+     * frames when it falls behind, the simulation waits for it; closing the
+     * exporter is left to the caller.
+     * 
+     * @param frameExporter The exporter to record with, or null to stop.
+     */
+    public void setFrameExporter(FrameExporter frameExporter) {
+        this.frameExporter = frameExporter;
+    }
+
+    /**
+     * @return A summary of the most recent generation, or null if no
+     *         generation has been simulated since the last reset.
+     */
+    public GenerationRecord getLatestRecord() {
+        return latestRecord;
     }
 
     /**
@@ -228,107 +877,86 @@ public class Simulator {
      *                    empty when reset
      */
     public void reset(boolean prePopulate) {
-        generation = 0;
-
         cells.clear();
         populate(prePopulate);
-
-        // Show the starting state in the view
-        view.showStatus(generation, field);
+        startFrom(0);
     }
 
     /**
-     * Populates entire field with cells.
+     * Replace the cells of the field with cells restored from elsewhere, e.g.
+     * from a checkpoint, and carry on from the given generation. The cells
+     * must already be placed in this simulation's field, one per location.
      * 
-     * @param prePopulate determines whether the field is pre-populated with living
-     *                    cells, or the board is cleared
+     * @param generation The generation the restored cells are at.
+     * @param restored   The cells, in index order.
      */
-    private void populate(boolean prePopulate) {
-        field.clear();
-        // iterates over each location in the field
-        for (int row = 0; row < field.getDepth(); row++) {
-            for (int col = 0; col < field.getWidth(); col++) {
-                Location location = new Location(row, col);
-
-                // either field will be pre-populated with cells
-                if (prePopulate) {
-                    populateSingleLocation(location);
-                } else {
-                    // or made empty, ready for the user to draw
-                    createDeadCell(location);
-                }
-            }
-        }
+    public void restore(int generation, Cell[] restored) {
+        cells.clear();
+        cells.addAll(Arrays.asList(restored));
+        startFrom(generation);
     }
 
     /**
-     * For each cell in the field, populate it with a random cell, depending on the
-     * probability that it is alive, and the region on the field
-     * 
-     * @param location The current location of the grid being populated
-     */
-    private void populateSingleLocation(Location location) {
-        Random rand = Randomizer.getRandom();
-
-        int row = location.getRow();
-        int col = location.getCol();
-
-        // spawn Mycoplasma in bottom half if random number within probability
-        if (rand.nextDouble() <= MYCOPLASMA_ALIVE_PROB && row > DEFAULT_DEPTH / 2) {
-            Mycoplasma myco = new Mycoplasma(field, location);
-            cells.add(myco);
-            // spawn Helicobacter in top right quadrant if random number within probability
-        } else if (rand.nextDouble() <= HELICOBACTER_ALIVE_PROB && col >= DEFAULT_WIDTH / 2
-                && row <= DEFAULT_DEPTH / 2) {
-            Helicobacter heli = new Helicobacter(field, location);
-            cells.add(heli);
-            // spawn Isseria in top left quadrant if random number within probability
-        } else if (rand.nextDouble() <= ISSERIA_ALIVE_PROB && col <= DEFAULT_WIDTH / 2 && row <= DEFAULT_DEPTH / 2) {
-            Isseria isse = new Isseria(field, location);
-            cells.add(isse);
-            // otherwise, create a dead cell at that location
-        } else
-            createDeadCell(location);
-    }
-
-    /**
-     * Populate the location with a dead cell. The cell type is dependent on the
-     * region on the field that the location is
+     * Start again from the cells now in the field, dropping everything kept
+     * about earlier generations.
      * 
-     * @param location The current location of the grid being populated
-     */
-    private void createDeadCell(Location location) {
-        int row = location.getRow();
-        int col = location.getCol();
-
-        // spawn dead Isseria in top left quadrant
-        if (col <= DEFAULT_WIDTH / 2 && row <= DEFAULT_DEPTH / 2) {
-            Isseria isse = new Isseria(field, location);
-            isse.setDead();
-            cells.add(isse);
-            // spawn dead Helicobacter in top right quadrant
-        } else if (col >= DEFAULT_WIDTH / 2 && row <= DEFAULT_DEPTH / 2) {
-            Helicobacter heli = new Helicobacter(field, location);
-            heli.setDead();
-            cells.add(heli);
-            // spawn dead Mycoplasma in bottom half
-        } else {
-            Mycoplasma myco = new Mycoplasma(field, location);
-            myco.setDead();
-            cells.add(myco);
+     * @param startGeneration The generation the field is at.
+     */
+    private void startFrom(int startGeneration) {
+        generation = startGeneration;
+        latestRecord = null;
+
+        hasher.rehash(cells);
+        cycleDetector.reset();
+        if (rewindBuffer != null) {
+            rewindBuffer.clear();
+            rewindBuffer.record(generation, field);
+        }
+        if (regionCounts != null) {
+            regionCounts.rebuild(field);
+        }
+        if (cellActivity != null) {
+            cellActivity.reset(generation, field);
+        }
+        if (populationHistory != null) {
+            populationHistory.clear();
+        }
+        if (view != null) {
+            view.getDrawingQueue().clear();
+            showTimeline();
+        }
+        if (frameServer != null) {
+            frameServer.publishAll(generation, field);
+        }
+        if (changePublisher != null) {
+            changePublisher.publishAll(generation, field);
+        }
+        if (sharedFieldView != null) {
+            sharedFieldView.publishAll(generation, field);
+        }
+        if (frameExporter != null) {
+            frameExporter.capture(generation, field);
+        }
+
+        // Show the starting state in the view
+        if (view != null) {
+            view.showRuleCounts(null);
+            view.showStatus(generation, field);
         }
     }
 
     /**
-     * Pause for a given time.
+     * Populates entire field with cells.
      * 
-     * @param millisec The time to pause for, in milliseconds
+     * @param prePopulate determines whether the field is pre-populated with living
+     *                    cells, or the board is cleared
      */
-    private void delay(int millisec) {
-        try {
-            Thread.sleep(millisec);
-        } catch (InterruptedException ie) {
-            // wake up
-        }
+    private void populate(boolean prePopulate) {
+        field.clear();
+        // the population is spawned from its own seed, drawn from the simulation's
+        // random stream so that every reset gives a different field; an empty
+        // field needs no seed, and leaves the stream untouched
+        long seed = prePopulate ? field.getRandom().nextLong() : 0;
+        cells.addAll(Arrays.asList(population.populate(field, seed, prePopulate)));
     }
 }
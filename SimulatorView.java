@@ -1,6 +1,13 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A graphical view of the simulation grid. The view displays a rectangle for
@@ -14,7 +21,11 @@ import javax.swing.*;
 
 public class SimulatorView extends JFrame implements ActionListener {
     // Colors used for empty locations.
-    private static final Color EMPTY_COLOR = Color.white;
+    public static final Color EMPTY_COLOR = Color.white;
+    private static final int EMPTY_RGB = EMPTY_COLOR.getRGB();
+
+    // Color of the lines between cells.
+    public static final Color GRID_COLOR = Color.lightGray;
 
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
@@ -26,7 +37,10 @@ public class SimulatorView extends JFrame implements ActionListener {
     private final String POPULATION_PREFIX = "Population: ";
 
     // GUI labels
-    private JLabel genLabel, population, infoLabel, instructionLabel;
+    private JLabel genLabel, population, infoLabel, instructionLabel, regionLabel, eventLabel;
+
+    // Chart of the population of each species over the run.
+    private PopulationChart populationChart;
 
     // Extends the multi-line plain text view to be suitable for a single-line
     // editor view. (part of Swing)
@@ -35,6 +49,23 @@ public class SimulatorView extends JFrame implements ActionListener {
     // A statistics object computing and storing simulation information
     private FieldStats stats;
 
+    // The field most recently shown, drawn by the field view when it repaints.
+    private Field field;
+
+    // Living-cell counts at decreasing resolutions, for zoomed-out drawing.
+    private DensityMipmap densityMipmap;
+
+    // Per-species counts over rectangles, for the selected region's readout.
+    private RegionCounts regionCounts;
+
+    // activity counters shown by the heatmap modes
+    private CellActivity cellActivity;
+
+    // the counter shown as a heatmap, or null to show the cells, and its
+    // largest value when the field was last shown
+    private volatile CellActivity.Metric heatMetric;
+    private int heatMax;
+
     // Bottom pane which holds debug components (Start/Reset, etc.)
     private JPanel controlPane;
 
@@ -44,13 +75,46 @@ public class SimulatorView extends JFrame implements ActionListener {
     private JButton resetButton; // button to reset simulation
     private JButton populateButton;
 
+    // chooses where each species is spawned when the field is populated
+    private JComboBox<String> spawnSelector;
+    private static final String[] SPAWN_CHOICES = { "Quadrants", "Gradients", "Noise", "Image..." };
+    private int spawnChoice;
+    private volatile SpawnMap spawnMap = SpawnMap.quadrants();
+
+    // shows the speed the simulation is actually running at
+    private JLabel throughputLabel;
+
+    // timeline of the generations that can be rewound to, and the generation
+    // chosen on it that the simulation has not gone back to yet (or -1)
+    private JSlider timelineSlider;
+    private final AtomicInteger requestedGeneration = new AtomicInteger(-1);
+
+    // set while the simulation moves the timeline, so it is not taken as a
+    // request to rewind
+    private boolean updatingTimeline;
+
     // ComboBox which will allow the selection of species
     private JComboBox<Species> speciesSelector;
 
-    // simulation speed slider values
-    private int sliderUpperBound = 100;
-    private int defaultSliderValue = sliderUpperBound / 2;
-    private int currentSliderValue;
+    // ComboBox which will allow the selection of the brush or stamp to draw with
+    private JComboBox<Brush> brushSelector;
+
+    // chooses between showing the cells and the activity heatmaps
+    private JComboBox<String> renderModeSelector;
+    private JButton exportHeatmapButton;
+
+    // simulation speed, in generations per second on a log scale: the slider
+    // has SPEED_STEPS_PER_DECADE steps for every factor of ten, from 1 up to
+    // 10^SPEED_DECADES, and the unlimited box runs it as fast as it can
+    private static final int SPEED_STEPS_PER_DECADE = 100;
+    private static final int SPEED_DECADES = 5;
+    private static final int DEFAULT_SPEED_STEP = SPEED_STEPS_PER_DECADE; // 10 gen/s
+    private JCheckBox unlimitedSpeedBox;
+    private JLabel speedValueLabel;
+
+    // the chosen rate, set on the event dispatch thread and read by the
+    // simulation thread
+    private volatile double targetRate;
 
     // keep track of state of simulation
     private boolean paused, reset, populateButtonPressed;
@@ -59,6 +123,9 @@ public class SimulatorView extends JFrame implements ActionListener {
     private int mouseX, mouseY;
     private boolean isMouseBeingPressed = false;
 
+    // the locations drawn over with the mouse, waiting to be applied
+    private DrawingQueue drawingQueue;
+
     // container which whill store components in the running JFrame
     private Container contents = getContentPane();
 
@@ -71,26 +138,32 @@ public class SimulatorView extends JFrame implements ActionListener {
      */
     public SimulatorView(int height, int width) {
         stats = new FieldStats();
+        densityMipmap = new DensityMipmap(height, width);
+        drawingQueue = new DrawingQueue(width);
         fieldView = new FieldView(height, width);
 
         setTitle("Life Simulation");
         genLabel = new JLabel(GENERATION_PREFIX, JLabel.CENTER);
         infoLabel = new JLabel(" ", JLabel.CENTER);
         population = new JLabel(POPULATION_PREFIX, JLabel.CENTER);
+        eventLabel = new JLabel(" ", JLabel.CENTER);
+        populationChart = new PopulationChart(fieldView.getPreferredSize().width, 110);
 
         Dimension size = Toolkit.getDefaultToolkit().getScreenSize();
         int screenWidth = (int) size.getWidth();
         int screenHeight = (int) size.getHeight();
-        int tileSize = fieldView.getViewScalingFactor();
+        Dimension viewSize = fieldView.getPreferredSize();
         // centre the window
-        setLocation((int) (0.5 * (screenWidth - (width * tileSize))),
-                (int) (0.5 * (screenHeight - (height * tileSize))));
+        setLocation((int) (0.5 * (screenWidth - viewSize.width)),
+                (int) (0.5 * (screenHeight - viewSize.height)));
 
-        this.setMinimumSize(new Dimension(840, 800));
+        this.setMinimumSize(new Dimension(840, 920));
 
         JPanel infoPane = new JPanel(new BorderLayout());
         infoPane.add(genLabel, BorderLayout.WEST);
         infoPane.add(infoLabel, BorderLayout.CENTER);
+        regionLabel = new JLabel(" ", JLabel.CENTER);
+        infoPane.add(regionLabel, BorderLayout.EAST);
 
         controlPane = createControlPane();
         // disable all debug components (to only be interactable when simulate() is
@@ -108,10 +181,17 @@ public class SimulatorView extends JFrame implements ActionListener {
         mainConstraints.gridy = 1;
         contents.add(fieldView, mainConstraints);
 
+        // the population, with what happened to it in the last generation below
+        JPanel statsPane = new JPanel(new GridLayout(2, 1));
+        statsPane.add(population);
+        statsPane.add(eventLabel);
         mainConstraints.gridy = 2;
-        contents.add(population, mainConstraints);
+        contents.add(statsPane, mainConstraints);
 
         mainConstraints.gridy = 3;
+        contents.add(populationChart, mainConstraints);
+
+        mainConstraints.gridy = 4;
         contents.add(controlPane, mainConstraints);
 
         // Add instruction Label and Species selector box
@@ -136,8 +216,31 @@ public class SimulatorView extends JFrame implements ActionListener {
         speciesSelector.addActionListener(this);
         bottomPane.add(speciesSelector, bottomConstraints);
 
+        // create the brush selector and add it next to the species selector
+        bottomConstraints.gridx = 2;
+        brushSelector = new JComboBox<Brush>(Brush.BRUSHES);
+        brushSelector.setEnabled(false);
+        bottomPane.add(brushSelector, bottomConstraints);
+
+        // create the render mode selector and heatmap export button
+        bottomConstraints.gridx = 3;
+        renderModeSelector = new JComboBox<String>();
+        renderModeSelector.addItem("Cells");
+        for (CellActivity.Metric metric : CellActivity.Metric.values()) {
+            renderModeSelector.addItem(metric + " heatmap");
+        }
+        renderModeSelector.setEnabled(false);
+        renderModeSelector.addActionListener(this);
+        bottomPane.add(renderModeSelector, bottomConstraints);
+
+        bottomConstraints.gridx = 4;
+        exportHeatmapButton = new JButton("Export heatmap");
+        exportHeatmapButton.setEnabled(false);
+        exportHeatmapButton.addActionListener(this);
+        bottomPane.add(exportHeatmapButton, bottomConstraints);
+
         // add bottomPane at the end
-        mainConstraints.gridy = 4;
+        mainConstraints.gridy = 5;
         contents.add(bottomPane, mainConstraints);
 
         // close the frame if the window is closed
@@ -160,18 +263,21 @@ public class SimulatorView extends JFrame implements ActionListener {
             instructionLabel.setText("You cannot draw during a simulation or on a pre-populated field");
         }
 
-        // set the status of the selector depending on if @param val is true or false
+        // set the status of the selectors depending on if @param val is true or false
         speciesSelector.setEnabled(isAllowed);
+        brushSelector.setEnabled(isAllowed);
     }
 
     /**
      * Toggle state of components set them as interactable or not
      */
     public void toggleDebugComponents(boolean value) {
-        speedSlider.setEnabled(value);
+        speedSlider.setEnabled(value && !unlimitedSpeedBox.isSelected());
+        unlimitedSpeedBox.setEnabled(value);
         toggleSimButton.setEnabled(value);
         resetButton.setEnabled(value);
         populateButton.setEnabled(value);
+        spawnSelector.setEnabled(value);
     }
 
     /**
@@ -182,7 +288,6 @@ public class SimulatorView extends JFrame implements ActionListener {
      */
     public JPanel createControlPane() {
         // default values for the fields
-        currentSliderValue = defaultSliderValue;
         paused = true;
         reset = false;
 
@@ -190,16 +295,33 @@ public class SimulatorView extends JFrame implements ActionListener {
         JPanel controlPane = new JPanel();
         controlPane.setLayout(new GridBagLayout()); // using the GridBagLayout
 
-        // create all the buttons and the speed selection slider
-        speedSlider = new JSlider(0, sliderUpperBound, currentSliderValue);
-        speedSlider.setMinorTickSpacing(10);
-        speedSlider.setSnapToTicks(true);
+        // create all the buttons and the speed selection slider, with a tick
+        // at every power of ten
+        speedSlider = new JSlider(0, SPEED_STEPS_PER_DECADE * SPEED_DECADES, DEFAULT_SPEED_STEP);
+        speedSlider.setMajorTickSpacing(SPEED_STEPS_PER_DECADE);
         speedSlider.setPaintTicks(true);
-        speedSlider.setInverted(true); // invert the scale. eg from 0-100 to 100-0
+        unlimitedSpeedBox = new JCheckBox("Unlimited");
+        speedValueLabel = new JLabel("100000 gen/s", JLabel.RIGHT);
+        // keep the label as wide as the widest rate, so the slider stays put
+        speedValueLabel.setPreferredSize(speedValueLabel.getPreferredSize());
+        ChangeListener speedListener = new ChangeListener() {
+            /**
+             * Take up the chosen speed straight away
+             */
+            @Override
+            public void stateChanged(ChangeEvent event) {
+                updateTargetRate();
+            }
+        };
+        speedSlider.addChangeListener(speedListener);
+        unlimitedSpeedBox.addChangeListener(speedListener);
+        updateTargetRate();
 
         toggleSimButton = new JButton("Start");
         resetButton = new JButton("Reset");
         populateButton = new JButton("Populate field");
+        spawnSelector = new JComboBox<String>(SPAWN_CHOICES);
+        spawnSelector.setToolTipText("Where each species is spawned when the field is populated");
 
         // pane used to contain both the slider component and accompanying label
         JLabel speedLabel = new JLabel("Simulation Speed: ", JLabel.CENTER);
@@ -216,6 +338,10 @@ public class SimulatorView extends JFrame implements ActionListener {
         speedPane.add(speedLabel, speedConstraints);
         speedConstraints.gridx = 1;
         speedPane.add(speedSlider, speedConstraints);
+        speedConstraints.gridx = 2;
+        speedPane.add(speedValueLabel, speedConstraints);
+        speedConstraints.gridx = 3;
+        speedPane.add(unlimitedSpeedBox, speedConstraints);
 
         // add components to main pane horizontally
         controlPane.add(speedPane, gridConstraints);
@@ -229,10 +355,45 @@ public class SimulatorView extends JFrame implements ActionListener {
         gridConstraints.gridx = 3;
         controlPane.add(populateButton, gridConstraints);
 
+        gridConstraints.gridx = 4;
+        controlPane.add(spawnSelector, gridConstraints);
+
+        // add the throughput label underneath, across the whole pane
+        throughputLabel = new JLabel(" ", JLabel.CENTER);
+        gridConstraints.gridx = 0;
+        gridConstraints.gridy = 1;
+        gridConstraints.gridwidth = 5;
+        controlPane.add(throughputLabel, gridConstraints);
+
+        // add the timeline below that, usable only while paused
+        JPanel timelinePane = new JPanel(new GridBagLayout());
+        GridBagConstraints timelineConstraints = new GridBagConstraints();
+        timelinePane.add(new JLabel("Rewind to generation: ", JLabel.CENTER), timelineConstraints);
+        timelineSlider = new JSlider(0, 0, 0);
+        timelineSlider.setPaintLabels(true);
+        timelineSlider.setEnabled(false);
+        timelineSlider.addChangeListener(new ChangeListener() {
+            /**
+             * Ask for the chosen generation straight away, even while the
+             * slider is still being dragged
+             */
+            @Override
+            public void stateChanged(ChangeEvent event) {
+                if (!updatingTimeline) {
+                    requestedGeneration.set(timelineSlider.getValue());
+                }
+            }
+        });
+        timelineConstraints.gridx = 1;
+        timelinePane.add(timelineSlider, timelineConstraints);
+        gridConstraints.gridy = 2;
+        controlPane.add(timelinePane, gridConstraints);
+
         // add listeners for when the buttons are clicked
         toggleSimButton.addActionListener(this);
         resetButton.addActionListener(this);
         populateButton.addActionListener(this);
+        spawnSelector.addActionListener(this);
 
         return controlPane;
     }
@@ -246,13 +407,15 @@ public class SimulatorView extends JFrame implements ActionListener {
 
         populateButtonPressed = false;
         populateButton.setEnabled(true);
+        spawnSelector.setEnabled(true);
 
         toggleSimButton.setText("Start");
 
-        currentSliderValue = defaultSliderValue;
-        speedSlider.setValue(currentSliderValue);
+        speedSlider.setValue(DEFAULT_SPEED_STEP);
+        unlimitedSpeedBox.setSelected(false);
 
         speciesSelector.setSelectedIndex(0);
+        brushSelector.setSelectedIndex(0);
     }
 
     /**
@@ -270,12 +433,125 @@ public class SimulatorView extends JFrame implements ActionListener {
             } else {
                 toggleSimButton.setText("Pause");
             }
+            timelineSlider.setEnabled(paused && timelineSlider.getMaximum() > timelineSlider.getMinimum());
         } else if (event.getSource() == resetButton) {
             reset = true;
 
         } else if (event.getSource() == populateButton) {
             populateButtonPressed = true;
             populateButton.setEnabled(false);
+            spawnSelector.setEnabled(false);
+
+        } else if (event.getSource() == spawnSelector) {
+            chooseSpawnMap();
+
+        } else if (event.getSource() == renderModeSelector) {
+            int mode = renderModeSelector.getSelectedIndex();
+            heatMetric = mode > 0 ? CellActivity.Metric.values()[mode - 1] : null;
+            exportHeatmapButton.setEnabled(heatMetric != null);
+            updateHeatMax();
+            fieldView.repaint();
+
+        } else if (event.getSource() == exportHeatmapButton) {
+            exportHeatmap();
+        }
+    }
+
+    /**
+     * Take up the spawn map chosen in the selector, asking for the image to
+     * read an image map from. If no usable image is chosen, the previous
+     * choice is kept.
+     */
+    private void chooseSpawnMap() {
+        int choice = spawnSelector.getSelectedIndex();
+        if (choice == spawnChoice) {
+            return;
+        }
+        try {
+            switch (choice) {
+                case 1:
+                    spawnMap = SpawnMap.gradients();
+                    break;
+                case 2:
+                    // new patches every time noise is chosen
+                    spawnMap = SpawnMap.parse("noise:" + System.nanoTime());
+                    break;
+                case 3:
+                    JFileChooser chooser = new JFileChooser();
+                    chooser.setDialogTitle("Spawn from image (red: Mycoplasma, green: Helicobacter, blue: Isseria)");
+                    if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                        spawnSelector.setSelectedIndex(spawnChoice);
+                        return;
+                    }
+                    spawnMap = SpawnMap.parse("image:" + chooser.getSelectedFile().getPath());
+                    break;
+                default:
+                    spawnMap = SpawnMap.quadrants();
+            }
+            spawnChoice = choice;
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Spawn map not changed", JOptionPane.ERROR_MESSAGE);
+            spawnSelector.setSelectedIndex(spawnChoice);
+        }
+    }
+
+    /**
+     * @return where each species is spawned when the field is next populated
+     */
+    public SpawnMap getSpawnMap() {
+        return spawnMap;
+    }
+
+    /**
+     * Ask where to save the heatmap being shown and write it there as a
+     * binary matrix.
+     */
+    private void exportHeatmap() {
+        CellActivity.Metric metric = heatMetric;
+        if (metric == null || cellActivity == null) {
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export " + metric + " heatmap");
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            cellActivity.write(metric, chooser.getSelectedFile().getPath());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not export the heatmap: " + e.getMessage(),
+                    "Export failed", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Use the given counters for the heatmap render modes, which are only
+     * offered once there are counters to show.
+     * 
+     * @param cellActivity the counters kept up to date by the simulation
+     */
+    public void setCellActivity(CellActivity cellActivity) {
+        this.cellActivity = cellActivity;
+        renderModeSelector.setEnabled(cellActivity != null);
+    }
+
+    /**
+     * Chart the population over the run from the given history.
+     * 
+     * @param history the history kept up to date by the simulation
+     */
+    public void setPopulationHistory(PopulationHistory history) {
+        populationChart.setHistory(history);
+    }
+
+    /**
+     * Find the largest value of the heatmap being shown, which is drawn in the
+     * hottest colour.
+     */
+    private void updateHeatMax() {
+        CellActivity.Metric metric = heatMetric;
+        if (metric != null && cellActivity != null) {
+            heatMax = cellActivity.getMax(metric);
         }
     }
 
@@ -287,6 +563,20 @@ public class SimulatorView extends JFrame implements ActionListener {
         return (Species) speciesSelector.getSelectedItem();
     }
 
+    /**
+     * @return the brush or stamp selected in the brush selector JComboBox
+     */
+    public Brush getBrushSelected() {
+        return (Brush) brushSelector.getSelectedItem();
+    }
+
+    /**
+     * @return the queue of locations drawn over with the mouse
+     */
+    public DrawingQueue getDrawingQueue() {
+        return drawingQueue;
+    }
+
     /**
      * @return whether the simulation is paused or not
      */
@@ -302,26 +592,75 @@ public class SimulatorView extends JFrame implements ActionListener {
     }
 
     /**
-     * @return the percentage of how far along the slider is
+     * @return the number of generations per second chosen, or
+     *         FrameRateController.UNLIMITED if the unlimited box is ticked
+     */
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * Work out the target rate from the speed slider, which goes up by a
+     * factor of ten every SPEED_STEPS_PER_DECADE steps, and the unlimited box,
+     * and show it beside the slider
      */
-    public float getDelayMultiplier() {
-        // casting to increase accuracy (otherwise it becomes an integer)
-        return (float) currentSliderValue / sliderUpperBound;
+    private void updateTargetRate() {
+        boolean unlimited = unlimitedSpeedBox.isSelected();
+        double rate = Math.pow(10, (double) speedSlider.getValue() / SPEED_STEPS_PER_DECADE);
+        speedSlider.setEnabled(unlimitedSpeedBox.isEnabled() && !unlimited);
+        speedValueLabel.setText(String.format(rate < 10 ? "%.1f gen/s" : "%.0f gen/s", rate));
+        targetRate = unlimited ? FrameRateController.UNLIMITED : rate;
     }
 
     /**
+     * Show the range of generations that can be rewound to on the timeline,
+     * which can only be used while the simulation is paused.
      * 
-     * @return if the population button has been pressed or not
+     * @param oldest  the oldest generation held
+     * @param newest  the newest generation held
+     * @param current the generation being shown
      */
-    public boolean getPopulateButtonPressed() {
-        return populateButtonPressed;
+    public void showTimeline(int oldest, int newest, int current) {
+        int first = Math.max(oldest, 0);
+        int last = Math.max(newest, first);
+
+        updatingTimeline = true;
+        timelineSlider.setMinimum(first);
+        timelineSlider.setMaximum(last);
+        timelineSlider.setValue(current);
+        // label the ends of the timeline
+        timelineSlider.setLabelTable(timelineSlider.createStandardLabels(Math.max(last - first, 1), first));
+        timelineSlider.setEnabled(paused && last > first);
+        updatingTimeline = false;
+    }
+
+    /**
+     * @return the generation last chosen on the timeline, or -1 if none has
+     *         been chosen since the last call
+     */
+    public int takeRewindRequest() {
+        return requestedGeneration.getAndSet(-1);
     }
 
     /**
-     * Update the currentSliderValue field with the value of the slider
+     * Show the speed the simulation is running at.
+     * 
+     * @param generationRate the generations simulated per second
+     * @param frameRate      the generations drawn per second
+     */
+    public void showThroughput(double generationRate, double frameRate) {
+        double target = getTargetRate();
+        String targetText = Double.isInfinite(target) ? "unlimited" : String.format("%.1f gen/s", target);
+        throughputLabel.setText(String.format("Target: %s   Achieved: %.1f gen/s at %.1f fps", targetText,
+                generationRate, frameRate));
+    }
+
+    /**
+     * 
+     * @return if the population button has been pressed or not
      */
-    public void updateSliderValue() {
-        currentSliderValue = speedSlider.getValue();
+    public boolean getPopulateButtonPressed() {
+        return populateButtonPressed;
     }
 
     /**
@@ -338,10 +677,9 @@ public class SimulatorView extends JFrame implements ActionListener {
      * @return Location at the row and column of the mouse click
      */
     public Location getMouseLocation() {
-        // x-coordinate / tile width == column
-        int gridx = (int) (mouseX / fieldView.getViewScalingFactor());
-        // y-cordinate / tile height == row
-        int gridy = (int) (mouseY / fieldView.getViewScalingFactor());
+        // convert the screen coordinates through the current pan and zoom
+        int gridx = fieldView.toColumn(mouseX);
+        int gridy = fieldView.toRow(mouseY);
 
         // restrict xy-coordinates to the JPanel size
         gridx = Math.max(Math.min(gridx, fieldView.gridWidth - 1), 0);
@@ -350,6 +688,16 @@ public class SimulatorView extends JFrame implements ActionListener {
         return new Location(gridy, gridx);
     }
 
+    /**
+     * Calculates the index (row * width + col) of the field location that the
+     * mouse is at, without allocating a Location
+     * 
+     * @return index of the location under the mouse
+     */
+    public int getMouseIndex() {
+        return fieldView.toRow(mouseY) * fieldView.gridWidth + fieldView.toColumn(mouseX);
+    }
+
     /**
      * Show the current status of the field.
      * 
@@ -363,26 +711,138 @@ public class SimulatorView extends JFrame implements ActionListener {
 
         genLabel.setText(GENERATION_PREFIX + generation);
         stats.reset();
-        fieldView.preparePaint();
-
-        updateSliderValue();
+        this.field = field;
 
+        // count the population, bring the density pyramid up to date and note
+        // which locations change colour; only those are drawn again
         for (int row = 0; row < field.getDepth(); row++) {
             for (int col = 0; col < field.getWidth(); col++) {
                 Cell cell = field.getObjectAt(row, col);
+                boolean alive = cell != null && cell.isAlive();
+
+                if (alive) {
+                    stats.incrementCount(cell.getClass());
+                }
+                densityMipmap.set(row, col, alive);
+                fieldView.showColor(row * field.getWidth() + col, alive ? cell.getColor().getRGB() : EMPTY_RGB);
+            }
+        }
+
+        stats.countFinished();
+        population.setText(POPULATION_PREFIX + "  " + stats.getPopulationDetails(field));
+        showRegionCounts();
+        updateHeatMax();
+        fieldView.repaintChanged();
+        populationChart.repaint();
+    }
+
+    /**
+     * Show how often each rule fired in the latest generation.
+     * 
+     * @param counts The counts of the generation, or null if none were taken.
+     */
+    public void showRuleCounts(RuleCounters.Counts counts) {
+        if (counts == null) {
+            eventLabel.setText(" ");
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (RuleCounters.Event event : RuleCounters.Event.values()) {
+            text.append(event).append(": ").append(counts.get(event)).append("   ");
+        }
+        eventLabel.setText(text.toString().trim());
+    }
+
+    /**
+     * Show a field in which only the given rectangle has changed since it was
+     * last shown, e.g. after drawing on it, redrawing only that part.
+     * 
+     * @param generation The current generation.
+     * @param field      The field whose status is to be displayed.
+     * @param top        The first changed row.
+     * @param left       The first changed column.
+     * @param bottom     The last changed row.
+     * @param right      The last changed column.
+     */
+    public void showDrawing(int generation, Field field, int top, int left, int bottom, int right) {
+        genLabel.setText(GENERATION_PREFIX + generation);
+        stats.reset();
+        this.field = field;
 
+        for (int row = 0; row < field.getDepth(); row++) {
+            for (int col = 0; col < field.getWidth(); col++) {
+                Cell cell = field.getObjectAt(row, col);
                 if (cell != null && cell.isAlive()) {
                     stats.incrementCount(cell.getClass());
-                    fieldView.drawMark(col, row, cell.getColor());
-                } else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
                 }
             }
         }
+        for (int row = top; row <= bottom; row++) {
+            for (int col = left; col <= right; col++) {
+                Cell cell = field.getObjectAt(row, col);
+                boolean alive = cell != null && cell.isAlive();
+                densityMipmap.set(row, col, alive);
+                fieldView.showColor(row * field.getWidth() + col, alive ? cell.getColor().getRGB() : EMPTY_RGB);
+            }
+        }
 
         stats.countFinished();
         population.setText(POPULATION_PREFIX + "  " + stats.getPopulationDetails(field));
-        fieldView.repaint();
+        showRegionCounts();
+        if (heatMetric != null) {
+            // the hottest colour may now stand for a different value
+            updateHeatMax();
+        }
+        fieldView.repaintChanged();
+    }
+
+    /**
+     * Use the given counts for the readout of the region selected by dragging
+     * with the shift key held down.
+     * 
+     * @param regionCounts the counts kept up to date by the simulation
+     */
+    public void setRegionCounts(RegionCounts regionCounts) {
+        this.regionCounts = regionCounts;
+    }
+
+    /**
+     * Show how many living cells of each species are in the selected region.
+     */
+    private void showRegionCounts() {
+        if (regionCounts == null || !fieldView.hasSelection) {
+            regionLabel.setText(" ");
+            return;
+        }
+        int top = Math.min(fieldView.selectStartRow, fieldView.selectEndRow);
+        int bottom = Math.max(fieldView.selectStartRow, fieldView.selectEndRow);
+        int left = Math.min(fieldView.selectStartCol, fieldView.selectEndCol);
+        int right = Math.max(fieldView.selectStartCol, fieldView.selectEndCol);
+
+        StringBuilder text = new StringBuilder();
+        text.append("Region ").append(bottom - top + 1).append('x').append(right - left + 1).append(':');
+        for (Species species : Species.values()) {
+            if (species != Species.EMPTYCELL) {
+                text.append(' ').append(species).append(' ')
+                        .append(regionCounts.count(species, top, left, bottom, right));
+            }
+        }
+        regionLabel.setText(text.toString());
+    }
+
+    /**
+     * Report the period of the cycle the simulation has settled into.
+     * 
+     * @param period The detected period, 1 for a steady state, or 0 for none.
+     */
+    public void showDetectedPeriod(int period) {
+        if (period == 0) {
+            infoLabel.setText(" ");
+        } else if (period == 1) {
+            infoLabel.setText("Steady state reached");
+        } else {
+            infoLabel.setText("Cycle detected: period " + period);
+        }
     }
 
     /**
@@ -399,26 +859,93 @@ public class SimulatorView extends JFrame implements ActionListener {
      * a nested class (a class defined inside a class) which
      * defines a custom component for the user interface. This
      * component displays the field.
-     * This is rather advanced GUI stuff - you can ignore this
-     * for your project if you like.
+     * The view can be zoomed with the mouse wheel and panned by dragging with
+     * the right mouse button. Only the visible cells are drawn; once cells
+     * become smaller than a pixel, each pixel is instead shaded by the density
+     * of living cells it covers, read from the density pyramid, so drawing
+     * costs depend on the size of the view rather than of the field.
+     * In a heatmap mode, visible cells are coloured by an activity counter
+     * instead of by species.
+     *
+     * Cells are drawn into a retained image at the current zoom. The colour
+     * shown at each location is kept too, and each time the field is shown
+     * only the locations whose colour changed are drawn into the image, with
+     * the view repainted just over the tiles they lie in. The image is only
+     * drawn afresh when the view is zoomed, moved or resized, so the cost of a
+     * frame follows how much changed rather than the size of the field.
      */
-    private class FieldView extends JPanel implements MouseMotionListener {
+    private class FieldView extends JPanel implements MouseMotionListener, MouseWheelListener {
+        // Size of a cell in pixels when the whole field fits at this size.
         private final int GRID_VIEW_SCALING_FACTOR = 6;
+
+        // Largest size the view asks for, so huge fields still fit on screen.
+        private final int MAX_VIEW_WIDTH = 840, MAX_VIEW_HEIGHT = 660;
+
+        // Zoom limits, in pixels per cell.
+        private final double MAX_CELL_SIZE = 64;
+        private final double MIN_CELL_SIZE = 1.0 / 64;
+
+        // Colour of a block in which every location holds a living cell.
+        private final Color DENSE_COLOR = new Color(40, 40, 40);
+
+        // Colour of the outline of the selected region.
+        private final Color SELECTION_COLOR = Color.blue;
+
+        // Colours of the heatmaps, from no activity to the most.
+        private final Color[] HEAT_COLORS = heatScale(256);
+
         private int gridWidth, gridHeight;
-        private int xScale, yScale;
-        Dimension size;
-        private Graphics g;
-        private Image fieldImage;
 
-        /**
-         * 
-         * @return the size of the tile
-         */
-        public int getViewScalingFactor() {
-            return GRID_VIEW_SCALING_FACTOR;
-        }
+        // Pixels per cell, and the field coordinates shown at the top-left corner.
+        private double cellSize;
+        private double originCol, originRow;
+
+        // Whether the view still shows the whole field as first laid out.
+        private boolean fitted = true;
+
+        // Where a right-button pan started.
+        private int panStartX, panStartY;
+        private double panStartCol, panStartRow;
+
+        // Offscreen image used when drawing the zoomed-out density view.
+        private BufferedImage densityImage;
+
+        // Side of the square tiles of cells whose changes are repainted together.
+        private final int DIRTY_TILE = 16;
+
+        // The colour (RGB) each location is shown in. Cells are drawn from this
+        // rather than from the field, so the screen only changes along with the
+        // record of what changed.
+        private final int[] shownColors;
 
-        /*
+        // Locations whose colour changed during the current scan of the field.
+        private int[] changedCells = new int[256];
+        private int changedCount;
+
+        // Tiles holding changed locations, and the tile rows holding any.
+        private final boolean[] dirtyTiles, dirtyTileRows;
+        private final int tileColumns;
+
+        // Image of the visible cells, and the zoom and position it was drawn at.
+        private BufferedImage cellImage;
+        private double imageCellSize, imageOriginCol, imageOriginRow;
+
+        // Changed locations not yet drawn into the cell image, each listed once,
+        // or whether the image is to be drawn afresh. Guarded by pendingLock, as
+        // changes arrive from the simulation thread while painting runs on the
+        // event dispatch thread.
+        private final Object pendingLock = new Object();
+        private final boolean[] pending;
+        private int[] pendingCells = new int[256];
+        private int pendingCount;
+        private boolean cellImageStale = true;
+
+        // The region selected by dragging with shift held, as two opposite
+        // corners, and whether it is being dragged out now.
+        private boolean hasSelection, selecting;
+        private int selectStartRow, selectStartCol, selectEndRow, selectEndCol;
+
+        /**
          * Update the mouse coordinates
          */
         public void updateMouseCoords(MouseEvent e) {
@@ -435,13 +962,48 @@ public class SimulatorView extends JFrame implements ActionListener {
         }
 
         /**
-         * If the mouse is pressed and moved, update mouse coordinates and set pressed
-         * flag to true
+         * If the mouse is dragged with the left button, draw; with the right
+         * button, pan the view.
          */
         @Override
         public void mouseDragged(MouseEvent event) {
+            if (selecting) {
+                selectEndRow = toRow(event.getY());
+                selectEndCol = toColumn(event.getX());
+                showRegionCounts();
+                repaint();
+                return;
+            }
+            if (SwingUtilities.isRightMouseButton(event)) {
+                originCol = panStartCol - (event.getX() - panStartX) / cellSize;
+                originRow = panStartRow - (event.getY() - panStartY) / cellSize;
+                fitted = false;
+                repaint();
+                return;
+            }
             isMouseBeingPressed = true;
             updateMouseCoords(event);
+            if (speciesSelector.isEnabled()) {
+                drawingQueue.continueStroke(toRow(event.getY()), toColumn(event.getX()));
+            }
+        }
+
+        /**
+         * Zoom in or out around the mouse pointer.
+         */
+        @Override
+        public void mouseWheelMoved(MouseWheelEvent event) {
+            double newSize = cellSize * Math.pow(1.25, -event.getPreciseWheelRotation());
+            newSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, newSize));
+
+            // keep the cell under the pointer in place
+            double col = originCol + event.getX() / cellSize;
+            double row = originRow + event.getY() / cellSize;
+            cellSize = newSize;
+            originCol = col - event.getX() / cellSize;
+            originRow = row - event.getY() / cellSize;
+            fitted = false;
+            repaint();
         }
 
         /**
@@ -450,22 +1012,52 @@ public class SimulatorView extends JFrame implements ActionListener {
         public FieldView(int height, int width) {
             gridHeight = height;
             gridWidth = width;
-            size = new Dimension(0, 0);
+            shownColors = new int[height * width];
+            pending = new boolean[height * width];
+            tileColumns = (width + DIRTY_TILE - 1) / DIRTY_TILE;
+            dirtyTiles = new boolean[tileColumns * ((height + DIRTY_TILE - 1) / DIRTY_TILE)];
+            dirtyTileRows = new boolean[(height + DIRTY_TILE - 1) / DIRTY_TILE];
+            Dimension preferred = getPreferredSize();
+            cellSize = fitCellSize(preferred.width, preferred.height);
+            setBackground(GRID_COLOR);
+            setToolTipText("Scroll to zoom, drag with the right mouse button to move around, "
+                    + "shift-drag to count a region");
 
             // add motion listener for when mouse is clicked and dragged
             addMouseMotionListener(this);
+            addMouseWheelListener(this);
 
             // add normal listener for when it is simply clicked
             this.addMouseListener(new MouseAdapter() {
 
                 /**
                  * set the mouse press flag to true once its been released and update the
-                 * coordinates of where it was pressed
+                 * coordinates of where it was pressed, or start panning for the right
+                 * button
                  */
                 @Override
                 public void mousePressed(MouseEvent event) {
+                    if (SwingUtilities.isRightMouseButton(event)) {
+                        panStartX = event.getX();
+                        panStartY = event.getY();
+                        panStartCol = originCol;
+                        panStartRow = originRow;
+                        return;
+                    }
+                    if (event.isShiftDown()) {
+                        selecting = true;
+                        hasSelection = true;
+                        selectStartRow = selectEndRow = toRow(event.getY());
+                        selectStartCol = selectEndCol = toColumn(event.getX());
+                        showRegionCounts();
+                        repaint();
+                        return;
+                    }
                     updateMouseCoords(event);
                     isMouseBeingPressed = true;
+                    if (speciesSelector.isEnabled()) {
+                        drawingQueue.beginStroke(toRow(event.getY()), toColumn(event.getX()));
+                    }
                 }
 
                 /**
@@ -473,7 +1065,10 @@ public class SimulatorView extends JFrame implements ActionListener {
                  */
                 @Override
                 public void mouseReleased(MouseEvent e) {
-                    isMouseBeingPressed = false;
+                    selecting = false;
+                    if (!SwingUtilities.isRightMouseButton(e)) {
+                        isMouseBeingPressed = false;
+                    }
                 }
             });
         }
@@ -482,53 +1077,360 @@ public class SimulatorView extends JFrame implements ActionListener {
          * Tell the GUI manager how big we would like to be.
          */
         public Dimension getPreferredSize() {
-            return new Dimension(gridWidth * GRID_VIEW_SCALING_FACTOR,
-                    gridHeight * GRID_VIEW_SCALING_FACTOR);
+            return new Dimension(Math.min(gridWidth * GRID_VIEW_SCALING_FACTOR, MAX_VIEW_WIDTH),
+                    Math.min(gridHeight * GRID_VIEW_SCALING_FACTOR, MAX_VIEW_HEIGHT));
+        }
+
+        /**
+         * @param x A horizontal position in the view.
+         * @return The column of the field shown at that position, kept within
+         *         the field.
+         */
+        public int toColumn(int x) {
+            int col = (int) Math.floor(originCol + x / cellSize);
+            return Math.max(Math.min(col, gridWidth - 1), 0);
+        }
+
+        /**
+         * @param y A vertical position in the view.
+         * @return The row of the field shown at that position, kept within the
+         *         field.
+         */
+        public int toRow(int y) {
+            int row = (int) Math.floor(originRow + y / cellSize);
+            return Math.max(Math.min(row, gridHeight - 1), 0);
+        }
+
+        /**
+         * Redraw only the part of the view showing the given rectangle of
+         * cells.
+         */
+        public void repaintCells(int top, int left, int bottom, int right) {
+            if (cellSize < 1) {
+                // the density image is redrawn as a whole
+                repaint();
+                return;
+            }
+            int x = (int) Math.floor((left - originCol) * cellSize);
+            int y = (int) Math.floor((top - originRow) * cellSize);
+            int x2 = (int) Math.ceil((right + 1 - originCol) * cellSize);
+            int y2 = (int) Math.ceil((bottom + 1 - originRow) * cellSize);
+            repaint(x, y, x2 - x, y2 - y);
         }
 
         /**
-         * Prepare for a new round of painting. Since the component
-         * may be resized, compute the scaling factor again.
+         * Set the colour a location is to be shown in. It is drawn at the next
+         * call to repaintChanged, if it differs from the colour shown now.
+         *
+         * @param index The index of the location (row * width + col).
+         * @param rgb   The colour, as from Color.getRGB.
          */
-        public void preparePaint() {
-            if (!size.equals(getSize())) { // if the size has changed...
-                size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
-
-                xScale = size.width / gridWidth;
-                if (xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
+        public void showColor(int index, int rgb) {
+            if (shownColors[index] != rgb) {
+                shownColors[index] = rgb;
+                if (changedCount == changedCells.length) {
+                    changedCells = Arrays.copyOf(changedCells, changedCount * 2);
                 }
-                yScale = size.height / gridHeight;
-                if (yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
+                changedCells[changedCount++] = index;
+            }
+        }
+
+        /**
+         * Draw the locations whose colour changed since the last call, and
+         * repaint the view over each run of tiles they lie in.
+         */
+        public void repaintChanged() {
+            int count = changedCount;
+            changedCount = 0;
+
+            if (heatMetric != null || cellSize < 1 || count > shownColors.length / 4) {
+                // heatmaps change everywhere, the density view is drawn as a
+                // whole, and past a quarter of the field it is cheaper to draw
+                // every cell than to track them
+                synchronized (pendingLock) {
+                    cellImageStale = true;
+                    clearPending();
                 }
+                if (count > 0 || heatMetric != null) {
+                    repaint();
+                }
+                return;
+            }
+
+            synchronized (pendingLock) {
+                for (int i = 0; i < count; i++) {
+                    int index = changedCells[i];
+                    if (!pending[index]) {
+                        pending[index] = true;
+                        if (pendingCount == pendingCells.length) {
+                            pendingCells = Arrays.copyOf(pendingCells, pendingCount * 2);
+                        }
+                        pendingCells[pendingCount++] = index;
+                    }
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                int tileRow = changedCells[i] / gridWidth / DIRTY_TILE;
+                dirtyTiles[tileRow * tileColumns + changedCells[i] % gridWidth / DIRTY_TILE] = true;
+                dirtyTileRows[tileRow] = true;
+            }
+            // merge neighbouring dirty tiles of a row into one rectangle
+            for (int tileRow = 0; tileRow < dirtyTileRows.length; tileRow++) {
+                if (!dirtyTileRows[tileRow]) {
+                    continue;
+                }
+                dirtyTileRows[tileRow] = false;
+                int top = tileRow * DIRTY_TILE;
+                int bottom = Math.min(top + DIRTY_TILE, gridHeight) - 1;
+                for (int tileCol = 0; tileCol < tileColumns; tileCol++) {
+                    if (!dirtyTiles[tileRow * tileColumns + tileCol]) {
+                        continue;
+                    }
+                    int first = tileCol;
+                    while (tileCol < tileColumns && dirtyTiles[tileRow * tileColumns + tileCol]) {
+                        dirtyTiles[tileRow * tileColumns + tileCol] = false;
+                        tileCol++;
+                    }
+                    repaintCells(top, first * DIRTY_TILE, bottom, Math.min(tileCol * DIRTY_TILE, gridWidth) - 1);
+                }
+            }
+        }
+
+        /**
+         * Forget the locations waiting to be drawn. Called with pendingLock held.
+         */
+        private void clearPending() {
+            for (int i = 0; i < pendingCount; i++) {
+                pending[pendingCells[i]] = false;
             }
+            pendingCount = 0;
         }
 
         /**
-         * Paint on grid location on this field in a given color.
+         * The largest cell size at which the whole field fits in the given area.
          */
-        public void drawMark(int x, int y, Color color) {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale - 1, yScale - 1);
+        private double fitCellSize(int viewWidth, int viewHeight) {
+            return Math.min((double) viewWidth / gridWidth, (double) viewHeight / gridHeight);
         }
 
         /**
-         * The field view component needs to be redisplayed. Copy the
-         * internal image to screen.
+         * Draw the visible part of the field, either cell by cell or, when
+         * zoomed out beyond one pixel per cell, as a density image.
          */
         public void paintComponent(Graphics g) {
-            if (fieldImage != null) {
-                Dimension currentSize = getSize();
-                if (size.equals(currentSize)) {
-                    g.drawImage(fieldImage, 0, 0, null);
+            super.paintComponent(g);
+            if (field == null) {
+                return;
+            }
+
+            Dimension size = getSize();
+            if (fitted && size.width > 0 && size.height > 0) {
+                // follow the window size until the user zooms or pans
+                cellSize = fitCellSize(size.width, size.height);
+                originCol = 0;
+                originRow = 0;
+            }
+
+            if (cellSize >= 1 && heatMetric != null) {
+                paintHeat(g, size);
+            } else if (cellSize >= 1) {
+                paintCells(g, size);
+            } else {
+                paintDensity(g, size);
+            }
+
+            if (hasSelection) {
+                paintSelection(g);
+            }
+        }
+
+        /**
+         * Outline the region selected for counting.
+         */
+        private void paintSelection(Graphics g) {
+            int top = Math.min(selectStartRow, selectEndRow);
+            int bottom = Math.max(selectStartRow, selectEndRow);
+            int left = Math.min(selectStartCol, selectEndCol);
+            int right = Math.max(selectStartCol, selectEndCol);
+
+            int x = (int) Math.floor((left - originCol) * cellSize);
+            int y = (int) Math.floor((top - originRow) * cellSize);
+            int x2 = (int) Math.ceil((right + 1 - originCol) * cellSize);
+            int y2 = (int) Math.ceil((bottom + 1 - originRow) * cellSize);
+            g.setColor(SELECTION_COLOR);
+            g.drawRect(x, y, x2 - x - 1, y2 - y - 1);
+        }
+
+        /**
+         * Draw each visible cell as a square by its activity counter.
+         */
+        private void paintHeat(Graphics g, Dimension size) {
+            // only the cells inside the area being repainted need drawing
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(size);
+            }
+            int firstCol = Math.max((int) Math.floor(originCol + clip.x / cellSize), 0);
+            int firstRow = Math.max((int) Math.floor(originRow + clip.y / cellSize), 0);
+            int lastCol = Math.min((int) Math.ceil(originCol + (clip.x + clip.width) / cellSize), gridWidth - 1);
+            int lastRow = Math.min((int) Math.ceil(originRow + (clip.y + clip.height) / cellSize), gridHeight - 1);
+
+            // leave a one pixel gap between cells when there is room for it
+            int gap = cellSize >= 3 ? 1 : 0;
+
+            CellActivity.Metric metric = heatMetric;
+            double heatScale = (HEAT_COLORS.length - 1) / Math.log1p(Math.max(heatMax, 1));
+
+            for (int row = firstRow; row <= lastRow; row++) {
+                int y = (int) Math.floor((row - originRow) * cellSize);
+                int h = (int) Math.floor((row + 1 - originRow) * cellSize) - y - gap;
+                for (int col = firstCol; col <= lastCol; col++) {
+                    int x = (int) Math.floor((col - originCol) * cellSize);
+                    int w = (int) Math.floor((col + 1 - originCol) * cellSize) - x - gap;
+
+                    // logarithmic, so that a few very active cells do not wash out the rest
+                    int value = cellActivity.get(metric, row * gridWidth + col);
+                    int shade = (int) (Math.log1p(value) * heatScale);
+                    g.setColor(HEAT_COLORS[Math.min(shade, HEAT_COLORS.length - 1)]);
+                    g.fillRect(x, y, w, h);
+                }
+            }
+        }
+
+        /**
+         * Bring the cell image up to date and copy the area being repainted
+         * from it. The image is drawn afresh if the view was zoomed, moved or
+         * resized since it was drawn; otherwise only the locations that changed
+         * colour are drawn into it.
+         */
+        private void paintCells(Graphics g, Dimension size) {
+            boolean afresh;
+            synchronized (pendingLock) {
+                if (cellImage == null || cellImage.getWidth() != size.width
+                        || cellImage.getHeight() != size.height) {
+                    cellImage = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+                    cellImageStale = true;
+                }
+                afresh = cellImageStale || imageCellSize != cellSize || imageOriginCol != originCol
+                        || imageOriginRow != originRow;
+                int[] pixels = ((DataBufferInt) cellImage.getRaster().getDataBuffer()).getData();
+                if (afresh) {
+                    cellImageStale = false;
+                    imageCellSize = cellSize;
+                    imageOriginCol = originCol;
+                    imageOriginRow = originRow;
+                    clearPending();
                 } else {
-                    // Rescale the previous image.
-                    g.drawImage(fieldImage, 0, 0, currentSize.width, currentSize.height, null);
+                    for (int i = 0; i < pendingCount; i++) {
+                        int index = pendingCells[i];
+                        pending[index] = false;
+                        drawCell(pixels, size, index / gridWidth, index % gridWidth);
+                    }
+                    pendingCount = 0;
+                }
+            }
+
+            if (afresh) {
+                // colours changed while this runs are listed as pending again,
+                // so they are drawn by the next paint
+                int[] pixels = ((DataBufferInt) cellImage.getRaster().getDataBuffer()).getData();
+                Arrays.fill(pixels, getBackground().getRGB());
+                int firstCol = Math.max((int) Math.floor(originCol), 0);
+                int firstRow = Math.max((int) Math.floor(originRow), 0);
+                int lastCol = Math.min((int) Math.ceil(originCol + size.width / cellSize), gridWidth - 1);
+                int lastRow = Math.min((int) Math.ceil(originRow + size.height / cellSize), gridHeight - 1);
+                for (int row = firstRow; row <= lastRow; row++) {
+                    for (int col = firstCol; col <= lastCol; col++) {
+                        drawCell(pixels, size, row, col);
+                    }
                 }
             }
+            g.drawImage(cellImage, 0, 0, null);
+        }
+
+        /**
+         * Fill the square of one cell in the cell image with its colour,
+         * leaving a one pixel gap between cells when there is room for it.
+         */
+        private void drawCell(int[] pixels, Dimension size, int row, int col) {
+            int gap = cellSize >= 3 ? 1 : 0;
+            int x = Math.max((int) Math.floor((col - originCol) * cellSize), 0);
+            int y = Math.max((int) Math.floor((row - originRow) * cellSize), 0);
+            int x2 = Math.min((int) Math.floor((col + 1 - originCol) * cellSize) - gap, size.width);
+            int y2 = Math.min((int) Math.floor((row + 1 - originRow) * cellSize) - gap, size.height);
+            int rgb = shownColors[row * gridWidth + col];
+            for (int py = y; py < y2 && x < x2; py++) {
+                Arrays.fill(pixels, py * size.width + x, py * size.width + x2, rgb);
+            }
+        }
+
+        /**
+         * Shade each pixel by the share of living cells in the block of the
+         * density pyramid it falls in. The level is the finest one whose blocks
+         * are at least a pixel wide.
+         */
+        private void paintDensity(Graphics g, Dimension size) {
+            int level = 0;
+            while (level < densityMipmap.getLevels() - 1 && (1 << level) * cellSize < 1) {
+                level++;
+            }
+            int block = 1 << level;
+            double cellsPerBlock = (double) block * block;
+            int levelWidth = densityMipmap.getWidth(level);
+            int levelDepth = densityMipmap.getDepth(level);
+
+            if (densityImage == null || densityImage.getWidth() != size.width
+                    || densityImage.getHeight() != size.height) {
+                densityImage = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            }
+            int[] pixels = ((DataBufferInt) densityImage.getRaster().getDataBuffer()).getData();
+            int outside = getBackground().getRGB();
+
+            for (int y = 0; y < size.height; y++) {
+                int blockRow = (int) Math.floor((originRow + y / cellSize) / block);
+                for (int x = 0; x < size.width; x++) {
+                    int blockCol = (int) Math.floor((originCol + x / cellSize) / block);
+                    if (blockRow < 0 || blockCol < 0 || blockRow >= levelDepth || blockCol >= levelWidth) {
+                        pixels[y * size.width + x] = outside;
+                    } else {
+                        double density = densityMipmap.getCount(level, blockRow, blockCol) / cellsPerBlock;
+                        pixels[y * size.width + x] = shade(density);
+                    }
+                }
+            }
+            g.drawImage(densityImage, 0, 0, null);
+        }
+
+        /**
+         * Build a scale of colours running from white through yellow and red
+         * to a dark red.
+         */
+        private Color[] heatScale(int steps) {
+            Color[] stops = { EMPTY_COLOR, new Color(255, 220, 0), new Color(220, 0, 0), new Color(60, 0, 0) };
+            Color[] scale = new Color[steps];
+            for (int i = 0; i < steps; i++) {
+                double position = (double) i / (steps - 1) * (stops.length - 1);
+                int stop = Math.min((int) position, stops.length - 2);
+                double t = position - stop;
+                Color from = stops[stop];
+                Color to = stops[stop + 1];
+                scale[i] = new Color((int) (from.getRed() + (to.getRed() - from.getRed()) * t),
+                        (int) (from.getGreen() + (to.getGreen() - from.getGreen()) * t),
+                        (int) (from.getBlue() + (to.getBlue() - from.getBlue()) * t));
+            }
+            return scale;
+        }
+
+        /**
+         * Blend from the empty colour to the dense colour.
+         */
+        private int shade(double density) {
+            density = Math.min(density, 1);
+            int r = (int) (EMPTY_COLOR.getRed() + (DENSE_COLOR.getRed() - EMPTY_COLOR.getRed()) * density);
+            int gr = (int) (EMPTY_COLOR.getGreen() + (DENSE_COLOR.getGreen() - EMPTY_COLOR.getGreen()) * density);
+            int b = (int) (EMPTY_COLOR.getBlue() + (DENSE_COLOR.getBlue() - EMPTY_COLOR.getBlue()) * density);
+            return (r << 16) | (gr << 8) | b;
         }
     }
 }
@@ -0,0 +1,203 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ * Where on a new field each species is spawned. A spawn map weighs every
+ * location for each species between 0 (never spawned there) and 1 (spawned
+ * at the species' full density). Dead cells are given the species weighted
+ * highest at their location, so the map also decides which species grows
+ * where once the field comes to life.
+ *
+ * Maps are asked about locations from several threads at once, so they must
+ * not change while a field is being populated.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.14
+ */
+
+public interface SpawnMap {
+    /**
+     * @param species The species being spawned.
+     * @param row     The row of the location.
+     * @param col     The column of the location.
+     * @param depth   The depth of the field.
+     * @param width   The width of the field.
+     * @return How strongly the species is spawned at the location, from 0 to 1.
+     */
+    double weight(Species species, int row, int col, int depth, int width);
+
+    /**
+     * The original layout: Isseria in the top left quadrant, Helicobacter in
+     * the top right and Mycoplasma across the bottom half, for a field of any
+     * size.
+     *
+     * @return The map.
+     */
+    static SpawnMap quadrants() {
+        return (species, row, col, depth, width) -> {
+            boolean top = row <= depth / 2;
+            switch (species) {
+                case ISSERIA:
+                    return top && col <= width / 2 ? 1 : 0;
+                case HELICOBACTER:
+                    return top && col >= width / 2 ? 1 : 0;
+                case MYCOPLASMA:
+                    return top ? 0 : 1;
+                default:
+                    return 0;
+            }
+        };
+    }
+
+    /**
+     * Every species fades across the field: Mycoplasma from the bottom edge,
+     * Helicobacter from the right edge and Isseria from the left edge.
+     *
+     * @return The map.
+     */
+    static SpawnMap gradients() {
+        return (species, row, col, depth, width) -> {
+            double down = depth > 1 ? (double) row / (depth - 1) : 0.5;
+            double across = width > 1 ? (double) col / (width - 1) : 0.5;
+            switch (species) {
+                case MYCOPLASMA:
+                    return down;
+                case HELICOBACTER:
+                    return across;
+                case ISSERIA:
+                    return 1 - across;
+                default:
+                    return 0;
+            }
+        };
+    }
+
+    /**
+     * Smooth random patches for each species, made with value noise: random
+     * weights on a coarse lattice, blended smoothly between its points. The
+     * weights come from a hash of the seed, species and lattice point, so the
+     * same seed always gives the same patches.
+     *
+     * @param seed  The seed of the patches.
+     * @param scale The distance between lattice points, in cells; about the
+     *              size of a patch.
+     * @return The map.
+     */
+    static SpawnMap noise(long seed, double scale) {
+        return (species, row, col, depth, width) -> {
+            double y = row / scale;
+            double x = col / scale;
+            int y0 = (int) Math.floor(y);
+            int x0 = (int) Math.floor(x);
+            double fy = smoothStep(y - y0);
+            double fx = smoothStep(x - x0);
+
+            long speciesSeed = seed + species.ordinal() * 0x9E3779B97F4A7C15L;
+            double top = lerp(latticeWeight(speciesSeed, y0, x0), latticeWeight(speciesSeed, y0, x0 + 1), fx);
+            double bottom = lerp(latticeWeight(speciesSeed, y0 + 1, x0), latticeWeight(speciesSeed, y0 + 1, x0 + 1), fx);
+            return lerp(top, bottom, fy);
+        };
+    }
+
+    /**
+     * Weights read from an image stretched over the field: the red channel
+     * for Mycoplasma, green for Helicobacter and blue for Isseria.
+     *
+     * @param image The image.
+     * @return The map.
+     */
+    static SpawnMap imageMask(BufferedImage image) {
+        return (species, row, col, depth, width) -> {
+            int x = (int) ((long) col * image.getWidth() / width);
+            int y = (int) ((long) row * image.getHeight() / depth);
+            int rgb = image.getRGB(x, y);
+            switch (species) {
+                case MYCOPLASMA:
+                    return ((rgb >> 16) & 0xff) / 255.0;
+                case HELICOBACTER:
+                    return ((rgb >> 8) & 0xff) / 255.0;
+                case ISSERIA:
+                    return (rgb & 0xff) / 255.0;
+                default:
+                    return 0;
+            }
+        };
+    }
+
+    /**
+     * Weights read from an image file, as for imageMask(BufferedImage).
+     *
+     * @param file A PNG, GIF, JPEG or BMP image.
+     * @return The map.
+     * @throws IOException If the file cannot be read as an image.
+     */
+    static SpawnMap imageMask(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Not a readable image: " + file);
+        }
+        return imageMask(image);
+    }
+
+    /**
+     * Read a spawn map from its description, as given in a parameter grid or
+     * a request: "quadrants", "gradients", "noise:seed:scale" (the seed and
+     * scale may be left out) or "image:file".
+     *
+     * @param description The description.
+     * @return The map.
+     * @throws IllegalArgumentException If the description is not understood,
+     *                                  or names an image that cannot be read.
+     */
+    static SpawnMap parse(String description) {
+        String[] parts = description.trim().split(":", 2);
+        switch (parts[0].trim().toLowerCase()) {
+            case "quadrants":
+                return quadrants();
+            case "gradients":
+                return gradients();
+            case "noise":
+                String[] values = parts.length > 1 ? parts[1].split(":") : new String[0];
+                long seed = values.length > 0 ? Long.parseLong(values[0].trim()) : 0;
+                // patches about 16 cells across unless told otherwise
+                double scale = values.length > 1 ? Double.parseDouble(values[1].trim()) : 16;
+                if (!(scale > 0)) {
+                    throw new IllegalArgumentException("The noise scale must be greater than zero: " + scale);
+                }
+                return noise(seed, scale);
+            case "image":
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    throw new IllegalArgumentException("An image spawn map needs a file: image:<file>");
+                }
+                try {
+                    return imageMask(new File(parts[1].trim()));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Cannot read the spawn image " + parts[1].trim() + ": "
+                            + e.getMessage());
+                }
+            default:
+                throw new IllegalArgumentException("Unknown spawn map: " + description);
+        }
+    }
+
+    /**
+     * The random weight at a lattice point, from 0 to 1.
+     */
+    private static double latticeWeight(long seed, int y, int x) {
+        long hash = seed ^ (y * 0xC2B2AE3D27D4EB4FL) ^ (x * 0x165667B19E3779F9L);
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static double smoothStep(double t) {
+        return t * t * (3 - 2 * t);
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+}
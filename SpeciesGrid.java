@@ -0,0 +1,117 @@
+/**
+ * A compact copy of a field holding, for every location, the species of the
+ * living cell there as a single byte (0 when the location holds no living
+ * cell). The grid is padded with a one-cell border of zeros on every side so
+ * that neighbour stencils can read all eight neighbours of any location
+ * without bounds checks. Arrays of neighbour counts use the same layout.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.03
+ */
+
+public class SpeciesGrid {
+    // Value stored for a location without a living cell.
+    public static final byte NONE = 0;
+
+    // The size of the field the grid mirrors.
+    private final int depth, width;
+
+    // Distance between the starts of two consecutive rows in the array.
+    private final int stride;
+
+    // The padded cells.
+    private final byte[] cells;
+
+    /**
+     * Create an empty grid for a field of the given size.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public SpeciesGrid(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        stride = width + 2;
+        cells = new byte[(depth + 2) * stride];
+    }
+
+    /**
+     * The byte stored for a living cell of the given species.
+     *
+     * @param species The species.
+     * @return The value stored in the grid for it.
+     */
+    public static byte code(Species species) {
+        return (byte) (species.ordinal() + 1);
+    }
+
+    /**
+     * Copy the living cells of the field into the grid.
+     *
+     * @param field The field to copy; it must be the same size as the grid.
+     */
+    public void copyFrom(Field field) {
+        for (int row = 0; row < depth; row++) {
+            int offset = index(row, 0);
+            for (int col = 0; col < width; col++) {
+                Cell cell = field.getObjectAt(row, col);
+                cells[offset + col] = cell != null && cell.isAlive() ? code(cell.getSpecies()) : NONE;
+            }
+        }
+    }
+
+    /**
+     * @param row The row of the location.
+     * @param col The column of the location.
+     * @return The index of the location in the padded array.
+     */
+    public int index(int row, int col) {
+        return (row + 1) * stride + col + 1;
+    }
+
+    /**
+     * @param row The row of the location.
+     * @param col The column of the location.
+     * @return The value stored for the location.
+     */
+    public byte get(int row, int col) {
+        return cells[index(row, col)];
+    }
+
+    /**
+     * @param row   The row of the location.
+     * @param col   The column of the location.
+     * @param value The value to store for the location.
+     */
+    public void set(int row, int col, byte value) {
+        cells[index(row, col)] = value;
+    }
+
+    /**
+     * @return The padded array backing the grid.
+     */
+    public byte[] getCells() {
+        return cells;
+    }
+
+    /**
+     * @return The distance between the starts of two rows in the array.
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * @return The depth of the field the grid mirrors.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field the grid mirrors.
+     */
+    public int getWidth() {
+        return width;
+    }
+}
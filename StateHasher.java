@@ -0,0 +1,93 @@
+import java.util.List;
+
+/**
+ * Maintains a Zobrist-style hash of the state of every location in a field.
+ * Each (location, state) pair has its own pseudo-random 64-bit key and the
+ * hash of the field is the XOR of the keys of all locations, so when a cell
+ * changes state only that cell's two keys need to be applied. Keys are
+ * derived from the location index on demand rather than stored in a table,
+ * keeping memory use independent of the size of the field.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.02
+ */
+
+public class StateHasher {
+    // Mixed into every key so different hashers can use different key sets.
+    private static final long DEFAULT_SALT = 0x9E3779B97F4A7C15L;
+
+    private final long salt;
+
+    // The hash of the field as it currently is.
+    private long hash;
+
+    /**
+     * Create a hasher using the default key set.
+     */
+    public StateHasher() {
+        this(DEFAULT_SALT);
+    }
+
+    /**
+     * Create a hasher using the key set chosen by the given salt.
+     *
+     * @param salt Selects the keys used for each location and state.
+     */
+    public StateHasher(long salt) {
+        this.salt = salt;
+    }
+
+    /**
+     * Recompute the hash from scratch for the given cells.
+     *
+     * @param cells The cells of the field.
+     */
+    public void rehash(List<Cell> cells) {
+        hash = 0;
+        for (Cell cell : cells) {
+            hash ^= key(cell.getIndex(), CellState.of(cell));
+        }
+    }
+
+    /**
+     * Recompute the hash from scratch for a field held as state codes.
+     *
+     * @param states The state code of every location, in index order.
+     */
+    public void rehash(byte[] states) {
+        hash = 0;
+        for (int index = 0; index < states.length; index++) {
+            hash ^= key(index, states[index]);
+        }
+    }
+
+    /**
+     * Apply the change of one location's state to the hash.
+     *
+     * @param index    The index of the location (row * width + col).
+     * @param oldState The previous state code of the location.
+     * @param newState The new state code of the location.
+     */
+    public void update(int index, int oldState, int newState) {
+        if (oldState != newState) {
+            hash ^= key(index, oldState) ^ key(index, newState);
+        }
+    }
+
+    /**
+     * @return The hash of the field.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * The key of a (location, state) pair, produced by a SplitMix64 finaliser.
+     */
+    private long key(int index, int state) {
+        long z = salt + ((long) index * CellState.STATE_COUNT + state) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
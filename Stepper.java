@@ -0,0 +1,53 @@
+import java.util.Random;
+
+/**
+ * An engine that advances a field by whole generations under the same rules
+ * as the cells of the simulation, but may keep the field in whatever form
+ * is fastest. An engine started from the same field and random stream as a
+ * Simulator must produce exactly the same generations; CrossCheck verifies
+ * this.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.16
+ */
+
+public interface Stepper {
+    /**
+     * Copy the complete state of a field, including what each cell has
+     * decided for the next generation, as the starting point.
+     *
+     * @param field      The field to copy.
+     * @param generation The generation the field is at.
+     * @param rand       The random stream to draw from, in the same state as
+     *                   the one the field's cells draw from.
+     */
+    void load(Field field, int generation, Random rand);
+
+    /**
+     * Advance by one generation.
+     */
+    void step();
+
+    /**
+     * @return The generation the engine is at.
+     */
+    int getGeneration();
+
+    /**
+     * @return The hash of every location's state, as a StateHasher with the
+     *         default salt would give it.
+     */
+    long getStateHash();
+
+    /**
+     * @param index The index of a location.
+     * @return The state code of the location, as given by CellState.
+     */
+    int getState(int index);
+
+    /**
+     * @param index The index of a location.
+     * @return Whether the cell there is set to be alive in the next generation.
+     */
+    boolean getNextAlive(int index);
+}
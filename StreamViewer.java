@@ -0,0 +1,139 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * A thin viewer for a simulation published by a FrameServer. It rebuilds
+ * the field from the keyframes and delta frames it receives and displays it
+ * with the normal SimulatorView. The viewer only watches: it does not run
+ * any rules itself.
+ * Usage: StreamViewer [port]
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.05
+ */
+
+public class StreamViewer {
+    // The rebuilt field, holding one placeholder cell per location.
+    private Field field;
+
+    private SimulatorView view;
+
+    private int depth, width;
+
+    /**
+     * Connect to a local FrameServer and display what it publishes.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        new StreamViewer().watch(port);
+    }
+
+    /**
+     * Display frames from the server on the given local port until it
+     * disconnects.
+     *
+     * @param port The port the FrameServer listens on.
+     * @throws IOException If the connection fails or the stream is invalid.
+     */
+    public void watch(int port) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            if (in.readInt() != FrameServer.MAGIC || in.readInt() != FrameServer.VERSION) {
+                throw new IOException("Not a simulation frame stream.");
+            }
+            depth = in.readInt();
+            width = in.readInt();
+            createField();
+            view = new SimulatorView(depth, width);
+
+            while (true) {
+                int type;
+                try {
+                    type = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    return; // the server closed the stream
+                }
+                int generation = in.readInt();
+
+                if (type == FrameServer.KEYFRAME) {
+                    readKeyframe(in);
+                } else if (type == FrameServer.DELTA) {
+                    readDelta(in);
+                } else {
+                    throw new IOException("Unknown frame type " + type);
+                }
+
+                // only redraw once the frames that have already arrived are applied
+                if (in.available() == 0) {
+                    view.showStatus(generation, field);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill the field with dead placeholder cells whose state the frames set.
+     */
+    private void createField() {
+        field = new Field(depth, width);
+        for (int index = 0; index < depth * width; index++) {
+            Mycoplasma cell = new Mycoplasma(field, index);
+            cell.setDead();
+        }
+    }
+
+    /**
+     * Apply a keyframe: runs of identical states covering the whole field.
+     */
+    private void readKeyframe(DataInputStream in) throws IOException {
+        int index = 0;
+        while (index < depth * width) {
+            int run = readVarint(in);
+            int state = in.readUnsignedByte();
+            for (int i = 0; i < run; i++) {
+                apply(index + i, state);
+            }
+            index += run;
+        }
+    }
+
+    /**
+     * Apply a delta: the changed locations as gaps between indices.
+     */
+    private void readDelta(DataInputStream in) throws IOException {
+        int count = readVarint(in);
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            index += readVarint(in);
+            apply(index, in.readUnsignedByte());
+        }
+    }
+
+    /**
+     * Set the placeholder cell at an index to the given state.
+     */
+    private void apply(int index, int state) {
+        Cell cell = field.getObjectAt(index);
+        cell.setSpecies(CellState.species(state));
+        cell.setState(CellState.isAlive(state));
+    }
+
+    /**
+     * Read an int written in 7-bit groups, lowest first.
+     */
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
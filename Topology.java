@@ -0,0 +1,263 @@
+/**
+ * Describes which locations of a field neighbour each other. The shape of
+ * a neighbourhood (Moore, von Neumann or hexagonal) and whether the field
+ * wraps around at its edges are fixed when the topology is created, and the
+ * neighbours of every location are worked out once, up front.
+ *
+ * Locations away from the edges all have their neighbours at the same
+ * offsets from their own index, so for them the neighbours are found by
+ * adding a fixed list of offsets, with no bounds checks. Only the locations
+ * on the edges of the field, whose neighbours are clipped or wrapped, are
+ * stored in an explicit table.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.07
+ */
+
+public class Topology {
+    /**
+     * The shape of the neighbourhood around a location.
+     */
+    public enum Neighbourhood {
+        // the eight surrounding locations
+        MOORE,
+        // the four locations sharing an edge
+        VON_NEUMANN,
+        // six neighbours, with odd rows shifted half a cell to the right
+        HEXAGONAL
+    }
+
+    // Row and column offsets of each neighbourhood. Hexagonal neighbourhoods
+    // differ between even and odd rows.
+    private static final int[][] MOORE_OFFSETS = { { -1, -1 }, { -1, 0 }, { -1, 1 }, { 0, -1 }, { 0, 1 },
+            { 1, -1 }, { 1, 0 }, { 1, 1 } };
+    private static final int[][] VON_NEUMANN_OFFSETS = { { -1, 0 }, { 0, -1 }, { 0, 1 }, { 1, 0 } };
+    private static final int[][] HEX_EVEN_OFFSETS = { { -1, -1 }, { -1, 0 }, { 0, -1 }, { 0, 1 }, { 1, -1 },
+            { 1, 0 } };
+    private static final int[][] HEX_ODD_OFFSETS = { { -1, 0 }, { -1, 1 }, { 0, -1 }, { 0, 1 }, { 1, 0 },
+            { 1, 1 } };
+
+    private final int depth, width;
+    private final Neighbourhood neighbourhood;
+    private final boolean wrapped;
+
+    // The number of neighbours of a location away from the edges.
+    private final int maxNeighbours;
+
+    // Index offsets of the neighbours of interior locations on even and odd rows.
+    private final int[] evenRowOffsets, oddRowOffsets;
+
+    // Whether every location is kept in the table because the field is too
+    // small to have an interior.
+    private final boolean allInTable;
+
+    // Neighbour indices of the locations in the table, maxNeighbours per slot,
+    // and how many of them each slot actually uses.
+    private final int[] table;
+    private final byte[] tableCounts;
+
+    /**
+     * Create a bounded topology with Moore neighbourhoods, as the field has
+     * always used.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public Topology(int depth, int width) {
+        this(depth, width, Neighbourhood.MOORE, false);
+    }
+
+    /**
+     * Create a topology and precompute its neighbour tables.
+     *
+     * @param depth         The depth of the field.
+     * @param width         The width of the field.
+     * @param neighbourhood The shape of each location's neighbourhood.
+     * @param wrapped       Whether the field wraps around at its edges, making
+     *                      it a torus. Hexagonal fields must have an even
+     *                      depth when wrapped so that rows line up.
+     * @throws IllegalArgumentException If the field is hexagonal and wrapped
+     *                                  but its depth is odd.
+     */
+    public Topology(int depth, int width, Neighbourhood neighbourhood, boolean wrapped) {
+        if (wrapped && neighbourhood == Neighbourhood.HEXAGONAL && depth % 2 != 0) {
+            // the last row and the first would both be shifted the same way,
+            // so a cell would not be a neighbour of its own neighbours
+            throw new IllegalArgumentException("A wrapped hexagonal field must have an even depth: " + depth);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.neighbourhood = neighbourhood;
+        this.wrapped = wrapped;
+
+        int[][] even = offsetsFor(0);
+        int[][] odd = offsetsFor(1);
+        maxNeighbours = even.length;
+        evenRowOffsets = toIndexOffsets(even);
+        oddRowOffsets = toIndexOffsets(odd);
+
+        allInTable = depth < 3 || width < 3;
+        int slots = allInTable ? depth * width : 2 * width + 2 * (depth - 2);
+        table = new int[slots * maxNeighbours];
+        tableCounts = new byte[slots];
+
+        for (int row = 0; row < depth; row++) {
+            for (int col = 0; col < width; col++) {
+                if (!isInterior(row, col)) {
+                    fillSlot(row, col);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the indices of a location's neighbours into the given array.
+     *
+     * @param index      The index of the location (row * width + col).
+     * @param neighbours Receives the neighbour indices; it must have room for
+     *                   getMaxNeighbours() entries.
+     * @return The number of neighbours written.
+     */
+    public int neighbours(int index, int[] neighbours) {
+        int row = index / width;
+        int col = index - row * width;
+
+        if (isInterior(row, col)) {
+            int[] offsets = (row & 1) == 0 ? evenRowOffsets : oddRowOffsets;
+            for (int i = 0; i < offsets.length; i++) {
+                neighbours[i] = index + offsets[i];
+            }
+            return offsets.length;
+        }
+
+        int slot = slotOf(row, col);
+        int count = tableCounts[slot];
+        System.arraycopy(table, slot * maxNeighbours, neighbours, 0, count);
+        return count;
+    }
+
+    /**
+     * @return The largest number of neighbours any location has.
+     */
+    public int getMaxNeighbours() {
+        return maxNeighbours;
+    }
+
+    /**
+     * @return The shape of each location's neighbourhood.
+     */
+    public Neighbourhood getNeighbourhood() {
+        return neighbourhood;
+    }
+
+    /**
+     * @return Whether the field wraps around at its edges.
+     */
+    public boolean isWrapped() {
+        return wrapped;
+    }
+
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Whether a location is away from every edge, so that its neighbours lie
+     * at the fixed interior offsets.
+     */
+    private boolean isInterior(int row, int col) {
+        return !allInTable && row >= 1 && row < depth - 1 && col >= 1 && col < width - 1;
+    }
+
+    /**
+     * The position in the table of an edge location: the first row, then the
+     * last row, then the first and last column of each row in between.
+     */
+    private int slotOf(int row, int col) {
+        if (allInTable) {
+            return row * width + col;
+        } else if (row == 0) {
+            return col;
+        } else if (row == depth - 1) {
+            return width + col;
+        }
+        return 2 * width + (row - 1) * 2 + (col == 0 ? 0 : 1);
+    }
+
+    /**
+     * Work out the neighbours of an edge location and store them in its slot,
+     * clipping or wrapping those that fall outside the field.
+     */
+    private void fillSlot(int row, int col) {
+        int slot = slotOf(row, col);
+        int count = 0;
+        for (int[] offset : offsetsFor(row)) {
+            int nextRow = row + offset[0];
+            int nextCol = col + offset[1];
+            if (wrapped) {
+                nextRow = Math.floorMod(nextRow, depth);
+                nextCol = Math.floorMod(nextCol, width);
+            } else if (nextRow < 0 || nextRow >= depth || nextCol < 0 || nextCol >= width) {
+                continue;
+            }
+            int neighbour = nextRow * width + nextCol;
+
+            // on very small wrapped fields an offset can lead back to the location
+            // itself or to a neighbour already listed
+            if (neighbour == row * width + col || contains(slot, count, neighbour)) {
+                continue;
+            }
+            table[slot * maxNeighbours + count] = neighbour;
+            count++;
+        }
+        tableCounts[slot] = (byte) count;
+    }
+
+    /**
+     * Whether the first count entries of a slot already hold the index.
+     */
+    private boolean contains(int slot, int count, int index) {
+        for (int i = 0; i < count; i++) {
+            if (table[slot * maxNeighbours + i] == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The row and column offsets of the neighbourhood around a location on the
+     * given row.
+     */
+    private int[][] offsetsFor(int row) {
+        switch (neighbourhood) {
+            case VON_NEUMANN:
+                return VON_NEUMANN_OFFSETS;
+            case HEXAGONAL:
+                return (row & 1) == 0 ? HEX_EVEN_OFFSETS : HEX_ODD_OFFSETS;
+            default:
+                return MOORE_OFFSETS;
+        }
+    }
+
+    /**
+     * Turn row and column offsets into offsets between indices.
+     */
+    private int[] toIndexOffsets(int[][] offsets) {
+        int[] indexOffsets = new int[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            indexOffsets[i] = offsets[i][0] * width + offsets[i][1];
+        }
+        return indexOffsets;
+    }
+}
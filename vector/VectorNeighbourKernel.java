@@ -0,0 +1,108 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A neighbour kernel using the incubating Java Vector API. Each row is
+ * processed a vector of columns at a time: the eight neighbour rows are
+ * loaded as shifted vectors, compared against the species and added into a
+ * vector of counts. Columns left over at the end of a row are handled with
+ * scalar code.
+ *
+ * This class needs the jdk.incubator.vector module both to compile and to
+ * run, so it lives apart from the rest of the sources, which build without
+ * it. Compile it after them, into the same directory:
+ *   javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorNeighbourKernel.java
+ * Use NeighbourKernel.create(), which falls back to ScalarNeighbourKernel
+ * when this class or the module is absent, rather than referring to this
+ * class directly.
+ *
+ * @author Harshraj Patel & Ishab Ahmed
+ * @version 2023.03.03
+ */
+
+public class VectorNeighbourKernel implements NeighbourKernel {
+    // The vector shape used, chosen by the JVM for this CPU.
+    private static final VectorSpecies<Byte> LANES = ByteVector.SPECIES_PREFERRED;
+
+    // Added to a count for each neighbour that matches.
+    private static final byte ONE = 1;
+
+    /**
+     * Count the neighbours of one species in a strip of rows.
+     */
+    @Override
+    public void countNeighbours(SpeciesGrid grid, byte species, int fromRow, int toRow, byte[] counts) {
+        byte[] cells = grid.getCells();
+        int stride = grid.getStride();
+        int width = grid.getWidth();
+        int vectorWidth = width - width % LANES.length();
+        ByteVector zero = ByteVector.zero(LANES);
+
+        for (int row = fromRow; row < toRow; row++) {
+            int start = grid.index(row, 0);
+            for (int i = start; i < start + vectorWidth; i += LANES.length()) {
+                int above = i - stride;
+                int below = i + stride;
+                ByteVector sum = zero;
+                sum = sum.add(ONE, ByteVector.fromArray(LANES, cells, above - 1).eq(species));
+                sum = sum.add(ONE, ByteVector.fromArray(LANES, cells, above).eq(species));
+                sum = sum.add(ONE, ByteVector.fromArray(LANES, cells, above + 1).eq(species));
+                sum = sum.add(ONE, ByteVector.fromArray(LANES, cells, i - 1).eq(species));
+                sum = sum.add(ONE, ByteVector.fromArray(LANES, cells, i + 1).eq(species));
+                sum = sum.add(ONE, ByteVector.fromArray(LANES, cells, below - 1).eq(species));
+                sum = sum.add(ONE, ByteVector.fromArray(LANES, cells, below).eq(species));
+                sum = sum.add(ONE, ByteVector.fromArray(LANES, cells, below + 1).eq(species));
+                sum.intoArray(counts, i);
+            }
+            // columns that do not fill a whole vector
+            ScalarNeighbourKernel.countRange(cells, stride, species, start + vectorWidth, start + width, counts);
+        }
+    }
+
+    /**
+     * Apply a birth/survival rule for one species to a strip of rows.
+     */
+    @Override
+    public void applyRule(SpeciesGrid grid, byte species, byte[] counts, int birthMask, int survivalMask,
+            int fromRow, int toRow, byte[] next) {
+        byte[] cells = grid.getCells();
+        int width = grid.getWidth();
+        int vectorWidth = width - width % LANES.length();
+        ByteVector speciesVector = ByteVector.broadcast(LANES, species);
+
+        for (int row = fromRow; row < toRow; row++) {
+            int start = grid.index(row, 0);
+            for (int i = start; i < start + vectorWidth; i += LANES.length()) {
+                ByteVector current = ByteVector.fromArray(LANES, cells, i);
+                ByteVector count = ByteVector.fromArray(LANES, counts, i);
+
+                VectorMask<Byte> alive = current.eq(species);
+                VectorMask<Byte> empty = current.eq(SpeciesGrid.NONE);
+                VectorMask<Byte> survives = matches(count, survivalMask);
+                VectorMask<Byte> born = matches(count, birthMask);
+
+                // living cells that do not survive become empty; empty ones that are born
+                // become the species; anything else is unchanged
+                ByteVector result = current.blend(SpeciesGrid.NONE, alive.andNot(survives));
+                result = result.blend(speciesVector, empty.and(born));
+                result.intoArray(next, i);
+            }
+            ScalarNeighbourKernel.applyRange(cells, species, counts, birthMask, survivalMask, start + vectorWidth,
+                    start + width, next);
+        }
+    }
+
+    /**
+     * The lanes whose count has its bit set in the mask.
+     */
+    private static VectorMask<Byte> matches(ByteVector count, int mask) {
+        VectorMask<Byte> result = LANES.maskAll(false);
+        for (int n = 0; n <= 8; n++) {
+            if ((mask & (1 << n)) != 0) {
+                result = result.or(count.eq((byte) n));
+            }
+        }
+        return result;
+    }
+}